@@ -196,6 +196,10 @@ public class JHipsterProperties {
 
                 private long tokenValidityInSecondsForRememberMe = 2592000;
 
+                private long publicKeyRefreshIntervalInSeconds = 3600;
+
+                private int publicKeyFetchTimeoutInMillis = 5000;
+
                 public String getSecret() {
                     return secret;
                 }
@@ -219,6 +223,22 @@ public class JHipsterProperties {
                 public void setTokenValidityInSecondsForRememberMe(long tokenValidityInSecondsForRememberMe) {
                     this.tokenValidityInSecondsForRememberMe = tokenValidityInSecondsForRememberMe;
                 }
+
+                public long getPublicKeyRefreshIntervalInSeconds() {
+                    return publicKeyRefreshIntervalInSeconds;
+                }
+
+                public void setPublicKeyRefreshIntervalInSeconds(long publicKeyRefreshIntervalInSeconds) {
+                    this.publicKeyRefreshIntervalInSeconds = publicKeyRefreshIntervalInSeconds;
+                }
+
+                public int getPublicKeyFetchTimeoutInMillis() {
+                    return publicKeyFetchTimeoutInMillis;
+                }
+
+                public void setPublicKeyFetchTimeoutInMillis(int publicKeyFetchTimeoutInMillis) {
+                    this.publicKeyFetchTimeoutInMillis = publicKeyFetchTimeoutInMillis;
+                }
             }
         }
     }
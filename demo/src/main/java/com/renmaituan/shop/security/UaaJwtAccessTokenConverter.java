@@ -0,0 +1,80 @@
+package com.renmaituan.shop.security;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+
+import org.springframework.security.jwt.Jwt;
+import org.springframework.security.jwt.JwtHelper;
+import org.springframework.security.jwt.crypto.sign.InvalidSignatureException;
+import org.springframework.security.jwt.crypto.sign.SignatureVerifier;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.common.util.JsonParser;
+import org.springframework.security.oauth2.common.util.JsonParserFactory;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+
+/**
+ * JWT converter verifying the tokens with the keys of the {@link UaaPublicKeyProvider}.
+ * <p>
+ * Tokens with a "kid" header are verified with the matching key, the others with each of the known keys.
+ * When no key can verify a token, the keys are fetched again from the UAA, in case it has rotated its key.
+ */
+public class UaaJwtAccessTokenConverter extends JwtAccessTokenConverter {
+
+    private final JsonParser jsonParser = JsonParserFactory.create();
+
+    private final UaaPublicKeyProvider uaaPublicKeyProvider;
+
+    public UaaJwtAccessTokenConverter(UaaPublicKeyProvider uaaPublicKeyProvider) {
+        this.uaaPublicKeyProvider = uaaPublicKeyProvider;
+    }
+
+    @Override
+    protected Map<String, Object> decode(String token) {
+        Jwt jwt;
+        String keyId;
+        try {
+            jwt = JwtHelper.decode(token);
+            keyId = getKeyId(token);
+        } catch (Exception e) {
+            throw new InvalidTokenException("Cannot convert access token to JSON", e);
+        }
+        if (!verify(jwt, keyId) && !(uaaPublicKeyProvider.refreshOnDemand() && verify(jwt, keyId))) {
+            throw new InvalidTokenException("Cannot verify the signature of the access token");
+        }
+        Map<String, Object> claims = jsonParser.parseMap(jwt.getClaims());
+        if (claims.containsKey(EXP) && claims.get(EXP) instanceof Integer) {
+            claims.put(EXP, Long.valueOf((Integer) claims.get(EXP)));
+        }
+        return claims;
+    }
+
+    private boolean verify(Jwt jwt, String keyId) {
+        Map<String, SignatureVerifier> verifiers = uaaPublicKeyProvider.getVerifiers();
+        if (keyId != null && verifiers.containsKey(keyId)) {
+            return verify(jwt, verifiers.get(keyId));
+        }
+        for (SignatureVerifier verifier : verifiers.values()) {
+            if (verify(jwt, verifier)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean verify(Jwt jwt, SignatureVerifier verifier) {
+        try {
+            jwt.verifySignature(verifier);
+            return true;
+        } catch (InvalidSignatureException e) {
+            return false;
+        }
+    }
+
+    private String getKeyId(String token) {
+        String header = new String(Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))),
+            StandardCharsets.UTF_8);
+        Object keyId = jsonParser.parseMap(header).get("kid");
+        return keyId == null ? null : keyId.toString();
+    }
+}
@@ -0,0 +1,238 @@
+package com.renmaituan.shop.security;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyFactory;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.security.jwt.crypto.sign.MacSigner;
+import org.springframework.security.jwt.crypto.sign.RsaVerifier;
+import org.springframework.security.jwt.crypto.sign.SignatureVerifier;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Provides the keys verifying the signature of the tokens issued by the UAA server.
+ * <p>
+ * The keys are fetched from the "/.well-known/jwks.json" endpoint of the UAA on a dedicated thread, so that a
+ * slow UAA does not delay the other scheduled tasks. The application can start before the UAA, and the keys are
+ * fetched again every "jhipster.security.authentication.jwt.public-key-refresh-interval-in-seconds". The JSON
+ * Web Key Set lists all the keys the UAA publishes, so the tokens signed before a key rotation remain valid
+ * until they expire, even for an application started after the rotation. The set is revalidated with its ETag,
+ * so an unchanged set is answered with a 304 (Not Modified).
+ * <p>
+ * A UAA without this endpoint is queried on "/oauth/token_key", which only has the signing key: the last keys
+ * are then kept by key id, the "kid" of the UAA response or the digest of the key.
+ */
+public class UaaPublicKeyProvider {
+
+    private static final String JWKS_URL = "http://uaa/.well-known/jwks.json";
+
+    private static final String TOKEN_KEY_URL = "http://uaa/oauth/token_key";
+
+    private static final int MAX_KEYS = 3;
+
+    private static final long MIN_ON_DEMAND_REFRESH_INTERVAL = TimeUnit.SECONDS.toMillis(30);
+
+    private static final long SCHEDULED_REFRESH_DELAY = TimeUnit.SECONDS.toMillis(10);
+
+    private final Logger log = LoggerFactory.getLogger(UaaPublicKeyProvider.class);
+
+    private final RestTemplate keyUriRestTemplate;
+
+    private final DiscoveryClient discoveryClient;
+
+    private final long refreshIntervalMillis;
+
+    private final Lock refreshLock = new ReentrantLock();
+
+    private final List<Runnable> keysChangedListeners = new CopyOnWriteArrayList<>();
+
+    private volatile Map<String, SignatureVerifier> verifiers = Collections.emptyMap();
+
+    private volatile long lastRefresh;
+
+    private volatile long lastAttempt;
+
+    private String jwksETag;
+
+    private ThreadPoolTaskScheduler refreshScheduler;
+
+    public UaaPublicKeyProvider(RestTemplate keyUriRestTemplate, DiscoveryClient discoveryClient,
+        long refreshIntervalSeconds) {
+
+        this.keyUriRestTemplate = keyUriRestTemplate;
+        this.discoveryClient = discoveryClient;
+        this.refreshIntervalMillis = TimeUnit.SECONDS.toMillis(refreshIntervalSeconds);
+    }
+
+    @PostConstruct
+    public void init() {
+        refreshScheduler = new ThreadPoolTaskScheduler();
+        refreshScheduler.setThreadNamePrefix("uaa-public-key-refresh-");
+        refreshScheduler.initialize();
+        refreshScheduler.scheduleWithFixedDelay(this::scheduledRefresh, SCHEDULED_REFRESH_DELAY);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        refreshScheduler.shutdown();
+    }
+
+    /**
+     * @return the known verifiers by key id, the most recent last
+     */
+    public Map<String, SignatureVerifier> getVerifiers() {
+        return verifiers;
+    }
+
+    /**
+     * Register a listener called when the known keys change, for example to forget the tokens verified with a
+     * key that is no longer published.
+     */
+    public void addKeysChangedListener(Runnable listener) {
+        keysChangedListeners.add(listener);
+    }
+
+    /**
+     * Fetch the keys until they are known, then every refresh interval.
+     */
+    public void scheduledRefresh() {
+        if (verifiers.isEmpty() || System.currentTimeMillis() - lastRefresh >= refreshIntervalMillis) {
+            refresh();
+        }
+    }
+
+    /**
+     * Fetch the keys because a token could not be verified with the known ones, at most every 30 seconds so
+     * that invalid tokens do not flood the UAA.
+     *
+     * @return true if the keys changed
+     */
+    public boolean refreshOnDemand() {
+        if (System.currentTimeMillis() - lastAttempt < MIN_ON_DEMAND_REFRESH_INTERVAL) {
+            return false;
+        }
+        return refresh();
+    }
+
+    private boolean refresh() {
+        if (!refreshLock.tryLock()) {
+            return false;
+        }
+        try {
+            lastAttempt = System.currentTimeMillis();
+            // Load available UAA servers
+            discoveryClient.getServices();
+            Map<String, SignatureVerifier> newVerifiers;
+            try {
+                newVerifiers = fetchJwks();
+            } catch (HttpClientErrorException e) {
+                if (e.getStatusCode() != HttpStatus.NOT_FOUND) {
+                    throw e;
+                }
+                log.debug("The UAA has no JSON Web Key Set, getting its token key");
+                newVerifiers = fetchTokenKey();
+            }
+            lastRefresh = System.currentTimeMillis();
+            if (newVerifiers == null || newVerifiers.keySet().equals(verifiers.keySet())) {
+                return false;
+            }
+            verifiers = Collections.unmodifiableMap(newVerifiers);
+            log.info("Loaded the UAA public keys {}", newVerifiers.keySet());
+            keysChangedListeners.forEach(Runnable::run);
+            return true;
+        } catch (Exception e) {
+            log.warn("Could not get the UAA public keys: {}", e.getMessage());
+            return false;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * @return all the published keys, or null if they did not change since the last fetch
+     */
+    private Map<String, SignatureVerifier> fetchJwks() throws Exception {
+        HttpHeaders headers = new HttpHeaders();
+        if (jwksETag != null) {
+            headers.setIfNoneMatch(jwksETag);
+        }
+        ResponseEntity<Map> response = keyUriRestTemplate
+            .exchange(JWKS_URL, HttpMethod.GET, new HttpEntity<Void>(headers), Map.class);
+        if (response.getStatusCode() == HttpStatus.NOT_MODIFIED) {
+            return null;
+        }
+        Map<String, SignatureVerifier> newVerifiers = new LinkedHashMap<>();
+        for (Object key : (List<?>) response.getBody().get("keys")) {
+            Map<?, ?> jwk = (Map<?, ?>) key;
+            if ("RSA".equals(jwk.get("kty")) && !"enc".equals(jwk.get("use"))) {
+                newVerifiers.put((String) jwk.get("kid"), createVerifier(jwk));
+            }
+        }
+        if (newVerifiers.isEmpty()) {
+            throw new IllegalStateException("No RSA signature key in the JSON Web Key Set");
+        }
+        jwksETag = response.getHeaders().getETag();
+        return newVerifiers;
+    }
+
+    /**
+     * @return the known keys with the signing key of the UAA
+     */
+    private Map<String, SignatureVerifier> fetchTokenKey() {
+        Map<?, ?> response = keyUriRestTemplate
+            .exchange(TOKEN_KEY_URL, HttpMethod.GET, new HttpEntity<Void>(new HttpHeaders()), Map.class).getBody();
+        String key = (String) response.get("value");
+        String keyId = response.get("kid") != null ? (String) response.get("kid") :
+            DigestUtils.md5DigestAsHex(key.getBytes(StandardCharsets.UTF_8));
+        if (verifiers.containsKey(keyId)) {
+            return null;
+        }
+        Map<String, SignatureVerifier> newVerifiers = new LinkedHashMap<>(verifiers);
+        newVerifiers.put(keyId, createVerifier(key));
+        Iterator<String> keyIds = newVerifiers.keySet().iterator();
+        while (newVerifiers.size() > MAX_KEYS) {
+            keyIds.next();
+            keyIds.remove();
+        }
+        return newVerifiers;
+    }
+
+    private SignatureVerifier createVerifier(Map<?, ?> jwk) throws Exception {
+        BigInteger modulus = new BigInteger(1, Base64.getUrlDecoder().decode((String) jwk.get("n")));
+        BigInteger exponent = new BigInteger(1, Base64.getUrlDecoder().decode((String) jwk.get("e")));
+        return new RsaVerifier((RSAPublicKey) KeyFactory.getInstance("RSA")
+            .generatePublic(new RSAPublicKeySpec(modulus, exponent)));
+    }
+
+    private SignatureVerifier createVerifier(String key) {
+        if (key.startsWith("-----BEGIN")) {
+            return new RsaVerifier(key);
+        }
+        return new MacSigner(key);
+    }
+}
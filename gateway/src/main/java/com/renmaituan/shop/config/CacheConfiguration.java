@@ -1,5 +1,8 @@
 package com.renmaituan.shop.config;
 
+import com.renmaituan.shop.gateway.ratelimiting.HazelcastRateLimiterBackend;
+import com.renmaituan.shop.gateway.responsecaching.ResponseCache;
+
 import com.hazelcast.config.Config;
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.core.Hazelcast;
@@ -18,6 +21,7 @@ import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.context.annotation.*;
 import org.springframework.core.env.Environment;
 
+import java.util.concurrent.TimeUnit;
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 
@@ -92,6 +96,8 @@ public class CacheConfiguration {
         
         config.getMapConfigs().put("default", initializeDefaultMapConfig());
         config.getMapConfigs().put("com.renmaituan.shop.domain.*", initializeDomainMapConfig(jHipsterProperties));
+        config.getMapConfigs().put(HazelcastRateLimiterBackend.MAP_NAME, initializeRateLimitingMapConfig(jHipsterProperties));
+        config.getMapConfigs().put(ResponseCache.MAP_NAME, initializeResponseCachingMapConfig(jHipsterProperties));
 
         hazelcastInstance = HazelcastInstanceFactory.newHazelcastInstance(config);
 
@@ -143,6 +149,32 @@ public class CacheConfiguration {
         return mapConfig;
     }
 
+    private MapConfig initializeRateLimitingMapConfig(JHipsterProperties jHipsterProperties) {
+        MapConfig mapConfig = new MapConfig();
+
+        // Rate limiting counters are shared by all the gateway nodes, so they need to survive a node failure
+        mapConfig.setBackupCount(jHipsterProperties.getCache().getHazelcast().getBackupCount());
+
+        // Counters are not needed anymore once the longest rate limiting period (a day) has elapsed twice
+        mapConfig.setMaxIdleSeconds((int) TimeUnit.DAYS.toSeconds(2));
+        return mapConfig;
+    }
+
+    private MapConfig initializeResponseCachingMapConfig(JHipsterProperties jHipsterProperties) {
+        MapConfig mapConfig = new MapConfig();
+
+        // Cached responses can be fetched again from the micro-services, so they are not backed up
+        mapConfig.setBackupCount(0);
+        mapConfig.setEvictionPolicy(EvictionPolicy.LRU);
+        mapConfig.setEvictionPercentage(25);
+
+        // The max size is per node, in MB
+        long maxSize = jHipsterProperties.getGateway().getResponseCaching().getMaxSize() / (1024 * 1024);
+        mapConfig.setMaxSizeConfig(new MaxSizeConfig((int) Math.max(1, maxSize),
+            MaxSizeConfig.MaxSizePolicy.USED_HEAP_SIZE));
+        return mapConfig;
+    }
+
     /**
     * @return the unique instance.
     */
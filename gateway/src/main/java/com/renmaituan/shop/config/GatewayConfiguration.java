@@ -1,15 +1,51 @@
 package com.renmaituan.shop.config;
 
+import com.renmaituan.shop.gateway.ratelimiting.CassandraRateLimiterBackend;
+import com.renmaituan.shop.gateway.ratelimiting.HazelcastRateLimiterBackend;
+import com.renmaituan.shop.gateway.ratelimiting.InMemoryRateLimiterBackend;
+import com.renmaituan.shop.gateway.ratelimiting.LocalRateLimiter;
+import com.renmaituan.shop.gateway.ratelimiting.RateLimitPolicyIndex;
+import com.renmaituan.shop.gateway.ratelimiting.RateLimiter;
+import com.renmaituan.shop.gateway.ratelimiting.RateLimiterBackend;
 import com.renmaituan.shop.gateway.ratelimiting.RateLimitingFilter;
 import com.renmaituan.shop.gateway.ratelimiting.RateLimitingRepository;
+import com.renmaituan.shop.gateway.ratelimiting.SlidingWindowRateLimiter;
 import com.renmaituan.shop.gateway.accesscontrol.AccessControlFilter;
+import com.renmaituan.shop.gateway.concurrencylimiting.ConcurrencyLimitingErrorFilter;
+import com.renmaituan.shop.gateway.concurrencylimiting.ConcurrencyLimitingPostFilter;
+import com.renmaituan.shop.gateway.concurrencylimiting.ConcurrencyLimitingPreFilter;
+import com.renmaituan.shop.gateway.concurrencylimiting.ConcurrencyLimits;
+import com.renmaituan.shop.gateway.hedging.HedgingRoutingFilter;
+import com.renmaituan.shop.gateway.httpclient.RibbonHttpClientConfiguration;
+import com.renmaituan.shop.gateway.loadbalancing.InstanceStatsFilter;
+import com.renmaituan.shop.gateway.loadbalancing.InstanceStatsRegistry;
+import com.renmaituan.shop.gateway.loadbalancing.LatencyAwareRibbonConfiguration;
+import com.renmaituan.shop.gateway.metrics.RouteMetrics;
+import com.renmaituan.shop.gateway.metrics.RouteMetricsFilter;
+import com.renmaituan.shop.gateway.requestcoalescing.RequestCoalescingErrorFilter;
+import com.renmaituan.shop.gateway.requestcoalescing.RequestCoalescingPostFilter;
+import com.renmaituan.shop.gateway.requestcoalescing.RequestCoalescingPreFilter;
+import com.renmaituan.shop.gateway.responsecaching.ResponseCache;
+import com.renmaituan.shop.gateway.responsecaching.ResponseCachingPostFilter;
+import com.renmaituan.shop.gateway.responsecaching.ResponseCachingPreFilter;
 import com.renmaituan.shop.gateway.responserewriting.SwaggerBasePathRewritingFilter;
+import com.renmaituan.shop.gateway.streaming.StreamingResponseFilter;
 
 import javax.inject.Inject;
 
+import com.codahale.metrics.MetricRegistry;
+import com.hazelcast.core.HazelcastInstance;
+
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.netflix.ribbon.RibbonClients;
+import org.springframework.cloud.netflix.ribbon.SpringClientFactory;
+import org.springframework.cloud.netflix.zuul.filters.ProxyRequestHelper;
+import org.springframework.cloud.netflix.zuul.filters.route.RibbonCommandFactory;
+import org.springframework.cloud.netflix.zuul.filters.route.apache.HttpClientRibbonCommandFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 @Configuration
 public class GatewayConfiguration {
@@ -35,7 +71,9 @@ public class GatewayConfiguration {
     /**
      * Configures the Zuul filter that limits the number of API calls per user.
      * <p>
-     * For this filter to work, you need to have:
+     * The API calls are counted in the backend chosen with "jhipster.gateway.rate-limiting.backend":
+     * <ul>
+     * <li>"cassandra", the default, shared by all the gateway nodes. For this backend to work, you need to have:
      * <ul>
      * <li>A working Cassandra cluster
      * <li>A schema with the JHipster rate-limiting tables configured, using the
@@ -44,22 +82,299 @@ public class GatewayConfiguration {
      * <li>Your cluster configured in your application-*.yml files, using the
      * "spring.data.cassandra" keys
      * </ul>
+     * <li>"hazelcast", shared by all the gateway nodes through the Hazelcast cluster of the gateway, see
+     * {@link CacheConfiguration}
+     * <li>"memory", where each gateway node counts its own API calls
+     * </ul>
+     * <p>
+     * Several limits can be set at the same time, for example per second, per minute and per hour, with the
+     * "jhipster.gateway.rate-limiting.limits" keys. They are enforced with sliding window counters.
+     * <p>
+     * Specific limits can be set per route, path prefix or user authority with the
+     * "jhipster.gateway.rate-limiting.policies" keys, see {@link RateLimitPolicyIndex}.
+     * <p>
+     * With "jhipster.gateway.rate-limiting.local.enabled", limits are enforced in memory by each gateway node,
+     * which periodically flushes its counters to the backend: the backend is then out of the request path, but
+     * the limit is only approximately enforced across the cluster.
      */
     @Configuration
     @ConditionalOnProperty("jhipster.gateway.rate-limiting.enabled")
     public static class RateLimitingConfiguration {
 
+        private static final String BACKEND_PROPERTY = "jhipster.gateway.rate-limiting.backend";
+
         @Inject
         private JHipsterProperties jHipsterProperties;
 
         @Bean
+        @ConditionalOnProperty(name = BACKEND_PROPERTY, havingValue = "cassandra", matchIfMissing = true)
         public RateLimitingRepository rateLimitingRepository() {
             return new RateLimitingRepository();
         }
 
         @Bean
-        public RateLimitingFilter rateLimitingFilter() {
-            return new RateLimitingFilter(rateLimitingRepository(), jHipsterProperties);
+        @ConditionalOnProperty(name = BACKEND_PROPERTY, havingValue = "cassandra", matchIfMissing = true)
+        public RateLimiterBackend cassandraRateLimiterBackend(RateLimitingRepository rateLimitingRepository,
+            MetricRegistry metricRegistry) {
+
+            return new CassandraRateLimiterBackend(rateLimitingRepository,
+                jHipsterProperties.getGateway().getRateLimiting().getCheckTimeout(), metricRegistry);
+        }
+
+        @Bean
+        @ConditionalOnProperty(name = BACKEND_PROPERTY, havingValue = "hazelcast")
+        public RateLimiterBackend hazelcastRateLimiterBackend(HazelcastInstance hazelcastInstance) {
+            return new HazelcastRateLimiterBackend(hazelcastInstance);
+        }
+
+        @Bean
+        @ConditionalOnProperty(name = BACKEND_PROPERTY, havingValue = "memory")
+        public RateLimiterBackend inMemoryRateLimiterBackend() {
+            return new InMemoryRateLimiterBackend();
+        }
+
+        @Bean
+        public RateLimitPolicyIndex rateLimitPolicyIndex() {
+            return new RateLimitPolicyIndex(jHipsterProperties);
+        }
+
+        @Bean
+        public RateLimiter rateLimiter(RateLimiterBackend rateLimiterBackend) {
+            if (jHipsterProperties.getGateway().getRateLimiting().getLocal().isEnabled()) {
+                return new LocalRateLimiter(rateLimiterBackend,
+                    jHipsterProperties.getGateway().getRateLimiting().getLocal().getFlushInterval());
+            }
+            return new SlidingWindowRateLimiter(rateLimiterBackend);
+        }
+
+        @Bean
+        public RateLimitingFilter rateLimitingFilter(RateLimiter rateLimiter) {
+            return new RateLimitingFilter(rateLimiter, rateLimitPolicyIndex());
+        }
+    }
+
+    /**
+     * Configures the GET responses cache, for the routes listed in "jhipster.gateway.response-caching.routes".
+     */
+    @Configuration
+    @ConditionalOnProperty("jhipster.gateway.response-caching.enabled")
+    public static class ResponseCachingConfiguration {
+
+        @Inject
+        private JHipsterProperties jHipsterProperties;
+
+        @Bean
+        public ResponseCache responseCache(HazelcastInstance hazelcastInstance) {
+            JHipsterProperties.Gateway.ResponseCaching responseCaching =
+                jHipsterProperties.getGateway().getResponseCaching();
+            return new ResponseCache(responseCaching.getMaxSize(),
+                responseCaching.isHazelcastEnabled() ? hazelcastInstance : null);
+        }
+
+        @Bean
+        public ResponseCachingPreFilter responseCachingPreFilter(ResponseCache responseCache,
+            MetricRegistry metricRegistry) {
+
+            return new ResponseCachingPreFilter(responseCache, jHipsterProperties.getGateway().getResponseCaching(),
+                metricRegistry);
+        }
+
+        @Bean
+        public ResponseCachingPostFilter responseCachingPostFilter(ResponseCache responseCache,
+            MetricRegistry metricRegistry) {
+
+            return new ResponseCachingPostFilter(responseCache, jHipsterProperties.getGateway().getResponseCaching(),
+                metricRegistry);
+        }
+    }
+
+    /**
+     * Configures the coalescing of identical GET requests, for the routes listed in
+     * "jhipster.gateway.request-coalescing.routes".
+     */
+    @Configuration
+    @ConditionalOnProperty("jhipster.gateway.request-coalescing.enabled")
+    public static class RequestCoalescingConfiguration {
+
+        @Inject
+        private JHipsterProperties jHipsterProperties;
+
+        @Bean
+        public RequestCoalescingPreFilter requestCoalescingPreFilter(MetricRegistry metricRegistry) {
+            return new RequestCoalescingPreFilter(jHipsterProperties.getGateway().getRequestCoalescing(),
+                metricRegistry);
+        }
+
+        @Bean
+        public RequestCoalescingPostFilter requestCoalescingPostFilter() {
+            return new RequestCoalescingPostFilter(jHipsterProperties.getGateway().getRequestCoalescing());
+        }
+
+        @Bean
+        public RequestCoalescingErrorFilter requestCoalescingErrorFilter() {
+            return new RequestCoalescingErrorFilter(jHipsterProperties.getGateway().getRequestCoalescing());
+        }
+    }
+
+    /**
+     * Configures the pooled HTTP client used to proxy the requests to each micro-service, see
+     * {@link RibbonHttpClientConfiguration}.
+     */
+    @Configuration
+    @ConditionalOnProperty("jhipster.gateway.http-client.enabled")
+    @RibbonClients(defaultConfiguration = RibbonHttpClientConfiguration.class)
+    public static class HttpClientConfiguration {
+
+        /**
+         * Zuul proxies through the Ribbon RestClient by default: route the requests through the
+         * {@link org.springframework.cloud.netflix.ribbon.apache.RibbonLoadBalancingHttpClient} of each
+         * micro-service instead.
+         */
+        @Bean
+        public RibbonCommandFactory<?> ribbonCommandFactory(SpringClientFactory clientFactory) {
+            return new HttpClientRibbonCommandFactory(clientFactory);
+        }
+    }
+
+    /**
+     * Configures the latency-aware load balancing of the micro-services, see {@link LatencyAwareRibbonConfiguration}.
+     */
+    @Configuration
+    @ConditionalOnProperty("jhipster.gateway.load-balancing.enabled")
+    @RibbonClients(defaultConfiguration = LatencyAwareRibbonConfiguration.class)
+    public static class LoadBalancingConfiguration {
+
+        @Inject
+        private JHipsterProperties jHipsterProperties;
+
+        @Bean
+        public InstanceStatsRegistry instanceStatsRegistry() {
+            return new InstanceStatsRegistry(jHipsterProperties.getGateway().getLoadBalancing());
+        }
+
+        @Bean
+        public InstanceStatsFilter instanceStatsFilter() {
+            return new InstanceStatsFilter();
+        }
+    }
+
+    /**
+     * Configures the hedged requests, for the routes listed in "jhipster.gateway.hedging.routes".
+     */
+    @Configuration
+    @ConditionalOnProperty("jhipster.gateway.hedging.enabled")
+    public static class HedgingConfiguration {
+
+        @Inject
+        private JHipsterProperties jHipsterProperties;
+
+        @Autowired(required = false)
+        private InstanceStatsRegistry instanceStatsRegistry;
+
+        @Bean
+        public ThreadPoolTaskExecutor hedgingExecutor() {
+            ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+            executor.setCorePoolSize(0);
+            executor.setMaxPoolSize(jHipsterProperties.getGateway().getHedging().getMaxThreads());
+            executor.setQueueCapacity(0);
+            executor.setThreadNamePrefix("gateway-hedging-");
+            return executor;
+        }
+
+        @Bean
+        public HedgingRoutingFilter hedgingRoutingFilter(ProxyRequestHelper proxyRequestHelper,
+            SpringClientFactory springClientFactory, MetricRegistry metricRegistry) {
+
+            return new HedgingRoutingFilter(proxyRequestHelper, springClientFactory, hedgingExecutor(),
+                jHipsterProperties.getGateway(), metricRegistry, instanceStatsRegistry);
+        }
+    }
+
+    /**
+     * Configures the adaptive concurrency limit of each route.
+     */
+    @Configuration
+    @ConditionalOnProperty("jhipster.gateway.concurrency-limiting.enabled")
+    public static class ConcurrencyLimitingConfiguration {
+
+        @Inject
+        private JHipsterProperties jHipsterProperties;
+
+        @Bean
+        public ConcurrencyLimits concurrencyLimits(MetricRegistry metricRegistry) {
+            return new ConcurrencyLimits(jHipsterProperties.getGateway().getConcurrencyLimiting(), metricRegistry);
+        }
+
+        @Bean
+        public ConcurrencyLimitingPreFilter concurrencyLimitingPreFilter(ConcurrencyLimits concurrencyLimits) {
+            return new ConcurrencyLimitingPreFilter(concurrencyLimits);
+        }
+
+        @Bean
+        public ConcurrencyLimitingPostFilter concurrencyLimitingPostFilter() {
+            return new ConcurrencyLimitingPostFilter();
+        }
+
+        @Bean
+        public ConcurrencyLimitingErrorFilter concurrencyLimitingErrorFilter() {
+            return new ConcurrencyLimitingErrorFilter();
+        }
+    }
+
+    /**
+     * Configures the latency and throughput metrics of each route.
+     */
+    @Configuration
+    @ConditionalOnProperty("jhipster.gateway.route-metrics.enabled")
+    public static class RouteMetricsConfiguration {
+
+        @Inject
+        private JHipsterProperties jHipsterProperties;
+
+        @Bean
+        public RouteMetrics routeMetrics(MetricRegistry metricRegistry) {
+            return new RouteMetrics(metricRegistry, jHipsterProperties.getGateway().getRouteMetrics().getWindow());
+        }
+
+        @Bean
+        public RouteMetricsFilter routeMetricsStartFilter(RouteMetrics routeMetrics) {
+            return new RouteMetricsFilter(routeMetrics, RouteMetricsFilter.Phase.START);
+        }
+
+        @Bean
+        public RouteMetricsFilter routeMetricsRouteStartFilter(RouteMetrics routeMetrics) {
+            return new RouteMetricsFilter(routeMetrics, RouteMetricsFilter.Phase.ROUTE_START);
+        }
+
+        @Bean
+        public RouteMetricsFilter routeMetricsRouteEndFilter(RouteMetrics routeMetrics) {
+            return new RouteMetricsFilter(routeMetrics, RouteMetricsFilter.Phase.ROUTE_END);
+        }
+
+        @Bean
+        public RouteMetricsFilter routeMetricsEndFilter(RouteMetrics routeMetrics) {
+            return new RouteMetricsFilter(routeMetrics, RouteMetricsFilter.Phase.END);
+        }
+
+        @Bean
+        public RouteMetricsFilter routeMetricsErrorFilter(RouteMetrics routeMetrics) {
+            return new RouteMetricsFilter(routeMetrics, RouteMetricsFilter.Phase.ERROR);
+        }
+    }
+
+    /**
+     * Configures the streaming of the responses of the routes which do not need their body to be rewritten.
+     */
+    @Configuration
+    @ConditionalOnProperty("jhipster.gateway.streaming.enabled")
+    public static class StreamingConfiguration {
+
+        @Inject
+        private JHipsterProperties jHipsterProperties;
+
+        @Bean
+        public StreamingResponseFilter streamingResponseFilter(MetricRegistry metricRegistry) {
+            return new StreamingResponseFilter(jHipsterProperties.getGateway().getStreaming(), metricRegistry);
         }
     }
 }
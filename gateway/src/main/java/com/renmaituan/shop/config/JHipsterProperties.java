@@ -3,6 +3,7 @@ package com.renmaituan.shop.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.web.cors.CorsConfiguration;
 
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -200,6 +201,12 @@ public class JHipsterProperties {
 
                 private long tokenValidityInSecondsForRememberMe = 2592000;
 
+                private long publicKeyRefreshIntervalInSeconds = 3600;
+
+                private int publicKeyFetchTimeoutInMillis = 5000;
+
+                private long verificationCacheSize = 10000;
+
                 public String getSecret() {
                     return secret;
                 }
@@ -223,6 +230,30 @@ public class JHipsterProperties {
                 public void setTokenValidityInSecondsForRememberMe(long tokenValidityInSecondsForRememberMe) {
                     this.tokenValidityInSecondsForRememberMe = tokenValidityInSecondsForRememberMe;
                 }
+
+                public long getPublicKeyRefreshIntervalInSeconds() {
+                    return publicKeyRefreshIntervalInSeconds;
+                }
+
+                public void setPublicKeyRefreshIntervalInSeconds(long publicKeyRefreshIntervalInSeconds) {
+                    this.publicKeyRefreshIntervalInSeconds = publicKeyRefreshIntervalInSeconds;
+                }
+
+                public int getPublicKeyFetchTimeoutInMillis() {
+                    return publicKeyFetchTimeoutInMillis;
+                }
+
+                public void setPublicKeyFetchTimeoutInMillis(int publicKeyFetchTimeoutInMillis) {
+                    this.publicKeyFetchTimeoutInMillis = publicKeyFetchTimeoutInMillis;
+                }
+
+                public long getVerificationCacheSize() {
+                    return verificationCacheSize;
+                }
+
+                public void setVerificationCacheSize(long verificationCacheSize) {
+                    this.verificationCacheSize = verificationCacheSize;
+                }
             }
         }
     }
@@ -518,6 +549,54 @@ public class JHipsterProperties {
             return rateLimiting;
         }
 
+        private final ResponseCaching responseCaching = new ResponseCaching();
+
+        public ResponseCaching getResponseCaching() {
+            return responseCaching;
+        }
+
+        private final RequestCoalescing requestCoalescing = new RequestCoalescing();
+
+        public RequestCoalescing getRequestCoalescing() {
+            return requestCoalescing;
+        }
+
+        private final HttpClient httpClient = new HttpClient();
+
+        public HttpClient getHttpClient() {
+            return httpClient;
+        }
+
+        private final LoadBalancing loadBalancing = new LoadBalancing();
+
+        public LoadBalancing getLoadBalancing() {
+            return loadBalancing;
+        }
+
+        private final Hedging hedging = new Hedging();
+
+        public Hedging getHedging() {
+            return hedging;
+        }
+
+        private final ConcurrencyLimiting concurrencyLimiting = new ConcurrencyLimiting();
+
+        public ConcurrencyLimiting getConcurrencyLimiting() {
+            return concurrencyLimiting;
+        }
+
+        private final RouteMetrics routeMetrics = new RouteMetrics();
+
+        public RouteMetrics getRouteMetrics() {
+            return routeMetrics;
+        }
+
+        private final Streaming streaming = new Streaming();
+
+        public Streaming getStreaming() {
+            return streaming;
+        }
+
         private Map<String, List<String>> authorizedMicroservicesEndpoints = new LinkedHashMap<>();
 
         public Map<String, List<String>> getAuthorizedMicroservicesEndpoints() {
@@ -528,12 +607,594 @@ public class JHipsterProperties {
             this.authorizedMicroservicesEndpoints = authorizedMicroservicesEndpoints;
         }
 
+        public static class ResponseCaching {
+
+            private boolean enabled = false;
+
+            private long maxSize = 64L * 1024 * 1024;
+
+            private int maxEntrySize = 1024 * 1024;
+
+            private long staleRetentionSeconds = 300;
+
+            private boolean hazelcastEnabled = false;
+
+            private Map<String, Route> routes = new LinkedHashMap<>();
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public long getMaxSize() {
+                return maxSize;
+            }
+
+            public void setMaxSize(long maxSize) {
+                this.maxSize = maxSize;
+            }
+
+            public int getMaxEntrySize() {
+                return maxEntrySize;
+            }
+
+            public void setMaxEntrySize(int maxEntrySize) {
+                this.maxEntrySize = maxEntrySize;
+            }
+
+            public long getStaleRetentionSeconds() {
+                return staleRetentionSeconds;
+            }
+
+            public void setStaleRetentionSeconds(long staleRetentionSeconds) {
+                this.staleRetentionSeconds = staleRetentionSeconds;
+            }
+
+            public boolean isHazelcastEnabled() {
+                return hazelcastEnabled;
+            }
+
+            public void setHazelcastEnabled(boolean hazelcastEnabled) {
+                this.hazelcastEnabled = hazelcastEnabled;
+            }
+
+            public Map<String, Route> getRoutes() {
+                return routes;
+            }
+
+            public void setRoutes(Map<String, Route> routes) {
+                this.routes = routes;
+            }
+
+            public static class Route {
+
+                private long timeToLiveSeconds = 0;
+
+                private String varyBy = "principal";
+
+                private boolean ignoreCacheControl = false;
+
+                public long getTimeToLiveSeconds() {
+                    return timeToLiveSeconds;
+                }
+
+                public void setTimeToLiveSeconds(long timeToLiveSeconds) {
+                    this.timeToLiveSeconds = timeToLiveSeconds;
+                }
+
+                public String getVaryBy() {
+                    return varyBy;
+                }
+
+                public void setVaryBy(String varyBy) {
+                    this.varyBy = varyBy;
+                }
+
+                public boolean isIgnoreCacheControl() {
+                    return ignoreCacheControl;
+                }
+
+                public void setIgnoreCacheControl(boolean ignoreCacheControl) {
+                    this.ignoreCacheControl = ignoreCacheControl;
+                }
+            }
+        }
+
+        public static class ConcurrencyLimiting {
+
+            private boolean enabled = false;
+
+            private int initialLimit = 20;
+
+            private int minLimit = 5;
+
+            private int maxLimit = 500;
+
+            private double smoothing = 0.2;
+
+            private double tolerance = 1.5;
+
+            private int windowSize = 50;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public int getInitialLimit() {
+                return initialLimit;
+            }
+
+            public void setInitialLimit(int initialLimit) {
+                this.initialLimit = initialLimit;
+            }
+
+            public int getMinLimit() {
+                return minLimit;
+            }
+
+            public void setMinLimit(int minLimit) {
+                this.minLimit = minLimit;
+            }
+
+            public int getMaxLimit() {
+                return maxLimit;
+            }
+
+            public void setMaxLimit(int maxLimit) {
+                this.maxLimit = maxLimit;
+            }
+
+            public double getSmoothing() {
+                return smoothing;
+            }
+
+            public void setSmoothing(double smoothing) {
+                this.smoothing = smoothing;
+            }
+
+            public double getTolerance() {
+                return tolerance;
+            }
+
+            public void setTolerance(double tolerance) {
+                this.tolerance = tolerance;
+            }
+
+            public int getWindowSize() {
+                return windowSize;
+            }
+
+            public void setWindowSize(int windowSize) {
+                this.windowSize = windowSize;
+            }
+        }
+
+        public static class Streaming {
+
+            private boolean enabled = false;
+
+            private int bufferSize = 16384;
+
+            private int maxPooledBuffers = 256;
+
+            private List<String> routes = new ArrayList<>();
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public int getBufferSize() {
+                return bufferSize;
+            }
+
+            public void setBufferSize(int bufferSize) {
+                this.bufferSize = bufferSize;
+            }
+
+            public int getMaxPooledBuffers() {
+                return maxPooledBuffers;
+            }
+
+            public void setMaxPooledBuffers(int maxPooledBuffers) {
+                this.maxPooledBuffers = maxPooledBuffers;
+            }
+
+            public List<String> getRoutes() {
+                return routes;
+            }
+
+            public void setRoutes(List<String> routes) {
+                this.routes = routes;
+            }
+        }
+
+        public static class RouteMetrics {
+
+            private boolean enabled = false;
+
+            private long window = 60L;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public long getWindow() {
+                return window;
+            }
+
+            public void setWindow(long window) {
+                this.window = window;
+            }
+        }
+
+        public static class Hedging {
+
+            private boolean enabled = false;
+
+            private double budgetPercent = 5;
+
+            private int maxBurst = 10;
+
+            private long minDelay = 10L;
+
+            private int minSamples = 100;
+
+            private int maxThreads = 200;
+
+            private List<String> routes = new ArrayList<>();
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public double getBudgetPercent() {
+                return budgetPercent;
+            }
+
+            public void setBudgetPercent(double budgetPercent) {
+                this.budgetPercent = budgetPercent;
+            }
+
+            public int getMaxBurst() {
+                return maxBurst;
+            }
+
+            public void setMaxBurst(int maxBurst) {
+                this.maxBurst = maxBurst;
+            }
+
+            public long getMinDelay() {
+                return minDelay;
+            }
+
+            public void setMinDelay(long minDelay) {
+                this.minDelay = minDelay;
+            }
+
+            public int getMinSamples() {
+                return minSamples;
+            }
+
+            public void setMinSamples(int minSamples) {
+                this.minSamples = minSamples;
+            }
+
+            public int getMaxThreads() {
+                return maxThreads;
+            }
+
+            public void setMaxThreads(int maxThreads) {
+                this.maxThreads = maxThreads;
+            }
+
+            public List<String> getRoutes() {
+                return routes;
+            }
+
+            public void setRoutes(List<String> routes) {
+                this.routes = routes;
+            }
+        }
+
+        public static class LoadBalancing {
+
+            private boolean enabled = false;
+
+            private long decayTime = 10000L;
+
+            private int consecutiveFailures = 5;
+
+            private long ejectionTime = 30000L;
+
+            private long maxEjectionTime = 300000L;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public long getDecayTime() {
+                return decayTime;
+            }
+
+            public void setDecayTime(long decayTime) {
+                this.decayTime = decayTime;
+            }
+
+            public int getConsecutiveFailures() {
+                return consecutiveFailures;
+            }
+
+            public void setConsecutiveFailures(int consecutiveFailures) {
+                this.consecutiveFailures = consecutiveFailures;
+            }
+
+            public long getEjectionTime() {
+                return ejectionTime;
+            }
+
+            public void setEjectionTime(long ejectionTime) {
+                this.ejectionTime = ejectionTime;
+            }
+
+            public long getMaxEjectionTime() {
+                return maxEjectionTime;
+            }
+
+            public void setMaxEjectionTime(long maxEjectionTime) {
+                this.maxEjectionTime = maxEjectionTime;
+            }
+        }
+
+        public static class HttpClient {
+
+            private boolean enabled = false;
+
+            private int maxTotalConnections = 200;
+
+            private int maxConnectionsPerHost = 50;
+
+            private int connectTimeout = 5000;
+
+            private int readTimeout = 10000;
+
+            private int connectionRequestTimeout = 1000;
+
+            private long keepAlive = 30000L;
+
+            private long maxIdleTime = 60000L;
+
+            private Map<String, Service> services = new LinkedHashMap<>();
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public int getMaxTotalConnections() {
+                return maxTotalConnections;
+            }
+
+            public void setMaxTotalConnections(int maxTotalConnections) {
+                this.maxTotalConnections = maxTotalConnections;
+            }
+
+            public int getMaxConnectionsPerHost() {
+                return maxConnectionsPerHost;
+            }
+
+            public void setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+                this.maxConnectionsPerHost = maxConnectionsPerHost;
+            }
+
+            public int getConnectTimeout() {
+                return connectTimeout;
+            }
+
+            public void setConnectTimeout(int connectTimeout) {
+                this.connectTimeout = connectTimeout;
+            }
+
+            public int getReadTimeout() {
+                return readTimeout;
+            }
+
+            public void setReadTimeout(int readTimeout) {
+                this.readTimeout = readTimeout;
+            }
+
+            public int getConnectionRequestTimeout() {
+                return connectionRequestTimeout;
+            }
+
+            public void setConnectionRequestTimeout(int connectionRequestTimeout) {
+                this.connectionRequestTimeout = connectionRequestTimeout;
+            }
+
+            public long getKeepAlive() {
+                return keepAlive;
+            }
+
+            public void setKeepAlive(long keepAlive) {
+                this.keepAlive = keepAlive;
+            }
+
+            public long getMaxIdleTime() {
+                return maxIdleTime;
+            }
+
+            public void setMaxIdleTime(long maxIdleTime) {
+                this.maxIdleTime = maxIdleTime;
+            }
+
+            public Map<String, Service> getServices() {
+                return services;
+            }
+
+            public void setServices(Map<String, Service> services) {
+                this.services = services;
+            }
+
+            public static class Service {
+
+                private Integer maxTotalConnections;
+
+                private Integer maxConnectionsPerHost;
+
+                private Integer connectTimeout;
+
+                private Integer readTimeout;
+
+                private Integer connectionRequestTimeout;
+
+                private Long keepAlive;
+
+                private Long maxIdleTime;
+
+                public Integer getMaxTotalConnections() {
+                    return maxTotalConnections;
+                }
+
+                public void setMaxTotalConnections(Integer maxTotalConnections) {
+                    this.maxTotalConnections = maxTotalConnections;
+                }
+
+                public Integer getMaxConnectionsPerHost() {
+                    return maxConnectionsPerHost;
+                }
+
+                public void setMaxConnectionsPerHost(Integer maxConnectionsPerHost) {
+                    this.maxConnectionsPerHost = maxConnectionsPerHost;
+                }
+
+                public Integer getConnectTimeout() {
+                    return connectTimeout;
+                }
+
+                public void setConnectTimeout(Integer connectTimeout) {
+                    this.connectTimeout = connectTimeout;
+                }
+
+                public Integer getReadTimeout() {
+                    return readTimeout;
+                }
+
+                public void setReadTimeout(Integer readTimeout) {
+                    this.readTimeout = readTimeout;
+                }
+
+                public Integer getConnectionRequestTimeout() {
+                    return connectionRequestTimeout;
+                }
+
+                public void setConnectionRequestTimeout(Integer connectionRequestTimeout) {
+                    this.connectionRequestTimeout = connectionRequestTimeout;
+                }
+
+                public Long getKeepAlive() {
+                    return keepAlive;
+                }
+
+                public void setKeepAlive(Long keepAlive) {
+                    this.keepAlive = keepAlive;
+                }
+
+                public Long getMaxIdleTime() {
+                    return maxIdleTime;
+                }
+
+                public void setMaxIdleTime(Long maxIdleTime) {
+                    this.maxIdleTime = maxIdleTime;
+                }
+            }
+        }
+
+        public static class RequestCoalescing {
+
+            private boolean enabled = false;
+
+            private long timeout = 5000L;
+
+            private int maxResponseSize = 1024 * 1024;
+
+            private List<String> routes = new ArrayList<>();
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public long getTimeout() {
+                return timeout;
+            }
+
+            public void setTimeout(long timeout) {
+                this.timeout = timeout;
+            }
+
+            public int getMaxResponseSize() {
+                return maxResponseSize;
+            }
+
+            public void setMaxResponseSize(int maxResponseSize) {
+                this.maxResponseSize = maxResponseSize;
+            }
+
+            public List<String> getRoutes() {
+                return routes;
+            }
+
+            public void setRoutes(List<String> routes) {
+                this.routes = routes;
+            }
+        }
+
         public static class RateLimiting {
 
             private boolean enabled = false;
 
+            private String backend = "cassandra";
+
             private long limit = 100000L;
 
+            private long checkTimeout = 5L;
+
+            private Map<String, Long> limits = new LinkedHashMap<>();
+
+            private Map<String, Policy> policies = new LinkedHashMap<>();
+
+            private final Local local = new Local();
+
+            private final WriteBehind writeBehind = new WriteBehind();
+
             public boolean isEnabled() {
                 return enabled;
             }
@@ -542,6 +1203,14 @@ public class JHipsterProperties {
                 this.enabled = enabled;
             }
 
+            public String getBackend() {
+                return backend;
+            }
+
+            public void setBackend(String backend) {
+                this.backend = backend;
+            }
+
             public long getLimit() {
                 return this.limit;
             }
@@ -549,6 +1218,157 @@ public class JHipsterProperties {
             public void setLimit(long limit) {
                 this.limit = limit;
             }
+
+            public long getCheckTimeout() {
+                return checkTimeout;
+            }
+
+            public void setCheckTimeout(long checkTimeout) {
+                this.checkTimeout = checkTimeout;
+            }
+
+            public Map<String, Long> getLimits() {
+                return limits;
+            }
+
+            public void setLimits(Map<String, Long> limits) {
+                this.limits = limits;
+            }
+
+            public Map<String, Policy> getPolicies() {
+                return policies;
+            }
+
+            public void setPolicies(Map<String, Policy> policies) {
+                this.policies = policies;
+            }
+
+            public Local getLocal() {
+                return local;
+            }
+
+            public WriteBehind getWriteBehind() {
+                return writeBehind;
+            }
+
+            public static class Policy {
+
+                private String route;
+
+                private String path;
+
+                private String authority;
+
+                private boolean exempt = false;
+
+                private Map<String, Long> limits = new LinkedHashMap<>();
+
+                public String getRoute() {
+                    return route;
+                }
+
+                public void setRoute(String route) {
+                    this.route = route;
+                }
+
+                public String getPath() {
+                    return path;
+                }
+
+                public void setPath(String path) {
+                    this.path = path;
+                }
+
+                public String getAuthority() {
+                    return authority;
+                }
+
+                public void setAuthority(String authority) {
+                    this.authority = authority;
+                }
+
+                public boolean isExempt() {
+                    return exempt;
+                }
+
+                public void setExempt(boolean exempt) {
+                    this.exempt = exempt;
+                }
+
+                public Map<String, Long> getLimits() {
+                    return limits;
+                }
+
+                public void setLimits(Map<String, Long> limits) {
+                    this.limits = limits;
+                }
+            }
+
+            public static class Local {
+
+                private boolean enabled = false;
+
+                private long flushInterval = 1000L;
+
+                public boolean isEnabled() {
+                    return enabled;
+                }
+
+                public void setEnabled(boolean enabled) {
+                    this.enabled = enabled;
+                }
+
+                public long getFlushInterval() {
+                    return flushInterval;
+                }
+
+                public void setFlushInterval(long flushInterval) {
+                    this.flushInterval = flushInterval;
+                }
+            }
+
+            public static class WriteBehind {
+
+                private long flushInterval = 100L;
+
+                private int flushThreshold = 10000;
+
+                private int maxPendingCounters = 100000;
+
+                private int maxInFlightWrites = 256;
+
+                public long getFlushInterval() {
+                    return flushInterval;
+                }
+
+                public void setFlushInterval(long flushInterval) {
+                    this.flushInterval = flushInterval;
+                }
+
+                public int getFlushThreshold() {
+                    return flushThreshold;
+                }
+
+                public void setFlushThreshold(int flushThreshold) {
+                    this.flushThreshold = flushThreshold;
+                }
+
+                public int getMaxPendingCounters() {
+                    return maxPendingCounters;
+                }
+
+                public void setMaxPendingCounters(int maxPendingCounters) {
+                    this.maxPendingCounters = maxPendingCounters;
+                }
+
+                public int getMaxInFlightWrites() {
+                    return maxInFlightWrites;
+                }
+
+                public void setMaxInFlightWrites(int maxInFlightWrites) {
+                    this.maxInFlightWrites = maxInFlightWrites;
+                }
+            }
         }
     }
 
@@ -1,6 +1,7 @@
 package com.renmaituan.shop.config.apidoc;
 
 import com.renmaituan.shop.config.Constants;
+import com.renmaituan.shop.service.RouteSnapshotService;
 import java.util.ArrayList;
 import java.util.List;
 import javax.inject.Inject;
@@ -9,9 +10,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.*;
-import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.cloud.netflix.zuul.filters.Route;
-import org.springframework.cloud.netflix.zuul.filters.RouteLocator;
 import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Component;
 
@@ -29,10 +28,7 @@ public class GatewaySwaggerResourcesProvider implements SwaggerResourcesProvider
     private final Logger log = LoggerFactory.getLogger(GatewaySwaggerResourcesProvider.class);
 
     @Inject
-    private RouteLocator routeLocator;
-
-    @Inject
-    private DiscoveryClient discoveryClient;
+    private RouteSnapshotService routeSnapshotService;
 
     @Override
     public List<SwaggerResource> get() {
@@ -42,7 +38,7 @@ public class GatewaySwaggerResourcesProvider implements SwaggerResourcesProvider
         resources.add(swaggerResource("default", "/v2/api-docs"));
 
         //Add the registered microservices swagger docs as additional swagger resources
-        List<Route> routes = routeLocator.getRoutes();
+        List<Route> routes = routeSnapshotService.getSnapshot().getRoutes();
         routes.forEach(route -> {
             resources.add(swaggerResource(route.getId(), route.getFullPath().replace("**", "v2/api-docs")));
         });
@@ -6,7 +6,7 @@ import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.cassandra.CassandraProperties;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -27,7 +27,8 @@ import com.datastax.driver.extras.codecs.jdk8.LocalDateCodec;
 import com.datastax.driver.extras.codecs.jdk8.ZonedDateTimeCodec;
 
 @Configuration
-@ConditionalOnProperty("jhipster.gateway.rate-limiting.enabled")
+@ConditionalOnExpression("${jhipster.gateway.rate-limiting.enabled:false} && " +
+    "'${jhipster.gateway.rate-limiting.backend:cassandra}' == 'cassandra'")
 @EnableConfigurationProperties(CassandraProperties.class)
 public class CassandraConfiguration {
 
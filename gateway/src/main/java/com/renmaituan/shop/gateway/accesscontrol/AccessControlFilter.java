@@ -8,8 +8,13 @@ import javax.inject.Inject;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cloud.client.discovery.event.HeartbeatEvent;
+import org.springframework.cloud.client.discovery.event.InstanceRegisteredEvent;
+import org.springframework.cloud.context.scope.refresh.RefreshScopeRefreshedEvent;
+import org.springframework.cloud.netflix.zuul.RoutesRefreshedEvent;
 import org.springframework.cloud.netflix.zuul.filters.Route;
 import org.springframework.cloud.netflix.zuul.filters.RouteLocator;
+import org.springframework.context.event.EventListener;
 import org.springframework.http.HttpStatus;
 
 import com.netflix.zuul.ZuulFilter;
@@ -17,6 +22,9 @@ import com.netflix.zuul.context.RequestContext;
 
 /**
  * Zuul filter for restricting access to backend micro-services endpoints.
+ * <p>
+ * The routes and their authorized endpoints are compiled into prefix tries, so that checking a request does
+ * not depend on the number of routes.
  */
 public class AccessControlFilter extends ZuulFilter {
 
@@ -28,6 +36,8 @@ public class AccessControlFilter extends ZuulFilter {
     @Inject
     private JHipsterProperties jHipsterProperties;
 
+    private volatile PrefixTrie<RouteAccess> routeAccessIndex;
+
     @Override
     public String filterType() {
         return "pre";
@@ -46,43 +56,71 @@ public class AccessControlFilter extends ZuulFilter {
         String requestUri = RequestContext.getCurrentContext().getRequest().getRequestURI();
 
         // If the request Uri does not start with the path of the authorized endpoints, we block the request
-        for (Route route : routeLocator.getRoutes()) {
-            String serviceUrl = route.getFullPath();
-            String serviceName = route.getId();
-
-            // If this route correspond to the current request URI
-            // We do a substring to remove the "**" at the end of the route URL
-            if (requestUri.startsWith(serviceUrl.substring(0, serviceUrl.length() - 2))) {
-				return !isAuthorizedRequest(serviceUrl, serviceName, requestUri);
-            }
+        RouteAccess routeAccess = getRouteAccessIndex().find(requestUri);
+        if (routeAccess == null) {
+            return true;
+        }
+        // If the authorized endpoints list was left empty for this route, all access are allowed
+        if (routeAccess.authorizedEndpoints == null) {
+            log.debug("Access Control: allowing access for {}, as no access control policy has been set up for " +
+                "service: {}", requestUri, routeAccess.serviceName);
+            return false;
+        }
+        String gatewayEndpoint = routeAccess.authorizedEndpoints.find(requestUri);
+        if (gatewayEndpoint != null) {
+            log.debug("Access Control: allowing access for {}, as it matches the following authorized " +
+                "microservice endpoint: {}", requestUri, gatewayEndpoint);
+            return false;
         }
         return true;
     }
 
-    private boolean isAuthorizedRequest(String serviceUrl, String serviceName, String requestUri) {
+    /**
+     * Discard the compiled routes, when the routes or the authorized endpoints may have changed: they are
+     * compiled again on the next request.
+     * <p>
+     * Routes discovered with Eureka are refreshed on heartbeats, without any {@link RoutesRefreshedEvent}.
+     */
+    @EventListener({ RoutesRefreshedEvent.class, RefreshScopeRefreshedEvent.class, InstanceRegisteredEvent.class,
+        HeartbeatEvent.class })
+    public void resetRouteAccessIndex() {
+        routeAccessIndex = null;
+    }
+
+    private PrefixTrie<RouteAccess> getRouteAccessIndex() {
+        PrefixTrie<RouteAccess> index = routeAccessIndex;
+        if (index == null) {
+            index = compileRouteAccessIndex();
+            routeAccessIndex = index;
+        }
+        return index;
+    }
+
+    private PrefixTrie<RouteAccess> compileRouteAccessIndex() {
         Map<String, List<String>> authorizedMicroservicesEndpoints = jHipsterProperties.getGateway()
             .getAuthorizedMicroservicesEndpoints();
 
-        // If the authorized endpoints list was left empty for this route, all access are allowed
-        if (authorizedMicroservicesEndpoints.get(serviceName) == null) {
-            log.debug("Access Control: allowing access for {}, as no access control policy has been set up for " +
-                "service: {}", requestUri, serviceName);
-            return true;
-        } else {
+        List<Route> routes = routeLocator.getRoutes();
+        PrefixTrie.Builder<RouteAccess> index = PrefixTrie.builder();
+        for (Route route : routes) {
+            String serviceUrl = route.getFullPath();
+            String serviceName = route.getId();
             List<String> authorizedEndpoints = authorizedMicroservicesEndpoints.get(serviceName);
-
-            // Go over the authorized endpoints to control that the request URI matches it
-            for (String endpoint : authorizedEndpoints) {
-                // We do a substring to remove the "**/" at the end of the route URL
-                String gatewayEndpoint = serviceUrl.substring(0, serviceUrl.length() - 3) + endpoint;
-                if (requestUri.startsWith(gatewayEndpoint)) {
-                    log.debug("Access Control: allowing access for {}, as it matches the following authorized " +
-                        "microservice endpoint: {}", requestUri, gatewayEndpoint);
-                    return true;
+            PrefixTrie<String> endpoints = null;
+            if (authorizedEndpoints != null) {
+                PrefixTrie.Builder<String> builder = PrefixTrie.builder();
+                for (String endpoint : authorizedEndpoints) {
+                    // We do a substring to remove the "**/" at the end of the route URL
+                    String gatewayEndpoint = serviceUrl.substring(0, serviceUrl.length() - 3) + endpoint;
+                    builder.put(gatewayEndpoint, gatewayEndpoint);
                 }
+                endpoints = builder.build();
             }
+            // We do a substring to remove the "**" at the end of the route URL
+            index.put(serviceUrl.substring(0, serviceUrl.length() - 2), new RouteAccess(serviceName, endpoints));
         }
-        return false;
+        log.debug("Access Control: compiled the authorized endpoints of {} routes", routes.size());
+        return index.build();
     }
 
     @Override
@@ -95,4 +133,16 @@ public class AccessControlFilter extends ZuulFilter {
         log.debug("Access Control: filtered unauthorized access on endpoint {}", ctx.getRequest().getRequestURI());
         return null;
     }
+
+    private static final class RouteAccess {
+
+        private final String serviceName;
+
+        private final PrefixTrie<String> authorizedEndpoints;
+
+        RouteAccess(String serviceName, PrefixTrie<String> authorizedEndpoints) {
+            this.serviceName = serviceName;
+            this.authorizedEndpoints = authorizedEndpoints;
+        }
+    }
 }
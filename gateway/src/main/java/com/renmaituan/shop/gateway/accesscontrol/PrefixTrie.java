@@ -0,0 +1,120 @@
+package com.renmaituan.shop.gateway.accesscontrol;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable trie of path prefixes, each mapped to a value.
+ * <p>
+ * Finding the prefixes of a path walks its characters once, with a binary search among the children of each
+ * node, and does not allocate anything. When several prefixes of a path are in the trie, the value that was
+ * put first wins, so that the routes keep being matched in the order they are declared.
+ */
+final class PrefixTrie<T> {
+
+    private final Node<T> root;
+
+    private PrefixTrie(Node<T> root) {
+        this.root = root;
+    }
+
+    static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * @return the value of the first prefix of the path that was put in the trie, or null if none is a prefix
+     * of the path
+     */
+    T find(String path) {
+        Node<T> node = root;
+        T match = node.value;
+        int matchRank = node.rank;
+        for (int i = 0; i < path.length(); i++) {
+            node = node.getChild(path.charAt(i));
+            if (node == null) {
+                break;
+            }
+            if (node.value != null && node.rank < matchRank) {
+                match = node.value;
+                matchRank = node.rank;
+            }
+        }
+        return match;
+    }
+
+    private static final class Node<T> {
+
+        private final char[] keys;
+
+        private final Node<T>[] children;
+
+        private final T value;
+
+        private final int rank;
+
+        Node(char[] keys, Node<T>[] children, T value, int rank) {
+            this.keys = keys;
+            this.children = children;
+            this.value = value;
+            this.rank = rank;
+        }
+
+        Node<T> getChild(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            return index < 0 ? null : children[index];
+        }
+    }
+
+    static final class Builder<T> {
+
+        private final BuilderNode<T> root = new BuilderNode<>();
+
+        private int rank;
+
+        private Builder() {
+        }
+
+        /**
+         * Add a prefix, unless it was already added with another value.
+         */
+        Builder<T> put(String prefix, T value) {
+            BuilderNode<T> node = root;
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.children.computeIfAbsent(prefix.charAt(i), c -> new BuilderNode<>());
+            }
+            if (node.value == null) {
+                node.value = value;
+                node.rank = rank++;
+            }
+            return this;
+        }
+
+        PrefixTrie<T> build() {
+            return new PrefixTrie<>(root.build());
+        }
+    }
+
+    private static final class BuilderNode<T> {
+
+        private final TreeMap<Character, BuilderNode<T>> children = new TreeMap<>();
+
+        private T value;
+
+        private int rank = Integer.MAX_VALUE;
+
+        @SuppressWarnings("unchecked")
+        Node<T> build() {
+            char[] keys = new char[children.size()];
+            Node<T>[] nodes = new Node[children.size()];
+            int i = 0;
+            for (Map.Entry<Character, BuilderNode<T>> child : children.entrySet()) {
+                keys[i] = child.getKey();
+                nodes[i] = child.getValue().build();
+                i++;
+            }
+            return new Node<>(keys, nodes, value, rank);
+        }
+    }
+}
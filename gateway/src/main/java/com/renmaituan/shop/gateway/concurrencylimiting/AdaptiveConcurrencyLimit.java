@@ -0,0 +1,122 @@
+package com.renmaituan.shop.gateway.concurrencylimiting;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limit of the concurrent requests to a route, adjusted from their latency.
+ * <p>
+ * The latencies are averaged over windows of requests, and compared to the minimum latency, which is the
+ * latency without queueing: while they stay close, the limit grows by its square root per window, and when they
+ * increase the limit shrinks in proportion (this is a gradient algorithm, as in TCP Vegas). When a request of a
+ * window fails with a server error, the limit is cut by 10%.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private static final double MIN_LATENCY_DRIFT = 1.01;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final double smoothing;
+
+    private final double tolerance;
+
+    private final int windowSize;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double limit;
+
+    private double minLatency;
+
+    private int samples;
+
+    private long latencySum;
+
+    private int maxInFlight;
+
+    private boolean overloaded;
+
+    /**
+     * @param smoothing the weight of a new limit, between 0 and 1
+     * @param tolerance the latency increase ratio which is tolerated before shrinking the limit
+     * @param windowSize the number of requests between limit updates
+     */
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double smoothing, double tolerance,
+        int windowSize) {
+
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.smoothing = smoothing;
+        this.tolerance = tolerance;
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * @return true if the request can be sent, it must then be released
+     */
+    public boolean tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * @param latency the latency of the request, in nanoseconds
+     * @param failed whether the request failed because the micro-service is overloaded
+     */
+    public void release(long latency, boolean failed) {
+        int concurrency = inFlight.getAndDecrement();
+        synchronized (this) {
+            samples++;
+            latencySum += latency;
+            maxInFlight = Math.max(maxInFlight, concurrency);
+            overloaded |= failed;
+            if (samples >= windowSize) {
+                updateLimit((double) latencySum / samples);
+                samples = 0;
+                latencySum = 0;
+                maxInFlight = 0;
+                overloaded = false;
+            }
+        }
+    }
+
+    private void updateLimit(double latency) {
+        double currentLimit = limit;
+        if (overloaded) {
+            limit = Math.max(minLimit, currentLimit * BACKOFF_RATIO);
+            return;
+        }
+        if (minLatency == 0 || latency < minLatency) {
+            minLatency = latency;
+        }
+        if (maxInFlight < currentLimit / 2) {
+            // the limit was not reached, so the latency says nothing about a higher limit, but it has little
+            // queueing: the minimum latency drifts towards it, so that a lasting latency increase is accepted
+            minLatency = Math.min(latency, minLatency * MIN_LATENCY_DRIFT);
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * minLatency / latency));
+        double newLimit = currentLimit * gradient + Math.sqrt(currentLimit);
+        newLimit = currentLimit * (1 - smoothing) + newLimit * smoothing;
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
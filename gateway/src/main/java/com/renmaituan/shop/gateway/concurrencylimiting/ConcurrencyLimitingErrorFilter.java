@@ -0,0 +1,13 @@
+package com.renmaituan.shop.gateway.concurrencylimiting;
+
+/**
+ * Zuul error filter releasing the requests accepted by the {@link ConcurrencyLimitingPreFilter} when a filter
+ * fails, as the {@link ConcurrencyLimitingPostFilter} may then not run. The failure is an overload signal.
+ */
+public class ConcurrencyLimitingErrorFilter extends ConcurrencyLimitingPostFilter {
+
+    @Override
+    public String filterType() {
+        return "error";
+    }
+}
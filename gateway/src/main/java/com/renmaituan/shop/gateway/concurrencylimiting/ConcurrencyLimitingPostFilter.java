@@ -0,0 +1,44 @@
+package com.renmaituan.shop.gateway.concurrencylimiting;
+
+import org.springframework.http.HttpStatus;
+
+import com.netflix.zuul.ZuulFilter;
+import com.netflix.zuul.context.RequestContext;
+
+/**
+ * Zuul filter releasing the requests accepted by the {@link ConcurrencyLimitingPreFilter}, with their latency.
+ * <p>
+ * Failures to reach the micro-service and responses with status 503 (Service Unavailable) or 504 (Gateway
+ * Timeout) are overload signals, which shrink the limit. Each request is released once: by this filter, or by
+ * the {@link ConcurrencyLimitingErrorFilter} when a filter fails, as Zuul then skips the remaining post filters.
+ */
+public class ConcurrencyLimitingPostFilter extends ZuulFilter {
+
+    @Override
+    public String filterType() {
+        return "post";
+    }
+
+    @Override
+    public int filterOrder() {
+        return 0;
+    }
+
+    @Override
+    public boolean shouldFilter() {
+        return RequestContext.getCurrentContext().containsKey(ConcurrencyLimitingPreFilter.ROUTE_LIMIT);
+    }
+
+    @Override
+    public Object run() {
+        RequestContext ctx = RequestContext.getCurrentContext();
+        ConcurrencyLimits.RouteLimit routeLimit =
+            (ConcurrencyLimits.RouteLimit) ctx.remove(ConcurrencyLimitingPreFilter.ROUTE_LIMIT);
+        long latency = System.nanoTime() - (long) ctx.remove(ConcurrencyLimitingPreFilter.REQUEST_START);
+        int status = ctx.getResponseStatusCode();
+        boolean overloaded = ctx.getThrowable() != null || ctx.containsKey("error.status_code") ||
+            status == HttpStatus.SERVICE_UNAVAILABLE.value() || status == HttpStatus.GATEWAY_TIMEOUT.value();
+        routeLimit.getLimit().release(latency, overloaded);
+        return null;
+    }
+}
@@ -0,0 +1,69 @@
+package com.renmaituan.shop.gateway.concurrencylimiting;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import com.netflix.zuul.ZuulFilter;
+import com.netflix.zuul.context.RequestContext;
+
+/**
+ * Zuul filter refusing the requests to a route with status 503 (Service Unavailable) when it already has as
+ * many requests in flight as its {@link AdaptiveConcurrencyLimit}.
+ * <p>
+ * The requests are refused at once instead of queuing in front of a slow micro-service; the latency of the
+ * accepted requests is recorded by the {@link ConcurrencyLimitingPostFilter}.
+ */
+public class ConcurrencyLimitingPreFilter extends ZuulFilter {
+
+    static final String ROUTE_LIMIT = "concurrencyLimit";
+
+    static final String REQUEST_START = "concurrencyLimitRequestStart";
+
+    private final Logger log = LoggerFactory.getLogger(ConcurrencyLimitingPreFilter.class);
+
+    private final ConcurrencyLimits concurrencyLimits;
+
+    public ConcurrencyLimitingPreFilter(ConcurrencyLimits concurrencyLimits) {
+        this.concurrencyLimits = concurrencyLimits;
+    }
+
+    @Override
+    public String filterType() {
+        return "pre";
+    }
+
+    @Override
+    public int filterOrder() {
+        // last, so that the requests answered by the gateway itself do not count
+        return 40;
+    }
+
+    @Override
+    public boolean shouldFilter() {
+        RequestContext ctx = RequestContext.getCurrentContext();
+        return ctx.sendZuulResponse() && ctx.get("proxy") != null;
+    }
+
+    @Override
+    public Object run() {
+        RequestContext ctx = RequestContext.getCurrentContext();
+        String routeId = (String) ctx.get("proxy");
+        ConcurrencyLimits.RouteLimit routeLimit = concurrencyLimits.getLimit(routeId);
+        if (routeLimit.getLimit().tryAcquire()) {
+            ctx.set(ROUTE_LIMIT, routeLimit);
+            ctx.set(REQUEST_START, System.nanoTime());
+        } else {
+            log.debug("Concurrency limit of {} reached: {} requests", routeId, routeLimit.getLimit().getLimit());
+            routeLimit.markShed();
+            ctx.setResponseStatusCode(HttpStatus.SERVICE_UNAVAILABLE.value());
+            ctx.getResponse().setHeader(HttpHeaders.RETRY_AFTER, "1");
+            if (ctx.getResponseBody() == null) {
+                ctx.setResponseBody("Service overloaded");
+            }
+            ctx.setSendZuulResponse(false);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,83 @@
+package com.renmaituan.shop.gateway.concurrencylimiting;
+
+import com.renmaituan.shop.config.JHipsterProperties;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Holds the {@link AdaptiveConcurrencyLimit} of each route.
+ * <p>
+ * The "gateway.concurrency-limiting.[route]" metrics are the "limit" and "in-flight" gauges, and the "shed"
+ * meter of the requests refused with status 503 (Service Unavailable).
+ */
+public class ConcurrencyLimits {
+
+    private final ConcurrentMap<String, RouteLimit> limits = new ConcurrentHashMap<>();
+
+    private final JHipsterProperties.Gateway.ConcurrencyLimiting properties;
+
+    private final MetricRegistry metricRegistry;
+
+    public ConcurrencyLimits(JHipsterProperties.Gateway.ConcurrencyLimiting properties,
+        MetricRegistry metricRegistry) {
+
+        this.properties = properties;
+        this.metricRegistry = metricRegistry;
+    }
+
+    public RouteLimit getLimit(String routeId) {
+        RouteLimit routeLimit = limits.get(routeId);
+        if (routeLimit == null) {
+            routeLimit = limits.computeIfAbsent(routeId, RouteLimit::new);
+        }
+        return routeLimit;
+    }
+
+    /**
+     * @return the limits of the routes which have been called, by route ID
+     */
+    public Map<String, RouteLimit> getLimits() {
+        return Collections.unmodifiableMap(limits);
+    }
+
+    /**
+     * Concurrency limit and metrics of a route.
+     */
+    public final class RouteLimit {
+
+        private final AdaptiveConcurrencyLimit limit;
+
+        private final Meter shed;
+
+        private RouteLimit(String routeId) {
+            this.limit = new AdaptiveConcurrencyLimit(properties.getInitialLimit(), properties.getMinLimit(),
+                properties.getMaxLimit(), properties.getSmoothing(), properties.getTolerance(),
+                properties.getWindowSize());
+            String prefix = MetricRegistry.name("gateway.concurrency-limiting", routeId);
+            this.shed = metricRegistry.meter(prefix + ".shed");
+            metricRegistry.remove(prefix + ".limit");
+            metricRegistry.register(prefix + ".limit", (Gauge<Integer>) limit::getLimit);
+            metricRegistry.remove(prefix + ".in-flight");
+            metricRegistry.register(prefix + ".in-flight", (Gauge<Integer>) limit::getInFlight);
+        }
+
+        public AdaptiveConcurrencyLimit getLimit() {
+            return limit;
+        }
+
+        public long getShedCount() {
+            return shed.getCount();
+        }
+
+        void markShed() {
+            shed.mark();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.renmaituan.shop.gateway.hedging;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the hedged requests of a route to a percentage of its requests.
+ * <p>
+ * Each request deposits a fraction of a hedged request in the budget, and each hedged request withdraws a
+ * whole one. The balance is capped, so that the hedged requests saved while the route was fast cannot all be
+ * spent at once when it becomes slow.
+ */
+class HedgingBudget {
+
+    private static final long UNIT = 1000;
+
+    private final long deposit;
+
+    private final long maxBalance;
+
+    private final AtomicLong balance = new AtomicLong();
+
+    HedgingBudget(double percent, int maxBalance) {
+        this.deposit = Math.round(percent * UNIT / 100);
+        this.maxBalance = maxBalance * UNIT;
+    }
+
+    void deposit() {
+        balance.updateAndGet(current -> Math.min(maxBalance, current + deposit));
+    }
+
+    boolean tryWithdraw() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < UNIT) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - UNIT));
+        return true;
+    }
+}
@@ -0,0 +1,422 @@
+package com.renmaituan.shop.gateway.hedging;
+
+import com.renmaituan.shop.config.JHipsterProperties;
+import com.renmaituan.shop.gateway.loadbalancing.InstanceStats;
+import com.renmaituan.shop.gateway.loadbalancing.InstanceStatsFilter;
+import com.renmaituan.shop.gateway.loadbalancing.InstanceStatsRegistry;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.http.Header;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.netflix.ribbon.ServerIntrospector;
+import org.springframework.cloud.netflix.ribbon.SpringClientFactory;
+import org.springframework.cloud.netflix.zuul.filters.ProxyRequestHelper;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.util.UriUtils;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.netflix.loadbalancer.ILoadBalancer;
+import com.netflix.loadbalancer.Server;
+import com.netflix.zuul.ZuulFilter;
+import com.netflix.zuul.context.RequestContext;
+
+/**
+ * Zuul filter proxying the GET requests of the routes listed in "jhipster.gateway.hedging.routes", with hedged
+ * requests.
+ * <p>
+ * When the micro-service instance has not answered within the 95th percentile of the latency of the first
+ * requests sent to the route instances, the same request is sent to another instance: the first response is sent to the client, and the other request is
+ * cancelled. The hedged requests are limited to "jhipster.gateway.hedging.budget-percent" of the route
+ * requests, see {@link HedgingBudget}.
+ * <p>
+ * These requests do not go through Hystrix and the Ribbon retries. They are sent with the HTTP client of the
+ * micro-service when "jhipster.gateway.http-client.enabled" is set, or else with an HTTP client using the
+ * "jhipster.gateway.http-client" default settings, so they always have a pool and timeouts. When all the
+ * hedging threads are busy, the request is left to the RibbonRoutingFilter.
+ * <p>
+ * With the latency-aware load balancing, each request sent to an instance is recorded in its
+ * {@link InstanceStats}, except the cancelled ones which did not complete.
+ * The "gateway.hedging.[route]" metrics are the "latency" (of the responses sent to the clients) and
+ * "primary-latency" (of the first requests, which gives the hedging delay) timers, and the "hedged", "won" (the
+ * hedged request answered first), "cancelled" and "bypassed" (no hedging thread was available) meters.
+ */
+public class HedgingRoutingFilter extends ZuulFilter {
+
+    private final Logger log = LoggerFactory.getLogger(HedgingRoutingFilter.class);
+
+    private final ConcurrentMap<String, RouteHedging> routes = new ConcurrentHashMap<>();
+
+    private final ProxyRequestHelper helper;
+
+    private final SpringClientFactory clientFactory;
+
+    private final CloseableHttpClient defaultHttpClient;
+
+    private final Executor executor;
+
+    private final JHipsterProperties.Gateway.Hedging properties;
+
+    private final MetricRegistry metricRegistry;
+
+    private final InstanceStatsRegistry instanceStatsRegistry;
+
+    /**
+     * @param instanceStatsRegistry the stats of the instances, or null without the latency-aware load balancing
+     */
+    public HedgingRoutingFilter(ProxyRequestHelper helper, SpringClientFactory clientFactory, Executor executor,
+        JHipsterProperties.Gateway gatewayProperties, MetricRegistry metricRegistry,
+        InstanceStatsRegistry instanceStatsRegistry) {
+
+        this.helper = helper;
+        this.clientFactory = clientFactory;
+        this.executor = executor;
+        this.properties = gatewayProperties.getHedging();
+        this.metricRegistry = metricRegistry;
+        this.instanceStatsRegistry = instanceStatsRegistry;
+
+        JHipsterProperties.Gateway.HttpClient httpClient = gatewayProperties.getHttpClient();
+        this.defaultHttpClient = HttpClients.custom()
+            .setMaxConnTotal(httpClient.getMaxTotalConnections())
+            .setMaxConnPerRoute(httpClient.getMaxConnectionsPerHost())
+            .setDefaultRequestConfig(RequestConfig.custom()
+                .setConnectTimeout(httpClient.getConnectTimeout())
+                .setSocketTimeout(httpClient.getReadTimeout())
+                .setConnectionRequestTimeout(httpClient.getConnectionRequestTimeout())
+                .build())
+            .disableCookieManagement()
+            // gzipped responses are sent as they are to the clients, and decompressed by the gateway only if needed
+            .disableContentCompression()
+            .useSystemProperties()
+            .build();
+    }
+
+    @PreDestroy
+    public void destroy() throws IOException {
+        defaultHttpClient.close();
+    }
+
+    @Override
+    public String filterType() {
+        return "route";
+    }
+
+    @Override
+    public int filterOrder() {
+        // before the RibbonRoutingFilter
+        return 5;
+    }
+
+    @Override
+    public boolean shouldFilter() {
+        RequestContext ctx = RequestContext.getCurrentContext();
+        return ctx.sendZuulResponse() && ctx.getRouteHost() == null && ctx.get("serviceId") != null &&
+            "GET".equals(ctx.getRequest().getMethod()) && properties.getRoutes().contains(ctx.get("proxy"));
+    }
+
+    @Override
+    public Object run() {
+        RequestContext ctx = RequestContext.getCurrentContext();
+        String serviceId = (String) ctx.get("serviceId");
+        RouteHedging route = routes.computeIfAbsent((String) ctx.get("proxy"), RouteHedging::new);
+        ILoadBalancer loadBalancer = clientFactory.getLoadBalancer(serviceId);
+        Server primary = loadBalancer == null ? null : loadBalancer.chooseServer(serviceId);
+        // each attempt is tracked below, the request must not be tracked for the chosen instance only
+        InstanceStatsFilter.untrack(ctx);
+        if (primary == null) {
+            setError(ctx, HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                new IllegalStateException("No instance available for " + serviceId));
+            return null;
+        }
+
+        long start = System.nanoTime();
+        List<Attempt> attempts = new ArrayList<>(2);
+        CompletionService<Attempt> completionService = new ExecutorCompletionService<>(executor);
+        try {
+            try {
+                attempts.add(submit(completionService, new Attempt(serviceId, primary, ctx, route.primaryLatency)));
+            } catch (RejectedExecutionException e) {
+                log.debug("No hedging thread available, proxying the request to {} with Ribbon", serviceId);
+                route.bypassed.mark();
+                return null;
+            }
+            route.budget.deposit();
+            Future<Attempt> completed = null;
+            long delay = route.getDelayNanos(start);
+            if (delay >= 0) {
+                completed = completionService.poll(delay, TimeUnit.NANOSECONDS);
+                if (completed == null) {
+                    Server secondary = chooseOtherServer(loadBalancer, primary);
+                    if (secondary != null && route.budget.tryWithdraw()) {
+                        log.debug("Hedging the request to {}: {} did not answer", serviceId, primary.getHostPort());
+                        try {
+                            attempts.add(submit(completionService, new Attempt(serviceId, secondary, ctx, null)));
+                            route.hedged.mark();
+                        } catch (RejectedExecutionException e) {
+                            log.debug("Could not hedge the request to {}: {}", serviceId, e.getMessage());
+                        }
+                    }
+                }
+            }
+
+            Attempt winner = null;
+            Throwable failure = null;
+            for (int i = 0; i < attempts.size() && winner == null; i++) {
+                Future<Attempt> future = completed != null ? completed : completionService.take();
+                completed = null;
+                try {
+                    winner = future.get();
+                } catch (ExecutionException e) {
+                    failure = e.getCause();
+                }
+            }
+            if (winner == null) {
+                setError(ctx, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, failure);
+                return null;
+            }
+            route.latency.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (winner != attempts.get(0)) {
+                route.won.mark();
+            }
+            attempts.remove(winner);
+            for (Attempt attempt : attempts) {
+                attempt.cancel(true);
+                route.cancelled.mark();
+            }
+            attempts.clear();
+            setResponse(ctx, winner.response);
+        } catch (IOException e) {
+            setError(ctx, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            setError(ctx, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, e);
+        } finally {
+            attempts.forEach(attempt -> attempt.cancel(false));
+        }
+        return null;
+    }
+
+    private Attempt submit(CompletionService<Attempt> completionService, Attempt attempt) {
+        attempt.started();
+        try {
+            completionService.submit(attempt);
+        } catch (RejectedExecutionException e) {
+            attempt.cancel(false);
+            throw e;
+        }
+        return attempt;
+    }
+
+    private Server chooseOtherServer(ILoadBalancer loadBalancer, Server server) {
+        List<Server> servers = new ArrayList<>(loadBalancer.getReachableServers());
+        servers.removeIf(other -> other.getHostPort().equals(server.getHostPort()));
+        return servers.isEmpty() ? null : servers.get(ThreadLocalRandom.current().nextInt(servers.size()));
+    }
+
+    private void setResponse(RequestContext ctx, CloseableHttpResponse response) throws IOException {
+        MultiValueMap<String, String> headers = new LinkedMultiValueMap<>();
+        for (Header header : response.getAllHeaders()) {
+            headers.add(header.getName(), header.getValue());
+        }
+        ctx.set("zuulResponse", response);
+        helper.setResponse(response.getStatusLine().getStatusCode(),
+            response.getEntity() == null ? null : response.getEntity().getContent(), headers);
+        ctx.setSendZuulResponse(false);
+    }
+
+    private void setError(RequestContext ctx, int status, Throwable e) {
+        log.warn("Hedged request to {} failed: {}", ctx.get("serviceId"), e == null ? null : e.getMessage());
+        ctx.set("error.status_code", status);
+        ctx.set("error.exception", e);
+        ctx.setSendZuulResponse(false);
+    }
+
+    /**
+     * A request to a micro-service instance.
+     */
+    private class Attempt implements Callable<Attempt> {
+
+        private final CloseableHttpClient httpClient;
+
+        private final HttpGet request;
+
+        private final InstanceStats instanceStats;
+
+        private final Timer latency;
+
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        private long start;
+
+        private volatile CloseableHttpResponse response;
+
+        private volatile boolean cancelled;
+
+        /**
+         * @param latency the timer recording the latency of this attempt, or null
+         */
+        Attempt(String serviceId, Server server, RequestContext ctx, Timer latency)
+            throws UnsupportedEncodingException {
+
+            this.latency = latency;
+            this.instanceStats = instanceStatsRegistry == null ? null :
+                instanceStatsRegistry.getStats(serviceId, server.getHostPort());
+            CloseableHttpClient serviceHttpClient = clientFactory.getInstance(serviceId, CloseableHttpClient.class);
+            this.httpClient = serviceHttpClient == null ? defaultHttpClient : serviceHttpClient;
+            ServerIntrospector serverIntrospector = clientFactory.getInstance(serviceId, ServerIntrospector.class);
+            boolean secure = serverIntrospector != null && serverIntrospector.isSecure(server);
+
+            String uri = (secure ? "https://" : "http://") + server.getHostPort() +
+                UriUtils.encodePath((String) ctx.get("requestURI"), "UTF-8") +
+                helper.getQueryString(helper.buildZuulRequestQueryParams(ctx.getRequest()));
+            this.request = new HttpGet(uri);
+            helper.buildZuulRequestHeaders(ctx.getRequest())
+                .forEach((name, values) -> values.forEach(value -> request.addHeader(name, value)));
+        }
+
+        /**
+         * Count the request as in flight, before it is submitted.
+         */
+        void started() {
+            start = System.nanoTime();
+            if (instanceStats != null) {
+                instanceStats.requestStarted();
+            }
+        }
+
+        @Override
+        public Attempt call() throws IOException {
+            try {
+                response = httpClient.execute(request);
+            } catch (IOException | RuntimeException e) {
+                finished(true);
+                throw e;
+            }
+            finished(response.getStatusLine().getStatusCode() >= HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            if (cancelled) {
+                response.close();
+            }
+            return this;
+        }
+
+        private void finished(boolean failure) {
+            if (finished.compareAndSet(false, true)) {
+                long now = System.nanoTime();
+                if (latency != null) {
+                    latency.update(now - start, TimeUnit.NANOSECONDS);
+                }
+                if (instanceStats != null) {
+                    instanceStats.requestCompleted(now - start, failure, now);
+                }
+            }
+        }
+
+        /**
+         * Abort the request, or discard its response if it has already completed. An aborted request is not
+         * recorded as failed.
+         *
+         * @param outrun true if the other attempt answered first: the latency of this attempt is then recorded
+         * as the time it has waited, a lower bound which keeps it above the hedging delay, so the percentile is
+         * not lowered by the slowest requests being cancelled
+         */
+        void cancel(boolean outrun) {
+            cancelled = true;
+            if (finished.compareAndSet(false, true)) {
+                if (outrun && latency != null) {
+                    latency.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+                if (instanceStats != null) {
+                    instanceStats.requestCancelled();
+                }
+            }
+            request.abort();
+            CloseableHttpResponse discarded = response;
+            if (discarded != null) {
+                try {
+                    discarded.close();
+                } catch (IOException e) {
+                    log.debug("Could not close a cancelled hedged request: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Latency, hedging budget and metrics of a route.
+     */
+    private class RouteHedging {
+
+        private final Timer latency;
+
+        private final Timer primaryLatency;
+
+        private final Meter hedged;
+
+        private final Meter won;
+
+        private final Meter cancelled;
+
+        private final Meter bypassed;
+
+        private final HedgingBudget budget;
+
+        private volatile long delayNanos = -1;
+
+        private volatile long nextRefresh;
+
+        RouteHedging(String routeId) {
+            String prefix = MetricRegistry.name("gateway.hedging", routeId);
+            this.latency = metricRegistry.timer(prefix + ".latency");
+            this.primaryLatency = metricRegistry.timer(prefix + ".primary-latency");
+            this.hedged = metricRegistry.meter(prefix + ".hedged");
+            this.won = metricRegistry.meter(prefix + ".won");
+            this.cancelled = metricRegistry.meter(prefix + ".cancelled");
+            this.bypassed = metricRegistry.meter(prefix + ".bypassed");
+            this.budget = new HedgingBudget(properties.getBudgetPercent(), properties.getMaxBurst());
+            this.nextRefresh = System.nanoTime();
+        }
+
+        /**
+         * The delay is computed from the latency of the first requests only: the responses sent to the clients
+         * include the hedged requests which answered first, and would lower the delay each time a request is hedged.
+         *
+         * @return the delay after which a request is hedged, or -1 if there are not enough latency samples yet;
+         * it is refreshed every second, as computing a percentile is not cheap
+         */
+        long getDelayNanos(long now) {
+            if (now - nextRefresh >= 0) {
+                nextRefresh = now + TimeUnit.SECONDS.toNanos(1);
+                delayNanos = primaryLatency.getCount() < properties.getMinSamples() ? -1 : Math.max(
+                    TimeUnit.MILLISECONDS.toNanos(properties.getMinDelay()),
+                    (long) primaryLatency.getSnapshot().get95thPercentile());
+            }
+            return delayNanos;
+        }
+    }
+}
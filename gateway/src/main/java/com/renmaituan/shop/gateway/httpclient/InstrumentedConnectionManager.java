@@ -0,0 +1,84 @@
+package com.renmaituan.shop.gateway.httpclient;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.renmaituan.shop.gateway.metrics.RouteMetrics;
+
+/**
+ * Connection pool to a micro-service, publishing its state in the {@link MetricRegistry}.
+ * <p>
+ * The "gateway.http-client.[service].pool" metrics are: the "leased", "pending" (threads waiting for a
+ * connection), "available" and "max" gauges, the "acquisition" timer, and the "acquisition-timeouts" meter,
+ * marked when no connection could be leased within the connection request timeout.
+ */
+public class InstrumentedConnectionManager extends PoolingHttpClientConnectionManager {
+
+    private final MetricRegistry metricRegistry;
+
+    private final String prefix;
+
+    private final Timer acquisitions;
+
+    private final Meter acquisitionTimeouts;
+
+    public InstrumentedConnectionManager(String serviceId, MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+        this.prefix = MetricRegistry.name("gateway.http-client", serviceId, "pool");
+        this.acquisitions = metricRegistry.timer(prefix + ".acquisition");
+        this.acquisitionTimeouts = metricRegistry.meter(prefix + ".acquisition-timeouts");
+        registerGauge("leased", () -> getTotalStats().getLeased());
+        registerGauge("pending", () -> getTotalStats().getPending());
+        registerGauge("available", () -> getTotalStats().getAvailable());
+        registerGauge("max", () -> getTotalStats().getMax());
+    }
+
+    private void registerGauge(String name, Gauge<Integer> gauge) {
+        // the Ribbon client context of the service may have been re-created
+        metricRegistry.remove(prefix + "." + name);
+        metricRegistry.register(prefix + "." + name, gauge);
+    }
+
+    @Override
+    public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+        ConnectionRequest connectionRequest = super.requestConnection(route, state);
+        return new ConnectionRequest() {
+
+            @Override
+            public HttpClientConnection get(long timeout, TimeUnit tunit)
+                throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+
+                Timer.Context context = acquisitions.time();
+                try {
+                    return connectionRequest.get(timeout, tunit);
+                } catch (ConnectionPoolTimeoutException e) {
+                    acquisitionTimeouts.mark();
+                    throw e;
+                } finally {
+                    RouteMetrics.addPoolWait(context.stop());
+                }
+            }
+
+            @Override
+            public boolean cancel() {
+                return connectionRequest.cancel();
+            }
+        };
+    }
+
+    @Override
+    public void shutdown() {
+        super.shutdown();
+        metricRegistry.removeMatching((name, metric) -> name.startsWith(prefix + "."));
+    }
+}
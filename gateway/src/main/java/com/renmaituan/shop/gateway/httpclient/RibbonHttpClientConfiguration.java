@@ -0,0 +1,119 @@
+package com.renmaituan.shop.gateway.httpclient;
+
+import com.renmaituan.shop.config.JHipsterProperties;
+
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.netflix.ribbon.ServerIntrospector;
+import org.springframework.cloud.netflix.ribbon.apache.RibbonLoadBalancingHttpClient;
+import org.springframework.context.annotation.Bean;
+
+import com.codahale.metrics.MetricRegistry;
+import com.netflix.client.config.CommonClientConfigKey;
+import com.netflix.client.config.IClientConfig;
+import com.netflix.loadbalancer.ILoadBalancer;
+
+/**
+ * Ribbon client configuration of the micro-services, replacing the HTTP client used by Zuul to proxy the
+ * requests with one using an {@link InstrumentedConnectionManager}, configured by the
+ * "jhipster.gateway.http-client" properties.
+ * <p>
+ * This class is registered for all the micro-services by the GatewayConfiguration, which also makes Zuul proxy
+ * the requests through the {@link RibbonLoadBalancingHttpClient} defined here. Its beans are created in
+ * the Ribbon client context of each micro-service: it is not annotated with @Configuration so that it is not
+ * picked up by the component scan of the gateway context.
+ */
+public class RibbonHttpClientConfiguration {
+
+    private final Logger log = LoggerFactory.getLogger(RibbonHttpClientConfiguration.class);
+
+    @Value("${ribbon.client.name}")
+    private String serviceId;
+
+    @Inject
+    private JHipsterProperties jHipsterProperties;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    @Bean
+    public InstrumentedConnectionManager ribbonConnectionManager() {
+        JHipsterProperties.Gateway.HttpClient defaults = jHipsterProperties.getGateway().getHttpClient();
+        JHipsterProperties.Gateway.HttpClient.Service service = getService();
+        InstrumentedConnectionManager connectionManager = new InstrumentedConnectionManager(serviceId, metricRegistry);
+        connectionManager.setMaxTotal(
+            value(service.getMaxTotalConnections(), defaults.getMaxTotalConnections()));
+        connectionManager.setDefaultMaxPerRoute(
+            value(service.getMaxConnectionsPerHost(), defaults.getMaxConnectionsPerHost()));
+        return connectionManager;
+    }
+
+    @Bean
+    public CloseableHttpClient ribbonHttpClient(InstrumentedConnectionManager ribbonConnectionManager) {
+        JHipsterProperties.Gateway.HttpClient defaults = jHipsterProperties.getGateway().getHttpClient();
+        JHipsterProperties.Gateway.HttpClient.Service service = getService();
+        long keepAlive = value(service.getKeepAlive(), defaults.getKeepAlive());
+        log.debug("Configuring the HTTP client of {}: {} connections, {} per host", serviceId,
+            ribbonConnectionManager.getMaxTotal(), ribbonConnectionManager.getDefaultMaxPerRoute());
+
+        return HttpClientBuilder.create()
+            .setConnectionManager(ribbonConnectionManager)
+            .setDefaultRequestConfig(RequestConfig.custom()
+                .setConnectTimeout(value(service.getConnectTimeout(), defaults.getConnectTimeout()))
+                .setSocketTimeout(value(service.getReadTimeout(), defaults.getReadTimeout()))
+                .setConnectionRequestTimeout(
+                    value(service.getConnectionRequestTimeout(), defaults.getConnectionRequestTimeout()))
+                .build())
+            .setKeepAliveStrategy((response, context) -> {
+                // the micro-service "Keep-Alive" header, if any, takes precedence
+                long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                return duration > 0 ? duration : keepAlive;
+            })
+            .evictExpiredConnections()
+            .evictIdleConnections(value(service.getMaxIdleTime(), defaults.getMaxIdleTime()), TimeUnit.MILLISECONDS)
+            .disableCookieManagement()
+            // gzipped responses are sent as they are to the clients, and decompressed by the gateway only if needed
+            .disableContentCompression()
+            .useSystemProperties()
+            .build();
+    }
+
+    @Bean
+    public RibbonLoadBalancingHttpClient ribbonLoadBalancingHttpClient(CloseableHttpClient ribbonHttpClient,
+        IClientConfig config, ServerIntrospector serverIntrospector, ILoadBalancer loadBalancer) {
+
+        // Ribbon sets these timeouts on each request, overriding the ones of the HTTP client
+        JHipsterProperties.Gateway.HttpClient defaults = jHipsterProperties.getGateway().getHttpClient();
+        JHipsterProperties.Gateway.HttpClient.Service service = getService();
+        config.set(CommonClientConfigKey.ConnectTimeout,
+            value(service.getConnectTimeout(), defaults.getConnectTimeout()));
+        config.set(CommonClientConfigKey.ReadTimeout, value(service.getReadTimeout(), defaults.getReadTimeout()));
+
+        RibbonLoadBalancingHttpClient client =
+            new RibbonLoadBalancingHttpClient(ribbonHttpClient, config, serverIntrospector);
+        client.setLoadBalancer(loadBalancer);
+        return client;
+    }
+
+    private JHipsterProperties.Gateway.HttpClient.Service getService() {
+        JHipsterProperties.Gateway.HttpClient.Service service =
+            jHipsterProperties.getGateway().getHttpClient().getServices().get(serviceId);
+        return service == null ? new JHipsterProperties.Gateway.HttpClient.Service() : service;
+    }
+
+    private static int value(Integer value, int defaultValue) {
+        return value == null ? defaultValue : value;
+    }
+
+    private static long value(Long value, long defaultValue) {
+        return value == null ? defaultValue : value;
+    }
+}
@@ -0,0 +1,110 @@
+package com.renmaituan.shop.gateway.loadbalancing;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Latency, in-flight requests and failures of a micro-service instance, as seen by this gateway node.
+ * <p>
+ * The latency is a peak EWMA: a slower response is taken into account at once, while faster responses lower
+ * it progressively. It also decays over time when the instance does not receive any request, so that an
+ * instance that was slow is tried again later.
+ * <p>
+ * After a number of consecutive failures, the instance is ejected: it does not receive requests for the
+ * ejection time, multiplied by the number of times it has been ejected in a row.
+ */
+public class InstanceStats {
+
+    private final long decayTimeNanos;
+
+    private final int maxConsecutiveFailures;
+
+    private final long ejectionTimeNanos;
+
+    private final long maxEjectionTimeNanos;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private double latencyNanos;
+
+    private long lastUpdate;
+
+    private int consecutiveFailures;
+
+    private int ejections;
+
+    private volatile long ejectedUntil;
+
+    private volatile boolean ejected;
+
+    public InstanceStats(long decayTimeMillis, int maxConsecutiveFailures, long ejectionTimeMillis,
+        long maxEjectionTimeMillis) {
+
+        this.decayTimeNanos = TimeUnit.MILLISECONDS.toNanos(decayTimeMillis);
+        this.maxConsecutiveFailures = maxConsecutiveFailures;
+        this.ejectionTimeNanos = TimeUnit.MILLISECONDS.toNanos(ejectionTimeMillis);
+        this.maxEjectionTimeNanos = TimeUnit.MILLISECONDS.toNanos(maxEjectionTimeMillis);
+    }
+
+    public void requestStarted() {
+        inFlight.incrementAndGet();
+    }
+
+    /**
+     * @param now the current time, from {@link System#nanoTime()}
+     */
+    public synchronized void requestCompleted(long latency, boolean failure, long now) {
+        inFlight.decrementAndGet();
+        double decayedLatency = getDecayedLatency(now);
+        if (lastUpdate == 0 || latency > decayedLatency) {
+            latencyNanos = latency;
+        } else {
+            double weight = Math.exp(-(double) (now - lastUpdate) / decayTimeNanos);
+            latencyNanos = latencyNanos * weight + latency * (1 - weight);
+        }
+        lastUpdate = now;
+
+        if (!failure) {
+            consecutiveFailures = 0;
+            ejections = 0;
+        } else if (++consecutiveFailures >= maxConsecutiveFailures) {
+            consecutiveFailures = 0;
+            ejections++;
+            ejectedUntil = now + Math.min(ejectionTimeNanos * ejections, maxEjectionTimeNanos);
+            ejected = true;
+        }
+    }
+
+    /**
+     * Forget a started request without recording its outcome, for example because it was cancelled.
+     */
+    public void requestCancelled() {
+        inFlight.decrementAndGet();
+    }
+
+    private double getDecayedLatency(long now) {
+        if (lastUpdate == 0) {
+            return 0;
+        }
+        return latencyNanos * Math.exp(-(double) (now - lastUpdate) / decayTimeNanos);
+    }
+
+    /**
+     * @return the cost of sending a request to this instance: its latency, weighted by its in-flight requests
+     */
+    synchronized double getCost(long now) {
+        return (getDecayedLatency(now) + 1) * (inFlight.get() + 1);
+    }
+
+    public boolean isEjected(long now) {
+        return ejected && now - ejectedUntil < 0;
+    }
+
+    public synchronized double getLatencyMillis(long now) {
+        return getDecayedLatency(now) / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,71 @@
+package com.renmaituan.shop.gateway.loadbalancing;
+
+import org.springframework.http.HttpStatus;
+
+import com.netflix.zuul.ZuulFilter;
+import com.netflix.zuul.context.RequestContext;
+
+/**
+ * Zuul filter recording the latency and the outcome of the proxied requests in the {@link InstanceStats} of
+ * the instance chosen by the {@link LatencyAwareRule}.
+ * <p>
+ * A request fails when the instance could not be reached or answered with a server error. When Ribbon retries
+ * a request on another instance, the previous attempt is recorded as failed.
+ */
+public class InstanceStatsFilter extends ZuulFilter {
+
+    private static final String INSTANCE_STATS = "instanceStats";
+
+    private static final String REQUEST_START = "instanceStatsRequestStart";
+
+    static void requestStarted(RequestContext ctx, InstanceStats instanceStats) {
+        long now = System.nanoTime();
+        requestCompleted(ctx, true, now);
+        instanceStats.requestStarted();
+        ctx.set(INSTANCE_STATS, instanceStats);
+        ctx.set(REQUEST_START, now);
+    }
+
+    /**
+     * Stop tracking the request of the given context, whose attempts are tracked by the caller instead: the
+     * instance chosen by the {@link LatencyAwareRule} does not count it as in flight anymore.
+     */
+    public static void untrack(RequestContext ctx) {
+        InstanceStats instanceStats = (InstanceStats) ctx.remove(INSTANCE_STATS);
+        if (instanceStats != null) {
+            ctx.remove(REQUEST_START);
+            instanceStats.requestCancelled();
+        }
+    }
+
+    private static void requestCompleted(RequestContext ctx, boolean failure, long now) {
+        InstanceStats instanceStats = (InstanceStats) ctx.remove(INSTANCE_STATS);
+        if (instanceStats != null) {
+            instanceStats.requestCompleted(now - (long) ctx.remove(REQUEST_START), failure, now);
+        }
+    }
+
+    @Override
+    public String filterType() {
+        return "post";
+    }
+
+    @Override
+    public int filterOrder() {
+        return 0;
+    }
+
+    @Override
+    public boolean shouldFilter() {
+        return RequestContext.getCurrentContext().containsKey(INSTANCE_STATS);
+    }
+
+    @Override
+    public Object run() {
+        RequestContext ctx = RequestContext.getCurrentContext();
+        boolean failure = ctx.getThrowable() != null || ctx.containsKey("error.status_code") ||
+            ctx.getResponseStatusCode() >= HttpStatus.INTERNAL_SERVER_ERROR.value();
+        requestCompleted(ctx, failure, System.nanoTime());
+        return null;
+    }
+}
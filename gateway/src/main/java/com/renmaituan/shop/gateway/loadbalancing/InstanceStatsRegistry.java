@@ -0,0 +1,48 @@
+package com.renmaituan.shop.gateway.loadbalancing;
+
+import com.renmaituan.shop.config.JHipsterProperties;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Holds the {@link InstanceStats} of the micro-services instances, by service ID and by "host:port".
+ */
+public class InstanceStatsRegistry {
+
+    private final ConcurrentMap<String, ConcurrentMap<String, InstanceStats>> stats = new ConcurrentHashMap<>();
+
+    private final JHipsterProperties.Gateway.LoadBalancing properties;
+
+    public InstanceStatsRegistry(JHipsterProperties.Gateway.LoadBalancing properties) {
+        this.properties = properties;
+    }
+
+    public InstanceStats getStats(String serviceId, String hostPort) {
+        return getServiceStats(serviceId).computeIfAbsent(hostPort, k -> new InstanceStats(
+            properties.getDecayTime(), properties.getConsecutiveFailures(), properties.getEjectionTime(),
+            properties.getMaxEjectionTime()));
+    }
+
+    /**
+     * @return the stats of the instances of a service, by "host:port"
+     */
+    public Map<String, InstanceStats> getStats(String serviceId) {
+        Map<String, InstanceStats> serviceStats = stats.get(serviceId);
+        return serviceStats == null ? Collections.emptyMap() : Collections.unmodifiableMap(serviceStats);
+    }
+
+    /**
+     * Forget the instances which are not registered anymore.
+     */
+    void retain(String serviceId, Collection<String> hostPorts) {
+        getServiceStats(serviceId).keySet().retainAll(hostPorts);
+    }
+
+    private ConcurrentMap<String, InstanceStats> getServiceStats(String serviceId) {
+        return stats.computeIfAbsent(serviceId, k -> new ConcurrentHashMap<>());
+    }
+}
@@ -0,0 +1,29 @@
+package com.renmaituan.shop.gateway.loadbalancing;
+
+import javax.inject.Inject;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+
+import com.netflix.loadbalancer.IRule;
+
+/**
+ * Ribbon client configuration of the micro-services, using the {@link LatencyAwareRule}.
+ * <p>
+ * This class is registered for all the micro-services by the GatewayConfiguration, and its beans are created in
+ * the Ribbon client context of each micro-service: it is not annotated with @Configuration so that it is not
+ * picked up by the component scan of the gateway context.
+ */
+public class LatencyAwareRibbonConfiguration {
+
+    @Value("${ribbon.client.name}")
+    private String serviceId;
+
+    @Inject
+    private InstanceStatsRegistry instanceStatsRegistry;
+
+    @Bean
+    public IRule ribbonRule() {
+        return new LatencyAwareRule(serviceId, instanceStatsRegistry);
+    }
+}
@@ -0,0 +1,84 @@
+package com.renmaituan.shop.gateway.loadbalancing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.netflix.client.config.IClientConfig;
+import com.netflix.loadbalancer.AbstractLoadBalancerRule;
+import com.netflix.loadbalancer.Server;
+import com.netflix.zuul.context.RequestContext;
+
+/**
+ * Ribbon rule choosing the micro-service instance with the lowest latency and number of in-flight requests.
+ * <p>
+ * Two instances are picked at random, and the one with the lowest cost (see {@link InstanceStats}) is chosen:
+ * this avoids sending all the requests to the instance which currently looks the best. The ejected instances
+ * are skipped, unless all the instances are ejected.
+ * <p>
+ * The requests proxied by Zuul are then tracked by the {@link InstanceStatsFilter}, unless the
+ * HedgingRoutingFilter tracks each of its attempts itself.
+ */
+public class LatencyAwareRule extends AbstractLoadBalancerRule {
+
+    private final String serviceId;
+
+    private final InstanceStatsRegistry instanceStatsRegistry;
+
+    public LatencyAwareRule(String serviceId, InstanceStatsRegistry instanceStatsRegistry) {
+        this.serviceId = serviceId;
+        this.instanceStatsRegistry = instanceStatsRegistry;
+    }
+
+    @Override
+    public void initWithNiwsConfig(IClientConfig clientConfig) {
+    }
+
+    @Override
+    public Server choose(Object key) {
+        List<Server> servers = getLoadBalancer().getReachableServers();
+        if (servers.isEmpty()) {
+            return null;
+        }
+        long now = System.nanoTime();
+        if (instanceStatsRegistry.getStats(serviceId).size() > getLoadBalancer().getAllServers().size()) {
+            List<String> hostPorts = new ArrayList<>();
+            getLoadBalancer().getAllServers().forEach(server -> hostPorts.add(server.getHostPort()));
+            instanceStatsRegistry.retain(serviceId, hostPorts);
+        }
+
+        List<Server> candidates = new ArrayList<>(servers.size());
+        for (Server server : servers) {
+            if (!instanceStatsRegistry.getStats(serviceId, server.getHostPort()).isEjected(now)) {
+                candidates.add(server);
+            }
+        }
+        if (candidates.isEmpty()) {
+            candidates = servers;
+        }
+        Server server = choose(candidates, now);
+
+        RequestContext ctx = RequestContext.getCurrentContext();
+        if (ctx.getRequest() != null) {
+            InstanceStatsFilter.requestStarted(ctx, instanceStatsRegistry.getStats(serviceId, server.getHostPort()));
+        }
+        return server;
+    }
+
+    private Server choose(List<Server> candidates, long now) {
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        Server firstServer = candidates.get(first);
+        Server secondServer = candidates.get(second);
+        double firstCost = instanceStatsRegistry.getStats(serviceId, firstServer.getHostPort()).getCost(now);
+        double secondCost = instanceStatsRegistry.getStats(serviceId, secondServer.getHostPort()).getCost(now);
+        return firstCost <= secondCost ? firstServer : secondServer;
+    }
+}
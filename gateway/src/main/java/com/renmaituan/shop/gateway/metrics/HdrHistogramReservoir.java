@@ -0,0 +1,133 @@
+package com.renmaituan.shop.gateway.metrics;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramIterationValue;
+import org.HdrHistogram.Recorder;
+
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+
+/**
+ * Reservoir recording all the values in an HDR histogram, which is lock-free and does not allocate when
+ * recording, unlike the default exponentially decaying reservoir which takes a lock on each update.
+ * <p>
+ * The snapshots cover the values recorded over the last one to two windows, so that old values do not hide
+ * a recent latency change.
+ */
+public class HdrHistogramReservoir implements Reservoir {
+
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+
+    private final long windowNanos;
+
+    private Histogram intervalHistogram;
+
+    private Histogram currentWindow = new Histogram(SIGNIFICANT_DIGITS);
+
+    private Histogram previousWindow = new Histogram(SIGNIFICANT_DIGITS);
+
+    private long windowStart = System.nanoTime();
+
+    public HdrHistogramReservoir(long window, TimeUnit unit) {
+        this.windowNanos = unit.toNanos(window);
+    }
+
+    @Override
+    public int size() {
+        return getSnapshot().size();
+    }
+
+    @Override
+    public void update(long value) {
+        recorder.recordValue(Math.max(0, value));
+    }
+
+    @Override
+    public synchronized Snapshot getSnapshot() {
+        intervalHistogram = recorder.getIntervalHistogram(intervalHistogram);
+        currentWindow.add(intervalHistogram);
+        long now = System.nanoTime();
+        if (now - windowStart >= windowNanos) {
+            Histogram window = previousWindow;
+            previousWindow = currentWindow;
+            currentWindow = window;
+            currentWindow.reset();
+            if (now - windowStart >= 2 * windowNanos) {
+                // Not read during the last window: the recorded values are all older
+                previousWindow.reset();
+            }
+            windowStart = now;
+        }
+        Histogram histogram = previousWindow.copy();
+        histogram.add(currentWindow);
+        return new HistogramSnapshot(histogram);
+    }
+
+    private static class HistogramSnapshot extends Snapshot {
+
+        private final Histogram histogram;
+
+        HistogramSnapshot(Histogram histogram) {
+            this.histogram = histogram;
+        }
+
+        @Override
+        public double getValue(double quantile) {
+            return histogram.getValueAtPercentile(quantile * 100);
+        }
+
+        @Override
+        public long[] getValues() {
+            long[] values = new long[size()];
+            int i = 0;
+            for (HistogramIterationValue value : histogram.recordedValues()) {
+                for (long count = 0; count < value.getCountAtValueIteratedTo() && i < values.length; count++) {
+                    values[i++] = value.getValueIteratedTo();
+                }
+            }
+            return values;
+        }
+
+        @Override
+        public int size() {
+            return (int) Math.min(Integer.MAX_VALUE, histogram.getTotalCount());
+        }
+
+        @Override
+        public long getMax() {
+            return histogram.getMaxValue();
+        }
+
+        @Override
+        public double getMean() {
+            return histogram.getMean();
+        }
+
+        @Override
+        public long getMin() {
+            return histogram.getTotalCount() == 0 ? 0 : histogram.getMinValue();
+        }
+
+        @Override
+        public double getStdDev() {
+            return histogram.getStdDeviation();
+        }
+
+        @Override
+        public void dump(OutputStream output) {
+            try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8))) {
+                for (long value : getValues()) {
+                    writer.println(value);
+                }
+            }
+        }
+    }
+}
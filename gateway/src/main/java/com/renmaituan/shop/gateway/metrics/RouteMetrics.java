@@ -0,0 +1,89 @@
+package com.renmaituan.shop.gateway.metrics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.netflix.zuul.context.RequestContext;
+
+/**
+ * Records the latency and the throughput of the proxied requests, by route, see {@link RouteMetricsFilter}.
+ * <p>
+ * The "gateway.routes.[route]" metrics are the "responses.[status class]" timers (for instance
+ * "responses.2xx") of the whole requests, and the timers of their breakdown: "filters" for the time spent in
+ * the gateway filters, including sending the response to the client, "pool" for the time spent waiting for a
+ * pooled connection, and "upstream" for the time spent waiting for the response headers of the micro-service.
+ * All timers use an {@link HdrHistogramReservoir}.
+ */
+public class RouteMetrics {
+
+    static final String START = "routeMetricsStart";
+
+    static final String ROUTE_START = "routeMetricsRouteStart";
+
+    static final String ROUTE_END = "routeMetricsRouteEnd";
+
+    static final String POOL_WAIT = "routeMetricsPoolWait";
+
+    static final String RECORDED = "routeMetricsRecorded";
+
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+    private final MetricRegistry metricRegistry;
+
+    private final long windowSeconds;
+
+    public RouteMetrics(MetricRegistry metricRegistry, long windowSeconds) {
+        this.metricRegistry = metricRegistry;
+        this.windowSeconds = windowSeconds;
+    }
+
+    /**
+     * Add the time spent waiting for a pooled connection to the current request, if it is a proxied request.
+     */
+    public static void addPoolWait(long nanos) {
+        RequestContext ctx = RequestContext.getCurrentContext();
+        if (ctx.containsKey(START)) {
+            Long poolWait = (Long) ctx.get(POOL_WAIT);
+            ctx.set(POOL_WAIT, poolWait == null ? nanos : poolWait + nanos);
+        }
+    }
+
+    void record(RequestContext ctx, String routeId, int status, long end) {
+        long start = (long) ctx.get(START);
+        String prefix = MetricRegistry.name("gateway.routes", routeId);
+        getTimer(prefix + ".responses." + (status / 100) + "xx").update(end - start, TimeUnit.NANOSECONDS);
+
+        Long routeStart = (Long) ctx.get(ROUTE_START);
+        if (routeStart == null) {
+            getTimer(prefix + ".filters").update(end - start, TimeUnit.NANOSECONDS);
+            return;
+        }
+        Long routeEnd = (Long) ctx.get(ROUTE_END);
+        long routeTime = (routeEnd == null ? end : routeEnd) - routeStart;
+        Long poolWait = (Long) ctx.get(POOL_WAIT);
+        long poolTime = poolWait == null ? 0 : Math.min(poolWait, routeTime);
+        getTimer(prefix + ".filters").update(end - start - routeTime, TimeUnit.NANOSECONDS);
+        getTimer(prefix + ".pool").update(poolTime, TimeUnit.NANOSECONDS);
+        getTimer(prefix + ".upstream").update(routeTime - poolTime, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer getTimer(String name) {
+        Timer timer = timers.get(name);
+        if (timer == null) {
+            timer = timers.computeIfAbsent(name, this::registerTimer);
+        }
+        return timer;
+    }
+
+    private Timer registerTimer(String name) {
+        Timer timer = metricRegistry.getTimers().get(name);
+        if (timer == null) {
+            timer = metricRegistry.register(name,
+                new Timer(new HdrHistogramReservoir(windowSeconds, TimeUnit.SECONDS)));
+        }
+        return timer;
+    }
+}
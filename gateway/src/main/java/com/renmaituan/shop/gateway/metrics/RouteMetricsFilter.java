@@ -0,0 +1,94 @@
+package com.renmaituan.shop.gateway.metrics;
+
+import org.springframework.http.HttpStatus;
+
+import com.netflix.zuul.ZuulFilter;
+import com.netflix.zuul.context.RequestContext;
+
+/**
+ * Zuul filters timing the phases of the proxied requests, for the {@link RouteMetrics}.
+ * <p>
+ * One filter is registered for each {@link Phase}: the request starts before the other pre filters, it is sent
+ * to the micro-service between the first and the last route filters, and it is recorded after the other post
+ * filters, or by the error filter when a post filter fails.
+ */
+public class RouteMetricsFilter extends ZuulFilter {
+
+    public enum Phase {
+
+        START("pre", -100),
+        ROUTE_START("route", 0),
+        ROUTE_END("route", 10000),
+        END("post", 10000),
+        ERROR("error", 10000);
+
+        private final String filterType;
+
+        private final int filterOrder;
+
+        Phase(String filterType, int filterOrder) {
+            this.filterType = filterType;
+            this.filterOrder = filterOrder;
+        }
+    }
+
+    private final RouteMetrics routeMetrics;
+
+    private final Phase phase;
+
+    public RouteMetricsFilter(RouteMetrics routeMetrics, Phase phase) {
+        this.routeMetrics = routeMetrics;
+        this.phase = phase;
+    }
+
+    @Override
+    public String filterType() {
+        return phase.filterType;
+    }
+
+    @Override
+    public int filterOrder() {
+        return phase.filterOrder;
+    }
+
+    @Override
+    public boolean shouldFilter() {
+        RequestContext ctx = RequestContext.getCurrentContext();
+        if (phase == Phase.START) {
+            return true;
+        }
+        return ctx.containsKey(RouteMetrics.START) && !ctx.containsKey(RouteMetrics.RECORDED);
+    }
+
+    @Override
+    public Object run() {
+        RequestContext ctx = RequestContext.getCurrentContext();
+        long now = System.nanoTime();
+        switch (phase) {
+            case START:
+                ctx.set(RouteMetrics.START, now);
+                break;
+            case ROUTE_START:
+                ctx.set(RouteMetrics.ROUTE_START, now);
+                break;
+            case ROUTE_END:
+                ctx.set(RouteMetrics.ROUTE_END, now);
+                break;
+            default:
+                String routeId = (String) ctx.get("proxy");
+                if (routeId != null) {
+                    ctx.set(RouteMetrics.RECORDED, true);
+                    routeMetrics.record(ctx, routeId, getStatus(ctx), now);
+                }
+        }
+        return null;
+    }
+
+    private int getStatus(RequestContext ctx) {
+        if (phase == Phase.ERROR || ctx.getThrowable() != null) {
+            return HttpStatus.INTERNAL_SERVER_ERROR.value();
+        }
+        Object errorStatus = ctx.get("error.status_code");
+        return errorStatus instanceof Integer ? (Integer) errorStatus : ctx.getResponseStatusCode();
+    }
+}
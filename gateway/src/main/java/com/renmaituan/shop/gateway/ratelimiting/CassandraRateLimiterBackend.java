@@ -0,0 +1,150 @@
+package com.renmaituan.shop.gateway.ratelimiting;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * Rate limiter backend storing the counters in the Cassandra rate-limiting table.
+ * <p>
+ * For each limit, the counters of the current and previous windows are read with one asynchronous query, all
+ * the limits being queried in parallel. Increments are written asynchronously by the
+ * {@link RateLimitingRepository}, so the check and the increment are not atomic: concurrent calls may
+ * slightly exceed the limits.
+ * <p>
+ * The reads must complete within "jhipster.gateway.rate-limiting.check-timeout" milliseconds. When they do
+ * not, the call is decided with the counters last read from Cassandra for this key, plus the calls this node
+ * accepted since: a slow Cassandra cluster never blocks the gateway for longer than this budget.
+ */
+public class CassandraRateLimiterBackend implements RateLimiterBackend {
+
+    private final Logger log = LoggerFactory.getLogger(CassandraRateLimiterBackend.class);
+
+    private final RateLimitingRepository rateLimitingRepository;
+
+    private final long checkTimeoutNanos;
+
+    private final InMemoryRateLimiterBackend lastKnownCounters = new InMemoryRateLimiterBackend();
+
+    private final Counter failOpenCounter;
+
+    public CassandraRateLimiterBackend(RateLimitingRepository rateLimitingRepository, long checkTimeoutMillis,
+        MetricRegistry metricRegistry) {
+
+        this.rateLimitingRepository = rateLimitingRepository;
+        this.checkTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(checkTimeoutMillis);
+        this.failOpenCounter = metricRegistry.counter("gateway.ratelimiting.fail-open");
+    }
+
+    @Override
+    public RateLimitQuota tryAcquire(String key, RateLimit[] rateLimits, long nowMillis) {
+        long deadline = System.nanoTime() + checkTimeoutNanos;
+        ListenableFuture<long[]>[] counters = getCounters(key, rateLimits, nowMillis);
+        long[][] values = new long[rateLimits.length][];
+        boolean acquired = true;
+        for (int i = 0; i < rateLimits.length; i++) {
+            try {
+                values[i] = counters[i].get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException | ExecutionException e) {
+                return failOpen(key, rateLimits, nowMillis, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return failOpen(key, rateLimits, nowMillis, e);
+            }
+            lastKnownCounters.setCounters(key, rateLimits, i, nowMillis, values[i][0], values[i][1]);
+            long count = rateLimits[i].estimate(values[i][0], values[i][1], nowMillis);
+            log.debug("Rate limiting for {} per {} - {}", key, rateLimits[i].getTimeUnit(), count);
+            acquired &= count < rateLimits[i].getLimit();
+        }
+        if (acquired) {
+            increment(key, rateLimits, nowMillis);
+            lastKnownCounters.incrementAndGet(key, rateLimits, nowMillis, 1);
+        }
+        RateLimitQuota quota = null;
+        for (int i = 0; i < rateLimits.length; i++) {
+            long current = acquired ? values[i][1] + 1 : values[i][1];
+            quota = RateLimitQuota.mostRestrictive(quota,
+                rateLimits[i].getQuota(values[i][0], current, nowMillis, acquired));
+        }
+        return quota;
+    }
+
+    /**
+     * Decide with the last known counters, as Cassandra did not answer in time.
+     */
+    private RateLimitQuota failOpen(String key, RateLimit[] rateLimits, long nowMillis, Exception e) {
+        failOpenCounter.inc();
+        log.debug("Rate limiting for {}: using the last known counters, as Cassandra could not be read: {}", key,
+            e.toString());
+        RateLimitQuota quota = lastKnownCounters.tryAcquire(key, rateLimits, nowMillis);
+        if (quota.isAllowed()) {
+            increment(key, rateLimits, nowMillis);
+        }
+        return quota;
+    }
+
+    /**
+     * Get the quota from the counters last read from Cassandra, without querying it.
+     */
+    @Override
+    public RateLimitQuota getQuota(String key, RateLimit[] rateLimits, long nowMillis) {
+        return lastKnownCounters.getQuota(key, rateLimits, nowMillis);
+    }
+
+    private void increment(String key, RateLimit[] rateLimits, long nowMillis) {
+        for (RateLimit rateLimit : rateLimits) {
+            rateLimitingRepository.incrementCounter(key, rateLimit.getTimeUnit(), rateLimit.getWindow(nowMillis));
+        }
+    }
+
+    /**
+     * Queue the increments in the {@link RateLimitingRepository}, and read the counters back asynchronously.
+     * <p>
+     * The increments of this node which are still waiting to be written are added to the counters read: without
+     * them, the calls made on the other nodes would be underestimated until the next write-behind flush.
+     */
+    @Override
+    public ListenableFuture<long[]> incrementAndGet(String key, RateLimit[] rateLimits, long nowMillis, long delta) {
+        for (RateLimit rateLimit : rateLimits) {
+            rateLimitingRepository.incrementCounter(key, rateLimit.getTimeUnit(), rateLimit.getWindow(nowMillis),
+                delta);
+        }
+        return Futures.transform(Futures.allAsList(getCounters(key, rateLimits, nowMillis)),
+            (Function<List<long[]>, long[]>) values -> {
+                long[] current = new long[rateLimits.length];
+                for (int i = 0; i < rateLimits.length; i++) {
+                    current[i] = values.get(i)[1] + rateLimitingRepository.getPendingDelta(key,
+                        rateLimits[i].getTimeUnit(), rateLimits[i].getWindow(nowMillis));
+                }
+                return current;
+            });
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void evictExpiredCounters() {
+        lastKnownCounters.evictExpiredCounters();
+    }
+
+    @SuppressWarnings("unchecked")
+    private ListenableFuture<long[]>[] getCounters(String key, RateLimit[] rateLimits, long nowMillis) {
+        ListenableFuture<long[]>[] counters = new ListenableFuture[rateLimits.length];
+        for (int i = 0; i < rateLimits.length; i++) {
+            RateLimit rateLimit = rateLimits[i];
+            long window = rateLimit.getWindow(nowMillis);
+            counters[i] = rateLimitingRepository.getCounters(key, rateLimit.getTimeUnit(),
+                window - rateLimit.getPeriodMillis(), window);
+        }
+        return counters;
+    }
+}
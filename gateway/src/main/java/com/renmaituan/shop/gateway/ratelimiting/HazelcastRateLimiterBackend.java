@@ -0,0 +1,106 @@
+package com.renmaituan.shop.gateway.ratelimiting;
+
+import java.util.Map;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.hazelcast.core.ExecutionCallback;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+import com.hazelcast.map.AbstractEntryProcessor;
+
+/**
+ * Rate limiter backend storing the counters in the gateway's Hazelcast cluster.
+ * <p>
+ * All the counters of a key are stored in one entry of the "gateway-ratelimiting" map, and updated with an
+ * entry processor: each call is checked and counted with a single operation, run on the member owning the
+ * key's partition.
+ */
+public class HazelcastRateLimiterBackend implements RateLimiterBackend {
+
+    public static final String MAP_NAME = "gateway-ratelimiting";
+
+    private final IMap<String, long[]> counters;
+
+    public HazelcastRateLimiterBackend(HazelcastInstance hazelcastInstance) {
+        this.counters = hazelcastInstance.getMap(MAP_NAME);
+    }
+
+    @Override
+    public RateLimitQuota tryAcquire(String key, RateLimit[] rateLimits, long nowMillis) {
+        return (RateLimitQuota) counters.executeOnKey(key, new TryAcquireEntryProcessor(rateLimits, nowMillis));
+    }
+
+    @Override
+    public RateLimitQuota getQuota(String key, RateLimit[] rateLimits, long nowMillis) {
+        long[] keyCounters = SlidingWindowCounters.of(counters.get(key), rateLimits);
+        return SlidingWindowCounters.getQuota(keyCounters, rateLimits, nowMillis, true);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public ListenableFuture<long[]> incrementAndGet(String key, RateLimit[] rateLimits, long nowMillis, long delta) {
+        SettableFuture<long[]> current = SettableFuture.create();
+        counters.submitToKey(key, new IncrementEntryProcessor(rateLimits, nowMillis, delta))
+            .andThen(new ExecutionCallback<Object>() {
+
+                @Override
+                public void onResponse(Object response) {
+                    current.set((long[]) response);
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    current.setException(t);
+                }
+            });
+        return current;
+    }
+
+    private static class TryAcquireEntryProcessor extends AbstractEntryProcessor<String, long[]> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final RateLimit[] rateLimits;
+
+        private final long nowMillis;
+
+        TryAcquireEntryProcessor(RateLimit[] rateLimits, long nowMillis) {
+            this.rateLimits = rateLimits;
+            this.nowMillis = nowMillis;
+        }
+
+        @Override
+        public Object process(Map.Entry<String, long[]> entry) {
+            long[] keyCounters = SlidingWindowCounters.of(entry.getValue(), rateLimits);
+            RateLimitQuota quota = SlidingWindowCounters.tryAcquire(keyCounters, rateLimits, nowMillis);
+            entry.setValue(keyCounters);
+            return quota;
+        }
+    }
+
+    private static class IncrementEntryProcessor extends AbstractEntryProcessor<String, long[]> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final RateLimit[] rateLimits;
+
+        private final long nowMillis;
+
+        private final long delta;
+
+        IncrementEntryProcessor(RateLimit[] rateLimits, long nowMillis, long delta) {
+            this.rateLimits = rateLimits;
+            this.nowMillis = nowMillis;
+            this.delta = delta;
+        }
+
+        @Override
+        public Object process(Map.Entry<String, long[]> entry) {
+            long[] keyCounters = SlidingWindowCounters.of(entry.getValue(), rateLimits);
+            long[] current = SlidingWindowCounters.incrementAndGet(keyCounters, rateLimits, nowMillis, delta);
+            entry.setValue(keyCounters);
+            return current;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.renmaituan.shop.gateway.ratelimiting;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.scheduling.annotation.Scheduled;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * Rate limiter backend storing the counters in memory: each gateway node enforces the limits on its own.
+ */
+public class InMemoryRateLimiterBackend implements RateLimiterBackend {
+
+    private final ConcurrentMap<String, Counters> counters = new ConcurrentHashMap<>();
+
+    @Override
+    public RateLimitQuota tryAcquire(String key, RateLimit[] rateLimits, long nowMillis) {
+        Counters keyCounters = getCounters(key);
+        synchronized (keyCounters) {
+            keyCounters.update(rateLimits);
+            return SlidingWindowCounters.tryAcquire(keyCounters.values, rateLimits, nowMillis);
+        }
+    }
+
+    @Override
+    public ListenableFuture<long[]> incrementAndGet(String key, RateLimit[] rateLimits, long nowMillis, long delta) {
+        Counters keyCounters = getCounters(key);
+        synchronized (keyCounters) {
+            keyCounters.update(rateLimits);
+            return Futures.immediateFuture(
+                SlidingWindowCounters.incrementAndGet(keyCounters.values, rateLimits, nowMillis, delta));
+        }
+    }
+
+    @Override
+    public RateLimitQuota getQuota(String key, RateLimit[] rateLimits, long nowMillis) {
+        Counters keyCounters = counters.get(key);
+        if (keyCounters == null) {
+            return SlidingWindowCounters.getQuota(new long[3 * rateLimits.length], rateLimits, nowMillis, true);
+        }
+        synchronized (keyCounters) {
+            keyCounters.update(rateLimits);
+            return SlidingWindowCounters.getQuota(keyCounters.values, rateLimits, nowMillis, true);
+        }
+    }
+
+    /**
+     * Replace the counters of one limit, for example with the values last read from Cassandra.
+     */
+    void setCounters(String key, RateLimit[] rateLimits, int index, long nowMillis, long previous, long current) {
+        Counters keyCounters = getCounters(key);
+        synchronized (keyCounters) {
+            keyCounters.update(rateLimits);
+            SlidingWindowCounters.set(keyCounters.values, rateLimits, index, nowMillis, previous, current);
+        }
+    }
+
+    /**
+     * Remove the counters which have not been used during the last period of their limits.
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictExpiredCounters() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Counters> entry : counters.entrySet()) {
+            Counters keyCounters = entry.getValue();
+            synchronized (keyCounters) {
+                if (SlidingWindowCounters.isExpired(keyCounters.values, keyCounters.rateLimits, now)) {
+                    counters.remove(entry.getKey(), keyCounters);
+                }
+            }
+        }
+    }
+
+    private Counters getCounters(String key) {
+        Counters keyCounters = counters.get(key);
+        if (keyCounters == null) {
+            keyCounters = counters.computeIfAbsent(key, k -> new Counters());
+        }
+        return keyCounters;
+    }
+
+    private static class Counters {
+
+        private RateLimit[] rateLimits = new RateLimit[0];
+
+        private long[] values = new long[0];
+
+        void update(RateLimit[] rateLimits) {
+            this.rateLimits = rateLimits;
+            this.values = SlidingWindowCounters.of(values, rateLimits);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.renmaituan.shop.gateway.ratelimiting;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * Rate limiter enforcing the limits in memory, with one token bucket per client, per policy and per limit.
+ * <p>
+ * The calls accepted by this gateway node are periodically flushed to the {@link RateLimiterBackend}, and the
+ * calls made on the other nodes of the cluster are read back from it and removed from the local buckets. The
+ * backend is then never called on the request path, and the limit is approximately enforced across the
+ * cluster: other nodes' calls are only taken into account after a flush.
+ * <p>
+ * Flushes run on their own thread, every "jhipster.gateway.rate-limiting.local.flush-interval" milliseconds.
+ * The counters of all the clients are read in parallel, and a flush waits for them at most until the next one
+ * is due: the counters read later are ignored, and the calls made on other nodes are taken into account at the
+ * next flush.
+ */
+public class LocalRateLimiter implements RateLimiter {
+
+    private final Logger log = LoggerFactory.getLogger(LocalRateLimiter.class);
+
+    private final ConcurrentMap<String, ClientBucket> buckets = new ConcurrentHashMap<>();
+
+    private final RateLimiterBackend rateLimiterBackend;
+
+    private final long flushIntervalMillis;
+
+    private ThreadPoolTaskScheduler flushScheduler;
+
+    public LocalRateLimiter(RateLimiterBackend rateLimiterBackend, long flushIntervalMillis) {
+        this.rateLimiterBackend = rateLimiterBackend;
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    @PostConstruct
+    public void init() {
+        flushScheduler = new ThreadPoolTaskScheduler();
+        flushScheduler.setThreadNamePrefix("gateway-ratelimiting-flush-");
+        flushScheduler.initialize();
+        flushScheduler.scheduleWithFixedDelay(this::flush, flushIntervalMillis);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        flushScheduler.shutdown();
+    }
+
+    @Override
+    public RateLimitQuota tryAcquire(String id, RateLimitPolicy policy) {
+        long now = System.nanoTime();
+        String key = policy.getKey(id);
+        ClientBucket clientBucket = buckets.get(key);
+        if (clientBucket == null) {
+            clientBucket = buckets.computeIfAbsent(key, k -> new ClientBucket(policy.getRateLimitArray(), now));
+        }
+        TokenBucket[] clientBuckets = clientBucket.buckets;
+        for (int i = 0; i < clientBuckets.length; i++) {
+            if (!clientBuckets[i].tryConsume(now)) {
+                for (int j = 0; j < i; j++) {
+                    clientBuckets[j].refund();
+                }
+                return getQuota(clientBuckets, now, false);
+            }
+        }
+        clientBucket.consumed.increment();
+        return getQuota(clientBuckets, now, true);
+    }
+
+    @Override
+    public RateLimitQuota getQuota(String id, RateLimitPolicy policy) {
+        ClientBucket clientBucket = buckets.get(policy.getKey(id));
+        if (clientBucket == null) {
+            long nowMillis = System.currentTimeMillis();
+            RateLimitQuota quota = null;
+            for (RateLimit rateLimit : policy.getRateLimitArray()) {
+                quota = RateLimitQuota.mostRestrictive(quota,
+                    new RateLimitQuota(true, rateLimit.getLimit(), rateLimit.getLimit(), nowMillis, 0));
+            }
+            return quota;
+        }
+        return getQuota(clientBucket.buckets, System.nanoTime(), true);
+    }
+
+    private RateLimitQuota getQuota(TokenBucket[] clientBuckets, long now, boolean allowed) {
+        long nowMillis = System.currentTimeMillis();
+        RateLimitQuota quota = null;
+        for (TokenBucket bucket : clientBuckets) {
+            long resetMillis = nowMillis + TimeUnit.NANOSECONDS.toMillis(bucket.getNanosUntilFull(now));
+            long retryAfterMillis = (bucket.getNanosUntilAvailable(now) + 999999) / 1000000;
+            quota = RateLimitQuota.mostRestrictive(quota, new RateLimitQuota(allowed, bucket.getCapacity(),
+                bucket.getAvailableTokens(now), resetMillis, retryAfterMillis));
+        }
+        return quota;
+    }
+
+    /**
+     * Flush the calls accepted by this node, and reconcile the local buckets with the calls made on the
+     * other nodes of the cluster.
+     */
+    public void flush() {
+        long nowMillis = System.currentTimeMillis();
+        long nowNanos = System.nanoTime();
+        long deadline = nowNanos + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        List<PendingFlush> pendingFlushes = new ArrayList<>();
+        for (Map.Entry<String, ClientBucket> entry : buckets.entrySet()) {
+            String id = entry.getKey();
+            ClientBucket clientBucket = entry.getValue();
+            try {
+                PendingFlush pendingFlush = flush(id, clientBucket, nowMillis);
+                if (pendingFlush == null
+                    && clientBucket.isFull(nowNanos)
+                    && buckets.remove(id, clientBucket)) {
+
+                    // A call might have been accepted while the bucket was being removed
+                    pendingFlush = flush(id, clientBucket, nowMillis);
+                }
+                if (pendingFlush != null) {
+                    pendingFlushes.add(pendingFlush);
+                }
+            } catch (Exception e) {
+                log.warn("Rate limiting: could not flush the API calls of {}: {}", id, e.getMessage());
+            }
+        }
+        int late = 0;
+        for (PendingFlush pendingFlush : pendingFlushes) {
+            try {
+                long[] counters = pendingFlush.counters.get(Math.max(0, deadline - System.nanoTime()),
+                    TimeUnit.NANOSECONDS);
+                reconcile(pendingFlush.id, pendingFlush.clientBucket, counters, nowNanos);
+            } catch (TimeoutException e) {
+                late++;
+            } catch (ExecutionException e) {
+                log.warn("Rate limiting: could not read the API calls of {}: {}", pendingFlush.id,
+                    e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        if (late > 0) {
+            log.warn("Rate limiting: the API calls of {} clients were not read in time, the calls made on other " +
+                "nodes will be taken into account at the next flush", late);
+        }
+    }
+
+    /**
+     * Send the calls accepted since the last flush to the backend.
+     *
+     * @return the pending read of the counters, or null if there was no call to flush
+     */
+    private PendingFlush flush(String id, ClientBucket clientBucket, long nowMillis) {
+        long consumed = clientBucket.consumed.sum();
+        long delta = consumed - clientBucket.flushed;
+        if (delta == 0) {
+            return null;
+        }
+        clientBucket.flushed = consumed;
+        RateLimit[] rateLimits = clientBucket.rateLimits;
+        for (int i = 0; i < rateLimits.length; i++) {
+            long window = rateLimits[i].getWindow(nowMillis);
+            if (window != clientBucket.windows[i]) {
+                clientBucket.windows[i] = window;
+                clientBucket.flushedInWindow[i] = 0;
+                clientBucket.remoteInWindow[i] = 0;
+            }
+            clientBucket.flushedInWindow[i] += delta;
+        }
+        return new PendingFlush(id, clientBucket, rateLimiterBackend.incrementAndGet(id, rateLimits, nowMillis,
+            delta));
+    }
+
+    /**
+     * Remove the calls made on the other nodes since the last flush from the local buckets.
+     */
+    private void reconcile(String id, ClientBucket clientBucket, long[] counters, long nowNanos) {
+        RateLimit[] rateLimits = clientBucket.rateLimits;
+        for (int i = 0; i < rateLimits.length; i++) {
+            long remote = counters[i] - clientBucket.flushedInWindow[i];
+            if (remote > clientBucket.remoteInWindow[i]) {
+                log.debug("Rate limiting for {} per {}: {} calls made on other nodes", id,
+                    rateLimits[i].getTimeUnit(), remote - clientBucket.remoteInWindow[i]);
+                clientBucket.buckets[i].forceConsume(remote - clientBucket.remoteInWindow[i], nowNanos);
+                clientBucket.remoteInWindow[i] = remote;
+            }
+        }
+    }
+
+    private static final class PendingFlush {
+
+        private final String id;
+
+        private final ClientBucket clientBucket;
+
+        private final ListenableFuture<long[]> counters;
+
+        PendingFlush(String id, ClientBucket clientBucket, ListenableFuture<long[]> counters) {
+            this.id = id;
+            this.clientBucket = clientBucket;
+            this.counters = counters;
+        }
+    }
+
+    /**
+     * Local state of a client. Only the buckets and the consumed calls are used on the request path, the
+     * other fields are only read and written by the flushing thread.
+     */
+    private static class ClientBucket {
+
+        private final RateLimit[] rateLimits;
+
+        private final TokenBucket[] buckets;
+
+        private final LongAdder consumed = new LongAdder();
+
+        private long flushed;
+
+        private final long[] windows;
+
+        private final long[] flushedInWindow;
+
+        private final long[] remoteInWindow;
+
+        ClientBucket(RateLimit[] rateLimits, long now) {
+            this.rateLimits = rateLimits;
+            this.buckets = new TokenBucket[rateLimits.length];
+            for (int i = 0; i < rateLimits.length; i++) {
+                buckets[i] = new TokenBucket(rateLimits[i].getLimit(), rateLimits[i].getPeriodMillis(),
+                    TimeUnit.MILLISECONDS, now);
+            }
+            this.windows = new long[rateLimits.length];
+            this.flushedInWindow = new long[rateLimits.length];
+            this.remoteInWindow = new long[rateLimits.length];
+        }
+
+        boolean isFull(long now) {
+            for (TokenBucket bucket : buckets) {
+                if (bucket.getAvailableTokens(now) < bucket.getCapacity()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
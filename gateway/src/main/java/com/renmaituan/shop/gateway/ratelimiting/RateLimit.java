@@ -0,0 +1,143 @@
+package com.renmaituan.shop.gateway.ratelimiting;
+
+import com.renmaituan.shop.config.JHipsterProperties;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A limit on the number of API calls a client can make during a period of time.
+ * <p>
+ * Calls are counted in fixed windows, aligned on the epoch: the windows are computed arithmetically from
+ * {@link System#currentTimeMillis()}, without any Calendar. The number of calls made during the last
+ * {@code period} is estimated from the counters of the current and previous windows, weighting the previous
+ * window by the part of it that is still in the sliding period.
+ */
+public class RateLimit implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String timeUnit;
+
+    private final long periodMillis;
+
+    private final long limit;
+
+    public RateLimit(String timeUnit, long limit) {
+        this.timeUnit = timeUnit;
+        this.periodMillis = getPeriodMillis(timeUnit);
+        this.limit = limit;
+    }
+
+    /**
+     * Get the limits configured with the "jhipster.gateway.rate-limiting.limits" property, or the hourly
+     * "jhipster.gateway.rate-limiting.limit" if none is configured.
+     */
+    public static List<RateLimit> fromProperties(JHipsterProperties.Gateway.RateLimiting rateLimiting) {
+        if (rateLimiting.getLimits().isEmpty()) {
+            return Collections.singletonList(new RateLimit("hour", rateLimiting.getLimit()));
+        }
+        return fromProperties(rateLimiting.getLimits());
+    }
+
+    /**
+     * Get the limits configured as a map of time units to number of calls, for example {@code minute: 1000}.
+     */
+    public static List<RateLimit> fromProperties(Map<String, Long> limits) {
+        List<RateLimit> rateLimits = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : limits.entrySet()) {
+            rateLimits.add(new RateLimit(entry.getKey(), entry.getValue()));
+        }
+        return Collections.unmodifiableList(rateLimits);
+    }
+
+    private static long getPeriodMillis(String timeUnit) {
+        switch (timeUnit) {
+            case "second":
+                return TimeUnit.SECONDS.toMillis(1);
+            case "minute":
+                return TimeUnit.MINUTES.toMillis(1);
+            case "hour":
+                return TimeUnit.HOURS.toMillis(1);
+            case "day":
+                return TimeUnit.DAYS.toMillis(1);
+            default:
+                throw new IllegalArgumentException("Unknown rate limiting time unit: " + timeUnit +
+                    ", should be one of second, minute, hour or day");
+        }
+    }
+
+    /**
+     * @return the start of the window containing the given time
+     */
+    public long getWindow(long timeMillis) {
+        return timeMillis - timeMillis % periodMillis;
+    }
+
+    /**
+     * Estimate the number of calls made during the last period.
+     *
+     * @param previousCount the number of calls counted in the previous window
+     * @param currentCount the number of calls counted in the current window
+     * @param nowMillis the current time
+     */
+    public long estimate(long previousCount, long currentCount, long nowMillis) {
+        long elapsed = nowMillis % periodMillis;
+        return currentCount + previousCount * (periodMillis - elapsed) / periodMillis;
+    }
+
+    /**
+     * Get the quota of a client for this limit.
+     *
+     * @param previousCount the number of calls counted in the previous window
+     * @param currentCount the number of calls counted in the current window, including the current call
+     * @param nowMillis the current time
+     * @param allowed whether the current call was allowed
+     */
+    public RateLimitQuota getQuota(long previousCount, long currentCount, long nowMillis, boolean allowed) {
+        long resetMillis = getWindow(nowMillis) + periodMillis;
+        return new RateLimitQuota(allowed, limit, limit - estimate(previousCount, currentCount, nowMillis),
+            resetMillis, getRetryAfterMillis(previousCount, currentCount, nowMillis, resetMillis));
+    }
+
+    /**
+     * @return the time to wait until the estimated number of calls drops below the limit
+     */
+    private long getRetryAfterMillis(long previousCount, long currentCount, long nowMillis, long resetMillis) {
+        if (estimate(previousCount, currentCount, nowMillis) < limit) {
+            return 0;
+        }
+        if (limit <= 0) {
+            return resetMillis - nowMillis + periodMillis;
+        }
+        if (currentCount < limit) {
+            // the previous window must slide out of the period enough to leave room for one call
+            long elapsed = periodMillis - (limit - currentCount) * periodMillis / previousCount + 1;
+            return Math.max(0, elapsed - nowMillis % periodMillis);
+        }
+        // the current window will become the previous one, and must then slide out of the period
+        long elapsed = periodMillis - limit * periodMillis / currentCount + 1;
+        return resetMillis - nowMillis + Math.min(elapsed, periodMillis);
+    }
+
+    public String getTimeUnit() {
+        return timeUnit;
+    }
+
+    public long getPeriodMillis() {
+        return periodMillis;
+    }
+
+    public long getLimit() {
+        return limit;
+    }
+
+    @Override
+    public String toString() {
+        return limit + " calls per " + timeUnit;
+    }
+}
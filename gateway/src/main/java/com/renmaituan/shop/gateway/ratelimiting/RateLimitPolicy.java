@@ -0,0 +1,68 @@
+package com.renmaituan.shop.gateway.ratelimiting;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The rate limits applying to a set of API calls, configured with the
+ * "jhipster.gateway.rate-limiting.policies" keys.
+ * <p>
+ * Calls are counted separately for each policy: the client ID is prefixed with the policy name, except for
+ * the default policy.
+ */
+public class RateLimitPolicy {
+
+    public static final String DEFAULT_POLICY = "default";
+
+    private final String name;
+
+    private final List<RateLimit> rateLimits;
+
+    private final RateLimit[] rateLimitArray;
+
+    private final boolean exempt;
+
+    private final String keyPrefix;
+
+    public RateLimitPolicy(String name, List<RateLimit> rateLimits, boolean exempt) {
+        this.name = name;
+        this.rateLimits = Collections.unmodifiableList(rateLimits);
+        this.rateLimitArray = rateLimits.toArray(new RateLimit[rateLimits.size()]);
+        this.exempt = exempt;
+        this.keyPrefix = DEFAULT_POLICY.equals(name) ? "" : name + ":";
+    }
+
+    /**
+     * @return the key under which the calls of the client are counted for this policy
+     */
+    public String getKey(String id) {
+        return keyPrefix.isEmpty() ? id : keyPrefix.concat(id);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<RateLimit> getRateLimits() {
+        return rateLimits;
+    }
+
+    /**
+     * @return the limits as an array, to be iterated on the request path without allocation
+     */
+    RateLimit[] getRateLimitArray() {
+        return rateLimitArray;
+    }
+
+    /**
+     * @return true if the calls matching this policy are not limited at all
+     */
+    public boolean isExempt() {
+        return exempt;
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimitPolicy{" + name + ", " + (exempt ? "exempt" : rateLimits.toString()) + "}";
+    }
+}
@@ -0,0 +1,208 @@
+package com.renmaituan.shop.gateway.ratelimiting;
+
+import com.renmaituan.shop.config.JHipsterProperties;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.context.scope.refresh.RefreshScopeRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.util.StringUtils;
+
+/**
+ * Finds the rate-limiting policy applying to an API call.
+ * <p>
+ * The "jhipster.gateway.rate-limiting.policies" are compiled into an immutable index when the application
+ * starts, and each time the configuration is refreshed. A policy matches either:
+ * <ul>
+ * <li>an authority of the current user, for example to exempt the administrators: authority policies take
+ * precedence over all the others, in the order they are declared
+ * <li>a Zuul route id, a path prefix of the request URI, or both: the longest matching path prefix wins, then
+ * the route policy
+ * </ul>
+ * Calls matching no policy use the default limits.
+ */
+public class RateLimitPolicyIndex {
+
+    private final Logger log = LoggerFactory.getLogger(RateLimitPolicyIndex.class);
+
+    private final JHipsterProperties jHipsterProperties;
+
+    private volatile Index index;
+
+    public RateLimitPolicyIndex(JHipsterProperties jHipsterProperties) {
+        this.jHipsterProperties = jHipsterProperties;
+        this.index = compile(jHipsterProperties.getGateway().getRateLimiting());
+    }
+
+    @EventListener(RefreshScopeRefreshedEvent.class)
+    public void refresh() {
+        try {
+            index = compile(jHipsterProperties.getGateway().getRateLimiting());
+            log.info("Rate limiting policies refreshed");
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid rate limiting policies, keeping the previous ones: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Find the policy applying to an API call.
+     *
+     * @param routeId the Zuul route of the call, null if it was not proxied
+     * @param requestUri the URI of the call
+     * @param authorities the authorities of the current user, null if not authenticated
+     */
+    public RateLimitPolicy getPolicy(String routeId, String requestUri,
+        Collection<? extends GrantedAuthority> authorities) {
+
+        Index index = this.index;
+        if (authorities != null && !index.authorityPolicies.isEmpty()) {
+            AuthorityPolicy match = null;
+            for (GrantedAuthority authority : authorities) {
+                AuthorityPolicy authorityPolicy = index.authorityPolicies.get(authority.getAuthority());
+                if (authorityPolicy != null && (match == null || authorityPolicy.order < match.order)) {
+                    match = authorityPolicy;
+                }
+            }
+            if (match != null) {
+                return match.policy;
+            }
+        }
+        RoutePolicies routePolicies = routeId == null ? null : index.routePolicies.get(routeId);
+        if (routePolicies == null) {
+            routePolicies = index.defaultPolicies;
+        }
+        for (PathPolicy pathPolicy : routePolicies.pathPolicies) {
+            if (requestUri.startsWith(pathPolicy.path)) {
+                return pathPolicy.policy;
+            }
+        }
+        return routePolicies.policy;
+    }
+
+    /**
+     * @return the policy applying to calls matching no configured policy
+     */
+    public RateLimitPolicy getDefaultPolicy() {
+        return index.defaultPolicies.policy;
+    }
+
+    private static Index compile(JHipsterProperties.Gateway.RateLimiting rateLimiting) {
+        RateLimitPolicy defaultPolicy =
+            new RateLimitPolicy(RateLimitPolicy.DEFAULT_POLICY, RateLimit.fromProperties(rateLimiting), false);
+
+        Map<String, AuthorityPolicy> authorityPolicies = new HashMap<>();
+        Map<String, RateLimitPolicy> routePolicies = new HashMap<>();
+        Map<String, List<PathPolicy>> routePathPolicies = new HashMap<>();
+        List<PathPolicy> globalPathPolicies = new ArrayList<>();
+        int order = 0;
+        for (Map.Entry<String, JHipsterProperties.Gateway.RateLimiting.Policy> entry :
+            rateLimiting.getPolicies().entrySet()) {
+
+            String name = entry.getKey();
+            JHipsterProperties.Gateway.RateLimiting.Policy properties = entry.getValue();
+            if (!properties.isExempt() && properties.getLimits().isEmpty()) {
+                throw new IllegalArgumentException("Rate limiting policy " + name + " has no limits");
+            }
+            RateLimitPolicy policy = new RateLimitPolicy(name, RateLimit.fromProperties(properties.getLimits()),
+                properties.isExempt());
+
+            if (StringUtils.hasText(properties.getAuthority())) {
+                if (StringUtils.hasText(properties.getRoute()) || StringUtils.hasText(properties.getPath())) {
+                    throw new IllegalArgumentException("Rate limiting policy " + name +
+                        " can match either an authority, or a route and a path");
+                }
+                authorityPolicies.putIfAbsent(properties.getAuthority(), new AuthorityPolicy(policy, order++));
+            } else if (StringUtils.hasText(properties.getPath())) {
+                PathPolicy pathPolicy = new PathPolicy(properties.getPath(), policy);
+                if (StringUtils.hasText(properties.getRoute())) {
+                    routePathPolicies.computeIfAbsent(properties.getRoute(), route -> new ArrayList<>())
+                        .add(pathPolicy);
+                } else {
+                    globalPathPolicies.add(pathPolicy);
+                }
+            } else if (StringUtils.hasText(properties.getRoute())) {
+                routePolicies.putIfAbsent(properties.getRoute(), policy);
+            } else {
+                throw new IllegalArgumentException("Rate limiting policy " + name +
+                    " should match an authority, a route or a path");
+            }
+        }
+
+        // Each route gets its own path policies and the global ones, so a call needs only one map lookup
+        Map<String, RoutePolicies> routes = new HashMap<>();
+        Set<String> routeIds = new HashSet<>(routePolicies.keySet());
+        routeIds.addAll(routePathPolicies.keySet());
+        for (String routeId : routeIds) {
+            List<PathPolicy> pathPolicies = new ArrayList<>(globalPathPolicies);
+            pathPolicies.addAll(routePathPolicies.getOrDefault(routeId, Collections.emptyList()));
+            routes.put(routeId, new RoutePolicies(pathPolicies, routePolicies.getOrDefault(routeId, defaultPolicy)));
+        }
+        return new Index(authorityPolicies, routes, new RoutePolicies(globalPathPolicies, defaultPolicy));
+    }
+
+    private static final class Index {
+
+        private final Map<String, AuthorityPolicy> authorityPolicies;
+
+        private final Map<String, RoutePolicies> routePolicies;
+
+        private final RoutePolicies defaultPolicies;
+
+        Index(Map<String, AuthorityPolicy> authorityPolicies, Map<String, RoutePolicies> routePolicies,
+            RoutePolicies defaultPolicies) {
+
+            this.authorityPolicies = authorityPolicies;
+            this.routePolicies = routePolicies;
+            this.defaultPolicies = defaultPolicies;
+        }
+    }
+
+    private static final class RoutePolicies {
+
+        private final PathPolicy[] pathPolicies;
+
+        private final RateLimitPolicy policy;
+
+        RoutePolicies(List<PathPolicy> pathPolicies, RateLimitPolicy policy) {
+            // longest prefixes first, so the first match is the most specific one
+            pathPolicies.sort(Comparator.comparingInt((PathPolicy pathPolicy) -> pathPolicy.path.length()).reversed());
+            this.pathPolicies = pathPolicies.toArray(new PathPolicy[pathPolicies.size()]);
+            this.policy = policy;
+        }
+    }
+
+    private static final class PathPolicy {
+
+        private final String path;
+
+        private final RateLimitPolicy policy;
+
+        PathPolicy(String path, RateLimitPolicy policy) {
+            this.path = path;
+            this.policy = policy;
+        }
+    }
+
+    private static final class AuthorityPolicy {
+
+        private final RateLimitPolicy policy;
+
+        private final int order;
+
+        AuthorityPolicy(RateLimitPolicy policy, int order) {
+            this.policy = policy;
+            this.order = order;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.renmaituan.shop.gateway.ratelimiting;
+
+import java.io.Serializable;
+
+/**
+ * The state of a client's quota for one limit, as returned by the rate limiters: it is used for the
+ * "X-RateLimit-*" response headers, so that clients can slow down before reaching their limit.
+ */
+public class RateLimitQuota implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final boolean allowed;
+
+    private final long limit;
+
+    private final long remaining;
+
+    private final long resetMillis;
+
+    private final long retryAfterMillis;
+
+    public RateLimitQuota(boolean allowed, long limit, long remaining, long resetMillis, long retryAfterMillis) {
+        this.allowed = allowed;
+        this.limit = limit;
+        this.remaining = Math.max(0, remaining);
+        this.resetMillis = resetMillis;
+        this.retryAfterMillis = Math.max(0, retryAfterMillis);
+    }
+
+    /**
+     * @return the quota which will make the client wait the longest, then the one with the fewest remaining
+     * calls
+     */
+    static RateLimitQuota mostRestrictive(RateLimitQuota quota, RateLimitQuota other) {
+        if (quota == null) {
+            return other;
+        }
+        if (quota.retryAfterMillis != other.retryAfterMillis) {
+            return quota.retryAfterMillis > other.retryAfterMillis ? quota : other;
+        }
+        if (quota.remaining != other.remaining) {
+            return quota.remaining < other.remaining ? quota : other;
+        }
+        return quota.resetMillis >= other.resetMillis ? quota : other;
+    }
+
+    /**
+     * @return true if the call was allowed
+     */
+    public boolean isAllowed() {
+        return allowed;
+    }
+
+    /**
+     * @return the number of calls allowed per period
+     */
+    public long getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return the number of calls the client can still make
+     */
+    public long getRemaining() {
+        return remaining;
+    }
+
+    /**
+     * @return the time at which the quota will be restored, in milliseconds since the epoch
+     */
+    public long getResetMillis() {
+        return resetMillis;
+    }
+
+    /**
+     * @return the time to wait before the next call can be allowed, 0 if it can be made right now
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimitQuota{" +
+            "allowed=" + allowed +
+            ", limit=" + limit +
+            ", remaining=" + remaining +
+            ", resetMillis=" + resetMillis +
+            ", retryAfterMillis=" + retryAfterMillis +
+            "}";
+    }
+}
@@ -0,0 +1,22 @@
+package com.renmaituan.shop.gateway.ratelimiting;
+
+/**
+ * Decides whether a client can make an API call, see {@link RateLimitingFilter}.
+ */
+public interface RateLimiter {
+
+    /**
+     * Try to consume one API call for the given client.
+     *
+     * @param id the client ID: the user login or the user IP address
+     * @param policy the policy applying to the call, see {@link RateLimitPolicyIndex}
+     * @return the quota of the client for its most restrictive limit, telling whether the call is allowed
+     */
+    RateLimitQuota tryAcquire(String id, RateLimitPolicy policy);
+
+    /**
+     * Get the quota of a client for its most restrictive limit, without consuming any call. This only uses
+     * the state kept by this gateway node, or a cheap read of the shared counters.
+     */
+    RateLimitQuota getQuota(String id, RateLimitPolicy policy);
+}
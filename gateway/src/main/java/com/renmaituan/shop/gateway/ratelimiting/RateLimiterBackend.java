@@ -0,0 +1,42 @@
+package com.renmaituan.shop.gateway.ratelimiting;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * Stores the sliding window counters used by the rate limiters.
+ * <p>
+ * Implementations are chosen with the "jhipster.gateway.rate-limiting.backend" property:
+ * <ul>
+ * <li>"cassandra", the default: counters are shared by all the gateway nodes, in the Cassandra rate-limiting
+ * table
+ * <li>"hazelcast": counters are shared by all the gateway nodes, in the gateway's Hazelcast cluster
+ * <li>"memory": counters are local to each gateway node
+ * </ul>
+ */
+public interface RateLimiterBackend {
+
+    /**
+     * Count one call for the given key in the current window of each limit, unless one of the limits has been
+     * reached.
+     *
+     * @param key the key under which calls are counted, see {@link RateLimitPolicy#getKey(String)}
+     * @param rateLimits the limits to check
+     * @param nowMillis the current time
+     * @return the quota of the most restrictive limit, telling whether the call is allowed
+     */
+    RateLimitQuota tryAcquire(String key, RateLimit[] rateLimits, long nowMillis);
+
+    /**
+     * Get the quota of the most restrictive limit for the given key, without counting any call. This should
+     * be cheap, and may be based on counters which are slightly out of date.
+     */
+    RateLimitQuota getQuota(String key, RateLimit[] rateLimits, long nowMillis);
+
+    /**
+     * Count calls for the given key in the current window of each limit, without checking the limits.
+     *
+     * @return the number of calls counted in the current window of each limit, completed once the backend has
+     * answered: backends storing the counters remotely answer asynchronously, and callers must bound their wait
+     */
+    ListenableFuture<long[]> incrementAndGet(String key, RateLimit[] rateLimits, long nowMillis, long delta);
+}
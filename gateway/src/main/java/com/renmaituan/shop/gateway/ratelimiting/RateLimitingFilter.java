@@ -1,38 +1,45 @@
 package com.renmaituan.shop.gateway.ratelimiting;
 
-import com.renmaituan.shop.config.JHipsterProperties;
 import com.renmaituan.shop.security.SecurityUtils;
 
-import java.util.Calendar;
-import java.util.Date;
-import javax.inject.Inject;
+import java.util.concurrent.TimeUnit;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 
 import com.netflix.zuul.ZuulFilter;
 import com.netflix.zuul.context.RequestContext;
 
 /**
  * Zuul filter for limiting the number of HTTP calls per client.
+ * <p>
+ * Every limited response has the "X-RateLimit-Limit", "X-RateLimit-Remaining" and "X-RateLimit-Reset" (in
+ * seconds since the epoch) headers of the client's most restrictive limit, and refused calls have a
+ * "Retry-After" header, in seconds.
  */
 public class RateLimitingFilter extends ZuulFilter {
 
-    private final Logger log = LoggerFactory.getLogger(RateLimitingFilter.class);
+    public static final String LIMIT_HEADER = "X-RateLimit-Limit";
+
+    public static final String REMAINING_HEADER = "X-RateLimit-Remaining";
 
-    private static final String TIME_PERIOD = "hour";
+    public static final String RESET_HEADER = "X-RateLimit-Reset";
+
+    private final Logger log = LoggerFactory.getLogger(RateLimitingFilter.class);
 
-    private long rateLimit = 100000L;
+    private final RateLimiter rateLimiter;
 
-    @Inject
-    private RateLimitingRepository rateLimitingRepository;
+    private final RateLimitPolicyIndex rateLimitPolicyIndex;
 
-    public RateLimitingFilter(RateLimitingRepository rateLimitingRepository, JHipsterProperties jHipsterProperties) {
-        this.rateLimitingRepository = rateLimitingRepository;
-        this.rateLimit = jHipsterProperties.getGateway().getRateLimiting().getLimit();
+    public RateLimitingFilter(RateLimiter rateLimiter, RateLimitPolicyIndex rateLimitPolicyIndex) {
+        this.rateLimiter = rateLimiter;
+        this.rateLimitPolicyIndex = rateLimitPolicyIndex;
     }
 
     @Override
@@ -54,25 +61,37 @@ public class RateLimitingFilter extends ZuulFilter {
 
     @Override
     public Object run() {
-        String id = getId(RequestContext.getCurrentContext().getRequest());
-        Date date = getPeriod();
-
-        // check current rate limit
-        // default limit per user is 100,000 API calls per hour
-        Long count = rateLimitingRepository.getCounter(id, TIME_PERIOD, date);
-        log.debug("Rate limiting for user {} at {} - {}",  id, date, count);
-        if (count > rateLimit) {
-            apiLimitExceeded();
-        } else {
-            // count calls per hour
-            rateLimitingRepository.incrementCounter(id, TIME_PERIOD, date);
+        RequestContext ctx = RequestContext.getCurrentContext();
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        RateLimitPolicy policy = rateLimitPolicyIndex.getPolicy((String) ctx.get("proxy"),
+            ctx.getRequest().getRequestURI(), authentication == null ? null : authentication.getAuthorities());
+        if (policy.isExempt()) {
+            return null;
+        }
+        String id = getClientId(ctx.getRequest());
+        RateLimitQuota quota = rateLimiter.tryAcquire(id, policy);
+        addRateLimitHeaders(ctx.getResponse(), quota);
+        if (!quota.isAllowed()) {
+            log.debug("Rate limiting for user {}: API rate limit exceeded for policy {}", id, policy.getName());
+            apiLimitExceeded(quota);
         }
         return null;
     }
 
-    private void apiLimitExceeded() {
+    /**
+     * Tell the client how many calls it can still make, so that it can slow down before reaching its limit.
+     */
+    private void addRateLimitHeaders(HttpServletResponse response, RateLimitQuota quota) {
+        response.setHeader(LIMIT_HEADER, Long.toString(quota.getLimit()));
+        response.setHeader(REMAINING_HEADER, Long.toString(quota.getRemaining()));
+        response.setHeader(RESET_HEADER, Long.toString(TimeUnit.MILLISECONDS.toSeconds(quota.getResetMillis())));
+    }
+
+    private void apiLimitExceeded(RateLimitQuota quota) {
         RequestContext ctx = RequestContext.getCurrentContext();
         ctx.setResponseStatusCode(HttpStatus.TOO_MANY_REQUESTS.value());
+        long retryAfterSeconds = Math.max(1, (quota.getRetryAfterMillis() + 999) / 1000);
+        ctx.getResponse().setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
         if (ctx.getResponseBody() == null) {
             ctx.setResponseBody("API rate limit exceeded");
             ctx.setSendZuulResponse(false);
@@ -82,7 +101,7 @@ public class RateLimitingFilter extends ZuulFilter {
     /**
      * The ID that will identify the limit: the user login or the user IP address.
      */
-    private String getId(HttpServletRequest httpServletRequest) {
+    public static String getClientId(HttpServletRequest httpServletRequest) {
         String login = SecurityUtils.getCurrentUserLogin();
         if (login != null) {
             return login;
@@ -90,15 +109,4 @@ public class RateLimitingFilter extends ZuulFilter {
           return httpServletRequest.getRemoteAddr();
         }
     }
-
-    /**
-     * The period for which the rate is calculated.
-     */
-    private Date getPeriod() {
-        Calendar calendar = Calendar.getInstance();
-        calendar.clear(Calendar.MILLISECOND);
-        calendar.clear(Calendar.SECOND);
-        calendar.clear(Calendar.MINUTE);
-        return calendar.getTime();
-    }
 }
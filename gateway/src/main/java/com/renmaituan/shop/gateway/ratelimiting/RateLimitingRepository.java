@@ -1,54 +1,345 @@
 package com.renmaituan.shop.gateway.ratelimiting;
 
+import com.renmaituan.shop.config.JHipsterProperties;
+
 import java.util.Date;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.datastax.driver.core.*;
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 
 /**
  * Repository storing data used by the gateway's rate limiting filter.
+ * <p>
+ * Counter increments are not written one by one: they are summed per counter in memory, and flushed as one
+ * "value = value + N" update per counter, every "jhipster.gateway.rate-limiting.write-behind.flush-interval"
+ * milliseconds or as soon as "flush-threshold" counters are pending. Counters without any increment since the
+ * last flush are retired: an increment racing with the retirement sees it, and moves to a new counter.
+ * <p>
+ * At most "max-in-flight-writes" updates are sent to Cassandra at the same time: when Cassandra is slow, the
+ * increments keep being summed in memory. At most "max-pending-counters" counters are kept in memory: when
+ * this limit is reached, increments on new counters are dropped.
  */
 public class RateLimitingRepository {
 
+    private final Logger log = LoggerFactory.getLogger(RateLimitingRepository.class);
+
     @Inject
     private Session session;
 
-    private PreparedStatement rateLimitingIncrement;
+    @Inject
+    private JHipsterProperties jHipsterProperties;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    @Inject
+    @Named("taskExecutor")
+    private Executor taskExecutor;
+
+    private PreparedStatement rateLimitingIncrementBy;
+
+    private PreparedStatement rateLimitingCounts;
+
+    private final ConcurrentMap<CounterKey, PendingCounter> pendingCounters = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean flushing = new AtomicBoolean();
+
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    private Semaphore inFlightWrites;
+
+    private int flushThreshold;
+
+    private int maxPendingCounters;
+
+    private volatile long lastFlush = System.currentTimeMillis();
 
-    private PreparedStatement rateLimitingCount;
+    private Timer flushTimer;
+
+    private Histogram flushLag;
+
+    private Counter droppedDeltas;
 
     @PostConstruct
     public void init() {
-        rateLimitingIncrement = session.prepare(
+        rateLimitingIncrementBy = session.prepare(
             "UPDATE gateway_ratelimiting\n" +
-                "  SET value = value + 1\n" +
+                "  SET value = value + :delta\n" +
                 "  WHERE id = :id AND time_unit = :time_unit AND time = :time");
 
-        rateLimitingCount = session.prepare(
-            "SELECT value\n" +
+        rateLimitingCounts = session.prepare(
+            "SELECT time, value\n" +
                 "  FROM gateway_ratelimiting\n" +
-                "  WHERE id = :id AND time_unit = :time_unit AND time = :time"
+                "  WHERE id = :id AND time_unit = :time_unit AND time IN (:previous, :current)"
         );
+
+        JHipsterProperties.Gateway.RateLimiting.WriteBehind writeBehind =
+            jHipsterProperties.getGateway().getRateLimiting().getWriteBehind();
+        inFlightWrites = new Semaphore(writeBehind.getMaxInFlightWrites());
+        flushThreshold = writeBehind.getFlushThreshold();
+        maxPendingCounters = writeBehind.getMaxPendingCounters();
+
+        flushTimer = metricRegistry.timer("gateway.ratelimiting.flush");
+        flushLag = metricRegistry.histogram("gateway.ratelimiting.flush.lag");
+        droppedDeltas = metricRegistry.counter("gateway.ratelimiting.dropped");
+        metricRegistry.register("gateway.ratelimiting.pending", (Gauge<Integer>) pendingCounters::size);
+        metricRegistry.register("gateway.ratelimiting.last-flush.age",
+            (Gauge<Long>) () -> System.currentTimeMillis() - lastFlush);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        flush();
+    }
+
+    public void incrementCounter(String id, String timeUnit, long time) {
+        incrementCounter(id, timeUnit, time, 1L);
     }
 
-    public void incrementCounter(String id, String timeUnit, Date time) {
-        BoundStatement stmt = rateLimitingIncrement.bind();
+    public void incrementCounter(String id, String timeUnit, long time, long delta) {
+        CounterKey key = new CounterKey(id, timeUnit, time);
+        while (true) {
+            PendingCounter counter = pendingCounters.get(key);
+            if (counter == null) {
+                if (pendingCounters.size() >= maxPendingCounters) {
+                    droppedDeltas.inc(delta);
+                    return;
+                }
+                counter = pendingCounters.computeIfAbsent(key, k -> new PendingCounter());
+                if (pendingCounters.size() >= flushThreshold) {
+                    requestFlush();
+                }
+            }
+            if (counter.add(delta)) {
+                return;
+            }
+            // The counter was retired by a flush
+            pendingCounters.remove(key, counter);
+        }
+    }
+
+    /**
+     * Flush early on the task executor, at most once until the flush starts. The scheduled flush still runs
+     * when the executor rejects the task.
+     */
+    private void requestFlush() {
+        if (!flushRequested.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            taskExecutor.execute(this::flush);
+        } catch (RejectedExecutionException e) {
+            flushRequested.set(false);
+            log.debug("Rate limiting: could not request an early flush: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Get the increments of a counter which have not been sent to Cassandra yet.
+     */
+    public long getPendingDelta(String id, String timeUnit, long time) {
+        PendingCounter counter = pendingCounters.get(new CounterKey(id, timeUnit, time));
+        return counter == null ? 0 : counter.getDelta();
+    }
+
+    /**
+     * Read the counters of two windows with one query.
+     *
+     * @return the values of the previous and current counters, in that order
+     */
+    public ListenableFuture<long[]> getCounters(String id, String timeUnit, long previousTime, long currentTime) {
+        BoundStatement stmt = rateLimitingCounts.bind();
         stmt.setString("id", id);
         stmt.setString("time_unit", timeUnit);
-        stmt.setTimestamp("time", time);
-        session.executeAsync(stmt);
+        stmt.setTimestamp("previous", new Date(previousTime));
+        stmt.setTimestamp("current", new Date(currentTime));
+        return Futures.transform(session.executeAsync(stmt), (Function<ResultSet, long[]>) rs -> {
+            long[] counters = new long[2];
+            for (Row row : rs) {
+                int index = row.getTimestamp("time").getTime() == currentTime ? 1 : 0;
+                counters[index] = row.getLong("value");
+            }
+            return counters;
+        });
+    }
+
+    /**
+     * Write the pending increments to Cassandra, with one update per counter.
+     */
+    @Scheduled(fixedDelayString = "${jhipster.gateway.rate-limiting.write-behind.flush-interval:100}")
+    public void flush() {
+        flushRequested.set(false);
+        if (!flushing.compareAndSet(false, true)) {
+            return;
+        }
+        try (Timer.Context ignored = flushTimer.time()) {
+            long now = System.currentTimeMillis();
+            long oldestPending = now;
+            boolean written = false;
+            for (Map.Entry<CounterKey, PendingCounter> entry : pendingCounters.entrySet()) {
+                PendingCounter counter = entry.getValue();
+                if (counter.retireIfIdle()) {
+                    // No increment since the last flush: the counter is not used anymore
+                    pendingCounters.remove(entry.getKey(), counter);
+                    continue;
+                }
+                if (!inFlightWrites.tryAcquire()) {
+                    log.debug("Rate limiting: too many writes in flight, keeping {} counters pending",
+                        pendingCounters.size());
+                    break;
+                }
+                long pendingSince = counter.pendingSince;
+                counter.pendingSince = 0;
+                long delta = counter.takeDelta();
+                if (delta > 0) {
+                    if (pendingSince > 0) {
+                        oldestPending = Math.min(oldestPending, pendingSince);
+                    }
+                    written = true;
+                    write(entry.getKey(), delta);
+                } else {
+                    inFlightWrites.release();
+                }
+            }
+            if (written) {
+                flushLag.update(now - oldestPending);
+            }
+            lastFlush = now;
+        } finally {
+            flushing.set(false);
+        }
+    }
+
+    /**
+     * Send one increment, the caller must have acquired a permit from inFlightWrites.
+     */
+    private void write(CounterKey key, long delta) {
+        ListenableFuture<ResultSet> future = executeIncrement(key.id, key.timeUnit, key.time, delta);
+        Futures.addCallback(future, new FutureCallback<ResultSet>() {
+
+            @Override
+            public void onSuccess(ResultSet result) {
+                inFlightWrites.release();
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                inFlightWrites.release();
+                // Counter updates are not idempotent, so failed writes are not retried
+                droppedDeltas.inc(delta);
+                log.warn("Rate limiting: could not write {} calls for {}: {}", delta, key.id, t.getMessage());
+            }
+        });
     }
 
-    public long getCounter(String id, String timeUnit, Date time) {
-        BoundStatement stmt = rateLimitingCount.bind();
+    /**
+     * Send the "value = value + delta" update of one counter.
+     */
+    ListenableFuture<ResultSet> executeIncrement(String id, String timeUnit, long time, long delta) {
+        BoundStatement stmt = rateLimitingIncrementBy.bind();
         stmt.setString("id", id);
         stmt.setString("time_unit", timeUnit);
-        stmt.setTimestamp("time", time);
-        ResultSet rs = session.execute(stmt);
-        if (rs.isExhausted()) {
-            return 0;
+        stmt.setTimestamp("time", new Date(time));
+        stmt.setLong("delta", delta);
+        return session.executeAsync(stmt);
+    }
+
+    private static final class CounterKey {
+
+        private final String id;
+
+        private final String timeUnit;
+
+        private final long time;
+
+        CounterKey(String id, String timeUnit, long time) {
+            this.id = id;
+            this.timeUnit = timeUnit;
+            this.time = time;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            CounterKey that = (CounterKey) o;
+            return time == that.time && id.equals(that.id) && timeUnit.equals(that.timeUnit);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(id, timeUnit, time);
+        }
+    }
+
+    /**
+     * Increments of a counter which have not been written yet. A retired counter holds a negative value, so
+     * that an increment either lands before the retirement, or is refused and added to a new counter.
+     */
+    private static final class PendingCounter {
+
+        private static final long RETIRED = Long.MIN_VALUE;
+
+        private final AtomicLong delta = new AtomicLong();
+
+        private volatile long pendingSince;
+
+        /**
+         * @return false if the counter was retired, and the increment was not added
+         */
+        boolean add(long increment) {
+            long current;
+            do {
+                current = delta.get();
+                if (current == RETIRED) {
+                    return false;
+                }
+            } while (!delta.compareAndSet(current, current + increment));
+            if (pendingSince == 0) {
+                pendingSince = System.currentTimeMillis();
+            }
+            return true;
+        }
+
+        boolean retireIfIdle() {
+            return delta.get() == 0 && pendingSince == 0 && delta.compareAndSet(0, RETIRED);
+        }
+
+        long getDelta() {
+            return Math.max(0, delta.get());
+        }
+
+        long takeDelta() {
+            return delta.getAndSet(0);
         }
-        return rs.one().getLong(0);
     }
 }
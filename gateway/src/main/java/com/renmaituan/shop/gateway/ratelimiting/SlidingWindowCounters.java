@@ -0,0 +1,112 @@
+package com.renmaituan.shop.gateway.ratelimiting;
+
+/**
+ * Sliding window counters of a key, stored in a plain {@code long[]} so they can be kept in a map and
+ * updated in place by the in-memory and Hazelcast backends.
+ * <p>
+ * For each limit {@code i}, the array holds the start of the current window at {@code 3 * i}, and the number
+ * of calls counted in the previous and current windows at {@code 3 * i + 1} and {@code 3 * i + 2}.
+ * <p>
+ * This class is not thread-safe: callers must update a given array from one thread at a time.
+ */
+final class SlidingWindowCounters {
+
+    private SlidingWindowCounters() {
+    }
+
+    /**
+     * @return the counters to use for the given limits, reusing the existing ones if they match the limits
+     */
+    static long[] of(long[] counters, RateLimit[] rateLimits) {
+        if (counters == null || counters.length != 3 * rateLimits.length) {
+            return new long[3 * rateLimits.length];
+        }
+        return counters;
+    }
+
+    static RateLimitQuota tryAcquire(long[] counters, RateLimit[] rateLimits, long nowMillis) {
+        roll(counters, rateLimits, nowMillis);
+        boolean allowed = true;
+        for (int i = 0; i < rateLimits.length && allowed; i++) {
+            long count = rateLimits[i].estimate(counters[3 * i + 1], counters[3 * i + 2], nowMillis);
+            allowed = count < rateLimits[i].getLimit();
+        }
+        if (allowed) {
+            for (int i = 0; i < rateLimits.length; i++) {
+                counters[3 * i + 2]++;
+            }
+        }
+        return getQuota(counters, rateLimits, nowMillis, allowed);
+    }
+
+    /**
+     * Get the quota of the most restrictive limit, without updating the counters.
+     */
+    static RateLimitQuota getQuota(long[] counters, RateLimit[] rateLimits, long nowMillis, boolean allowed) {
+        RateLimitQuota quota = null;
+        for (int i = 0; i < rateLimits.length; i++) {
+            long window = rateLimits[i].getWindow(nowMillis);
+            long counterWindow = counters[3 * i];
+            long previous = 0;
+            long current = 0;
+            if (counterWindow == window) {
+                previous = counters[3 * i + 1];
+                current = counters[3 * i + 2];
+            } else if (counterWindow == window - rateLimits[i].getPeriodMillis()) {
+                previous = counters[3 * i + 2];
+            }
+            quota = RateLimitQuota.mostRestrictive(quota,
+                rateLimits[i].getQuota(previous, current, nowMillis, allowed));
+        }
+        return quota;
+    }
+
+    static long[] incrementAndGet(long[] counters, RateLimit[] rateLimits, long nowMillis, long delta) {
+        roll(counters, rateLimits, nowMillis);
+        long[] current = new long[rateLimits.length];
+        for (int i = 0; i < rateLimits.length; i++) {
+            counters[3 * i + 2] += delta;
+            current[i] = counters[3 * i + 2];
+        }
+        return current;
+    }
+
+    /**
+     * Replace the counters of one limit with values read from another store.
+     */
+    static void set(long[] counters, RateLimit[] rateLimits, int index, long nowMillis, long previous,
+        long current) {
+
+        counters[3 * index] = rateLimits[index].getWindow(nowMillis);
+        counters[3 * index + 1] = previous;
+        counters[3 * index + 2] = current;
+    }
+
+    /**
+     * @return true if the counters have not been used during the last period of every limit
+     */
+    static boolean isExpired(long[] counters, RateLimit[] rateLimits, long nowMillis) {
+        for (int i = 0; i < rateLimits.length; i++) {
+            if (counters[3 * i] >= rateLimits[i].getWindow(nowMillis) - rateLimits[i].getPeriodMillis()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Move the counters to the current window of each limit.
+     */
+    private static void roll(long[] counters, RateLimit[] rateLimits, long nowMillis) {
+        for (int i = 0; i < rateLimits.length; i++) {
+            long window = rateLimits[i].getWindow(nowMillis);
+            long counterWindow = counters[3 * i];
+            if (counterWindow == window) {
+                continue;
+            }
+            counters[3 * i + 1] = counterWindow == window - rateLimits[i].getPeriodMillis() ? counters[3 * i + 2] : 0;
+            counters[3 * i + 2] = 0;
+            counters[3 * i] = window;
+        }
+    }
+}
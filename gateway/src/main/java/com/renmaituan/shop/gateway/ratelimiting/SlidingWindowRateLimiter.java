@@ -0,0 +1,28 @@
+package com.renmaituan.shop.gateway.ratelimiting;
+
+/**
+ * Rate limiter using sliding window counters, stored in a {@link RateLimiterBackend}.
+ * <p>
+ * As the previous window is taken into account, a client cannot make twice its limit by bursting around the
+ * end of a window.
+ */
+public class SlidingWindowRateLimiter implements RateLimiter {
+
+    private final RateLimiterBackend rateLimiterBackend;
+
+    public SlidingWindowRateLimiter(RateLimiterBackend rateLimiterBackend) {
+        this.rateLimiterBackend = rateLimiterBackend;
+    }
+
+    @Override
+    public RateLimitQuota tryAcquire(String id, RateLimitPolicy policy) {
+        return rateLimiterBackend.tryAcquire(policy.getKey(id), policy.getRateLimitArray(),
+            System.currentTimeMillis());
+    }
+
+    @Override
+    public RateLimitQuota getQuota(String id, RateLimitPolicy policy) {
+        return rateLimiterBackend.getQuota(policy.getKey(id), policy.getRateLimitArray(),
+            System.currentTimeMillis());
+    }
+}
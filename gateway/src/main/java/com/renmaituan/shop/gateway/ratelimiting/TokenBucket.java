@@ -0,0 +1,95 @@
+package com.renmaituan.shop.gateway.ratelimiting;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket, implemented with the Generic Cell Rate Algorithm.
+ * <p>
+ * The whole state of the bucket is a single "theoretical arrival time", updated with a compare-and-set, so
+ * it can be shared by all the request threads without any locking. The bucket holds at most
+ * {@code capacity} tokens, and is fully refilled over {@code period}.
+ */
+public class TokenBucket {
+
+    private final long capacity;
+
+    private final long periodNanos;
+
+    private final long emissionIntervalNanos;
+
+    private final AtomicLong theoreticalArrivalTime;
+
+    public TokenBucket(long capacity, long period, TimeUnit unit, long nowNanos) {
+        this.capacity = capacity;
+        this.periodNanos = unit.toNanos(period);
+        this.emissionIntervalNanos = Math.max(1L, this.periodNanos / Math.max(1L, capacity));
+        this.theoreticalArrivalTime = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Try to take one token from the bucket.
+     *
+     * @param nowNanos the current time, as given by {@link System#nanoTime()}
+     * @return true if a token was available, false if the bucket is empty
+     */
+    public boolean tryConsume(long nowNanos) {
+        while (true) {
+            long tat = theoreticalArrivalTime.get();
+            long newTat = Math.max(tat, nowNanos) + emissionIntervalNanos;
+            if (newTat - nowNanos > periodNanos) {
+                return false;
+            }
+            if (theoreticalArrivalTime.compareAndSet(tat, newTat)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Remove tokens from the bucket without checking whether they are available, for example because they
+     * have been consumed on another node. The bucket is never emptied further than zero tokens.
+     */
+    public void forceConsume(long tokens, long nowNanos) {
+        if (tokens <= 0) {
+            return;
+        }
+        long increment = tokens >= capacity ? periodNanos : tokens * emissionIntervalNanos;
+        theoreticalArrivalTime.updateAndGet(tat ->
+            Math.min(Math.max(tat, nowNanos) + increment, nowNanos + periodNanos));
+    }
+
+    /**
+     * Give back a token taken by {@link #tryConsume(long)}, for example because the call was refused by
+     * another limit.
+     */
+    public void refund() {
+        theoreticalArrivalTime.addAndGet(-emissionIntervalNanos);
+    }
+
+    /**
+     * @return the number of tokens that can currently be consumed
+     */
+    public long getAvailableTokens(long nowNanos) {
+        long used = Math.max(theoreticalArrivalTime.get(), nowNanos) - nowNanos;
+        return Math.min(capacity, (periodNanos - used) / emissionIntervalNanos);
+    }
+
+    /**
+     * @return the time, in nanoseconds, until the bucket is full again
+     */
+    public long getNanosUntilFull(long nowNanos) {
+        return Math.max(theoreticalArrivalTime.get(), nowNanos) - nowNanos;
+    }
+
+    /**
+     * @return the time, in nanoseconds, until a token can be consumed, 0 if one is available right now
+     */
+    public long getNanosUntilAvailable(long nowNanos) {
+        return Math.max(0, theoreticalArrivalTime.get() + emissionIntervalNanos - periodNanos - nowNanos);
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+}
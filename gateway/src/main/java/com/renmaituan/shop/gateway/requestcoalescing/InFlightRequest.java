@@ -0,0 +1,64 @@
+package com.renmaituan.shop.gateway.requestcoalescing;
+
+import com.renmaituan.shop.gateway.responsecaching.CachedResponse;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A proxied request, whose response is shared with the identical requests received while it is in flight.
+ */
+class InFlightRequest {
+
+    private final String key;
+
+    private final ConcurrentMap<String, InFlightRequest> inFlightRequests;
+
+    private final long deadline;
+
+    private final CompletableFuture<CachedResponse> response = new CompletableFuture<>();
+
+    InFlightRequest(String key, ConcurrentMap<String, InFlightRequest> inFlightRequests, long deadline) {
+        this.key = key;
+        this.inFlightRequests = inFlightRequests;
+        this.deadline = deadline;
+    }
+
+    /**
+     * @return true if the request has not completed before its deadline, new identical requests should then
+     * not wait for it anymore
+     */
+    boolean isAbandoned(long now) {
+        return now >= deadline;
+    }
+
+    long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Wait for the response of the request.
+     *
+     * @return the response, or null if it cannot be shared
+     */
+    CachedResponse await(long timeoutMillis) throws InterruptedException, TimeoutException {
+        try {
+            return response.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Complete the request, and wake up the identical requests waiting for it.
+     *
+     * @param response the response to share, or null if it cannot be shared
+     */
+    void complete(CachedResponse response) {
+        inFlightRequests.remove(key, this);
+        this.response.complete(response);
+    }
+}
@@ -0,0 +1,20 @@
+package com.renmaituan.shop.gateway.requestcoalescing;
+
+import com.renmaituan.shop.config.JHipsterProperties;
+
+/**
+ * Zuul error filter completing the requests led by this gateway when a filter fails, as the
+ * {@link RequestCoalescingPostFilter} may then not run: the waiting requests are proxied at once, instead of
+ * waiting until the timeout.
+ */
+public class RequestCoalescingErrorFilter extends RequestCoalescingPostFilter {
+
+    public RequestCoalescingErrorFilter(JHipsterProperties.Gateway.RequestCoalescing properties) {
+        super(properties);
+    }
+
+    @Override
+    public String filterType() {
+        return "error";
+    }
+}
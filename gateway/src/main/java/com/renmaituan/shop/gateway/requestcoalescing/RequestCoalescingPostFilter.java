@@ -0,0 +1,78 @@
+package com.renmaituan.shop.gateway.requestcoalescing;
+
+import com.renmaituan.shop.config.JHipsterProperties;
+import com.renmaituan.shop.gateway.responsecaching.CachedResponse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import com.netflix.zuul.ZuulFilter;
+import com.netflix.zuul.context.RequestContext;
+
+/**
+ * Zuul filter sharing the response of a proxied request with the identical requests waiting for it, see
+ * {@link RequestCoalescingPreFilter}.
+ * <p>
+ * Only the "200 OK" responses are shared, unless they set a cookie or are bigger than
+ * "jhipster.gateway.request-coalescing.max-response-size". Each in-flight request is completed once: by this
+ * filter, or by the {@link RequestCoalescingErrorFilter} when a filter fails, as Zuul then skips the remaining
+ * post filters.
+ */
+public class RequestCoalescingPostFilter extends ZuulFilter {
+
+    private final Logger log = LoggerFactory.getLogger(RequestCoalescingPostFilter.class);
+
+    private final JHipsterProperties.Gateway.RequestCoalescing properties;
+
+    public RequestCoalescingPostFilter(JHipsterProperties.Gateway.RequestCoalescing properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public String filterType() {
+        return "post";
+    }
+
+    @Override
+    public int filterOrder() {
+        // after the response cache, which may have replaced a "304 Not Modified" response, and before the
+        // SendResponseFilter
+        return 910;
+    }
+
+    @Override
+    public boolean shouldFilter() {
+        return RequestContext.getCurrentContext().containsKey(RequestCoalescingPreFilter.IN_FLIGHT_REQUEST);
+    }
+
+    @Override
+    public Object run() {
+        RequestContext ctx = RequestContext.getCurrentContext();
+        InFlightRequest inFlightRequest =
+            (InFlightRequest) ctx.remove(RequestCoalescingPreFilter.IN_FLIGHT_REQUEST);
+        CachedResponse response = null;
+        try {
+            if (ctx.getThrowable() == null && ctx.getResponseStatusCode() == HttpStatus.OK.value() &&
+                CachedResponse.getResponseHeader(ctx, HttpHeaders.SET_COOKIE) == null) {
+
+                byte[] body = CachedResponse.readBody(ctx, properties.getMaxResponseSize());
+                if (body != null) {
+                    long now = System.currentTimeMillis();
+                    response = new CachedResponse(ctx.getResponseStatusCode(),
+                        new ArrayList<>(ctx.getZuulResponseHeaders()), body, ctx.getResponseGZipped(),
+                        CachedResponse.getResponseHeader(ctx, HttpHeaders.ETAG), now, now);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Request coalescing: could not read the response body: {}", e.getMessage());
+        } finally {
+            inFlightRequest.complete(response);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,132 @@
+package com.renmaituan.shop.gateway.requestcoalescing;
+
+import com.renmaituan.shop.config.JHipsterProperties;
+import com.renmaituan.shop.gateway.responsecaching.CachedResponse;
+import com.renmaituan.shop.security.SecurityUtils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeoutException;
+import javax.servlet.http.HttpServletRequest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.netflix.zuul.ZuulFilter;
+import com.netflix.zuul.context.RequestContext;
+
+/**
+ * Zuul filter coalescing the identical GET requests, for the routes listed in
+ * "jhipster.gateway.request-coalescing.routes".
+ * <p>
+ * While a request is proxied to a micro-service, the identical requests, with the same path, query string,
+ * "Accept" and "Accept-Language" headers and user, wait for its response instead of being proxied too; the
+ * response is shared by the {@link RequestCoalescingPostFilter}. If the response cannot be shared, or does not
+ * come before the timeout, the waiting requests are proxied as usual.
+ * <p>
+ * Conditional and range requests are never coalesced: their partial or "304 Not Modified" responses only
+ * make sense for the client that sent them.
+ */
+public class RequestCoalescingPreFilter extends ZuulFilter {
+
+    static final String IN_FLIGHT_REQUEST = "inFlightRequest";
+
+    private static final String[] CONDITIONAL_HEADERS = { HttpHeaders.IF_NONE_MATCH, HttpHeaders.IF_MODIFIED_SINCE,
+        HttpHeaders.IF_MATCH, HttpHeaders.IF_UNMODIFIED_SINCE, HttpHeaders.IF_RANGE, HttpHeaders.RANGE };
+
+    private final Logger log = LoggerFactory.getLogger(RequestCoalescingPreFilter.class);
+
+    private final ConcurrentMap<String, InFlightRequest> inFlightRequests = new ConcurrentHashMap<>();
+
+    private final JHipsterProperties.Gateway.RequestCoalescing properties;
+
+    private final Meter coalesced;
+
+    private final Meter timeouts;
+
+    public RequestCoalescingPreFilter(JHipsterProperties.Gateway.RequestCoalescing properties,
+        MetricRegistry metricRegistry) {
+
+        this.properties = properties;
+        this.coalesced = metricRegistry.meter("gateway.request-coalescing.coalesced");
+        this.timeouts = metricRegistry.meter("gateway.request-coalescing.timeouts");
+        metricRegistry.register("gateway.request-coalescing.in-flight",
+            (Gauge<Integer>) inFlightRequests::size);
+    }
+
+    @Override
+    public String filterType() {
+        return "pre";
+    }
+
+    @Override
+    public int filterOrder() {
+        // after the response cache, so that only cache misses are coalesced
+        return 30;
+    }
+
+    @Override
+    public boolean shouldFilter() {
+        RequestContext ctx = RequestContext.getCurrentContext();
+        return ctx.sendZuulResponse() && "GET".equals(ctx.getRequest().getMethod()) &&
+            properties.getRoutes().contains(ctx.get("proxy")) && !isConditional(ctx.getRequest());
+    }
+
+    @Override
+    public Object run() {
+        RequestContext ctx = RequestContext.getCurrentContext();
+        String key = getKey((String) ctx.get("proxy"), ctx.getRequest());
+        long now = System.currentTimeMillis();
+        InFlightRequest inFlightRequest = new InFlightRequest(key, inFlightRequests, now + properties.getTimeout());
+        InFlightRequest leader = inFlightRequests.putIfAbsent(key, inFlightRequest);
+        while (leader != null && leader.isAbandoned(now)) {
+            leader = inFlightRequests.replace(key, leader, inFlightRequest) ? null :
+                inFlightRequests.putIfAbsent(key, inFlightRequest);
+        }
+        if (leader == null) {
+            ctx.set(IN_FLIGHT_REQUEST, inFlightRequest);
+            return null;
+        }
+
+        try {
+            CachedResponse response = leader.await(leader.getDeadline() - now);
+            if (response != null) {
+                coalesced.mark();
+                response.send(ctx);
+            }
+        } catch (TimeoutException e) {
+            log.debug("Request coalescing: {} timed out, proxying the request", key);
+            timeouts.mark();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    private String getKey(String routeId, HttpServletRequest request) {
+        StringBuilder key = new StringBuilder(routeId).append(' ').append(request.getRequestURI());
+        if (request.getQueryString() != null) {
+            key.append('?').append(request.getQueryString());
+        }
+        if (request.getHeader(HttpHeaders.ACCEPT) != null) {
+            key.append(" accept:").append(request.getHeader(HttpHeaders.ACCEPT));
+        }
+        if (request.getHeader(HttpHeaders.ACCEPT_LANGUAGE) != null) {
+            key.append(" accept-language:").append(request.getHeader(HttpHeaders.ACCEPT_LANGUAGE));
+        }
+        return key.append(" user:").append(SecurityUtils.getCurrentUserLogin()).toString();
+    }
+
+    private boolean isConditional(HttpServletRequest request) {
+        for (String header : CONDITIONAL_HEADERS) {
+            if (request.getHeader(header) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,165 @@
+package com.renmaituan.shop.gateway.responsecaching;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.Serializable;
+import java.util.List;
+
+import com.netflix.util.Pair;
+import com.netflix.zuul.context.RequestContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+/**
+ * A response of a micro-service, stored in the {@link ResponseCache}.
+ * <p>
+ * A response is fresh until it expires, as set by the "max-age" of its "Cache-Control" header or by the
+ * route configuration. It is then kept for a while, so that it can be revalidated with its ETag.
+ */
+public class CachedResponse implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int status;
+
+    private final String[] headerNames;
+
+    private final String[] headerValues;
+
+    private final byte[] body;
+
+    private final boolean gzipped;
+
+    private final String eTag;
+
+    private final long expires;
+
+    private final long retainUntil;
+
+    public CachedResponse(int status, List<Pair<String, String>> headers, byte[] body, boolean gzipped,
+        String eTag, long expires, long retainUntil) {
+
+        this.status = status;
+        this.headerNames = new String[headers.size()];
+        this.headerValues = new String[headers.size()];
+        for (int i = 0; i < headers.size(); i++) {
+            headerNames[i] = headers.get(i).first();
+            headerValues[i] = headers.get(i).second();
+        }
+        this.body = body;
+        this.gzipped = gzipped;
+        this.eTag = eTag;
+        this.expires = expires;
+        this.retainUntil = retainUntil;
+    }
+
+    private CachedResponse(CachedResponse response, long expires, long retainUntil) {
+        this.status = response.status;
+        this.headerNames = response.headerNames;
+        this.headerValues = response.headerValues;
+        this.body = response.body;
+        this.gzipped = response.gzipped;
+        this.eTag = response.eTag;
+        this.expires = expires;
+        this.retainUntil = retainUntil;
+    }
+
+    /**
+     * @return a copy of this response, revalidated by the micro-service until the given time
+     */
+    public CachedResponse revalidate(long expires, long retainUntil) {
+        return new CachedResponse(this, expires, retainUntil);
+    }
+
+    /**
+     * Send this response instead of calling the micro-service, or a 304 (Not Modified) response if the
+     * client already has it.
+     */
+    public void send(RequestContext ctx) {
+        ctx.getZuulResponseHeaders().clear();
+        if (eTag != null && eTag.equals(ctx.getRequest().getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            ctx.setResponseStatusCode(HttpStatus.NOT_MODIFIED.value());
+            ctx.addZuulResponseHeader(HttpHeaders.ETAG, eTag);
+            ctx.setResponseDataStream(null);
+        } else {
+            ctx.setResponseStatusCode(status);
+            for (int i = 0; i < headerNames.length; i++) {
+                ctx.addZuulResponseHeader(headerNames[i], headerValues[i]);
+            }
+            ctx.setResponseGZipped(gzipped);
+            ctx.setOriginContentLength((long) body.length);
+            ctx.setResponseDataStream(new ByteArrayInputStream(body));
+        }
+        ctx.setSendZuulResponse(false);
+    }
+
+    public boolean isFresh(long now) {
+        return now < expires;
+    }
+
+    /**
+     * @return true if this response should not be used anymore, even for a revalidation
+     */
+    public boolean isExpired(long now) {
+        return now >= retainUntil;
+    }
+
+    public long getRetainUntil() {
+        return retainUntil;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public int getSize() {
+        return body.length;
+    }
+
+    /**
+     * Read the body of the response of the micro-service, unless it is bigger than the given size. The response
+     * data stream is replaced so that the response can still be sent.
+     *
+     * @return the response body, or null if there is none or if it is too big
+     */
+    public static byte[] readBody(RequestContext ctx, int maxSize) throws IOException {
+        InputStream responseDataStream = ctx.getResponseDataStream();
+        Long contentLength = ctx.getOriginContentLength();
+        if (responseDataStream == null || contentLength != null && contentLength > maxSize) {
+            return null;
+        }
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        boolean complete = false;
+        try {
+            int read;
+            while (body.size() <= maxSize && (read = responseDataStream.read(buffer)) != -1) {
+                body.write(buffer, 0, read);
+            }
+            complete = body.size() <= maxSize;
+        } finally {
+            if (!complete) {
+                ctx.setResponseDataStream(new SequenceInputStream(new ByteArrayInputStream(body.toByteArray()),
+                    responseDataStream));
+            }
+        }
+        if (!complete) {
+            return null;
+        }
+        byte[] bytes = body.toByteArray();
+        ctx.setResponseDataStream(new ByteArrayInputStream(bytes));
+        return bytes;
+    }
+
+    public static String getResponseHeader(RequestContext ctx, String name) {
+        for (Pair<String, String> header : ctx.getZuulResponseHeaders()) {
+            if (name.equalsIgnoreCase(header.first())) {
+                return header.second();
+            }
+        }
+        return null;
+    }
+}
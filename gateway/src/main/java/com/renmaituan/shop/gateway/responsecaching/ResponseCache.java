@@ -0,0 +1,75 @@
+package com.renmaituan.shop.gateway.responsecaching;
+
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+
+/**
+ * Stores the cached responses of the micro-services.
+ * <p>
+ * Responses are stored in a local tier, bounded by the total size of their bodies, and optionally in the
+ * "gateway-response-cache" Hazelcast map, so that a response cached by one gateway node can be used by the
+ * others. The Hazelcast tier is only a best effort: when it cannot be reached, only the local tier is used.
+ */
+public class ResponseCache {
+
+    public static final String MAP_NAME = "gateway-response-cache";
+
+    private final Logger log = LoggerFactory.getLogger(ResponseCache.class);
+
+    private final Cache<String, CachedResponse> localCache;
+
+    private final IMap<String, CachedResponse> distributedCache;
+
+    /**
+     * @param maxSize the maximum size of the local tier, in bytes
+     * @param hazelcastInstance the Hazelcast instance of the distributed tier, null to only use the local tier
+     */
+    public ResponseCache(long maxSize, HazelcastInstance hazelcastInstance) {
+        this.localCache = CacheBuilder.newBuilder()
+            .maximumWeight(maxSize)
+            .weigher((String key, CachedResponse response) -> key.length() + response.getSize())
+            .build();
+        this.distributedCache = hazelcastInstance == null ? null : hazelcastInstance.getMap(MAP_NAME);
+    }
+
+    /**
+     * @return the cached response, fresh or not, or null if there is none
+     */
+    public CachedResponse get(String key, long now) {
+        CachedResponse response = localCache.getIfPresent(key);
+        if (response == null && distributedCache != null) {
+            try {
+                response = distributedCache.get(key);
+            } catch (RuntimeException e) {
+                log.warn("Response cache: could not read from Hazelcast: {}", e.getMessage());
+            }
+            if (response != null) {
+                localCache.put(key, response);
+            }
+        }
+        if (response != null && response.isExpired(now)) {
+            localCache.invalidate(key);
+            return null;
+        }
+        return response;
+    }
+
+    public void put(String key, CachedResponse response, long now) {
+        localCache.put(key, response);
+        if (distributedCache != null) {
+            try {
+                distributedCache.set(key, response, Math.max(1, response.getRetainUntil() - now),
+                    TimeUnit.MILLISECONDS);
+            } catch (RuntimeException e) {
+                log.warn("Response cache: could not write to Hazelcast: {}", e.getMessage());
+            }
+        }
+    }
+}
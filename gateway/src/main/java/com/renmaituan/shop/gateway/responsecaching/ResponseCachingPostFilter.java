@@ -0,0 +1,157 @@
+package com.renmaituan.shop.gateway.responsecaching;
+
+import com.renmaituan.shop.config.JHipsterProperties;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.netflix.zuul.ZuulFilter;
+import com.netflix.zuul.context.RequestContext;
+
+/**
+ * Zuul filter storing the responses of the micro-services in the {@link ResponseCache}, and sending the
+ * stale responses they have revalidated.
+ * <p>
+ * Only successful responses are stored, unless their "Cache-Control" header has "no-store", or "private"
+ * while the route does not vary by user, or they set a cookie. They are fresh for the "s-maxage" or
+ * "max-age" of their "Cache-Control" header, or for the "time-to-live-seconds" of the route, and are then
+ * kept for "jhipster.gateway.response-caching.stale-retention-seconds" to be revalidated with their ETag.
+ * <p>
+ * The micro-services keep the default "Cache-Control: no-cache, no-store, max-age=0, must-revalidate" header of
+ * Spring Security, unless their resources set their own. For the routes with "ignore-cache-control", the
+ * "Cache-Control" header of the micro-service is ignored: its responses are stored for the
+ * "time-to-live-seconds" of the route. This must only be set for routes whose responses can safely be shared
+ * as configured by their "vary-by" key.
+ */
+public class ResponseCachingPostFilter extends ZuulFilter {
+
+    private final Logger log = LoggerFactory.getLogger(ResponseCachingPostFilter.class);
+
+    private final ResponseCache responseCache;
+
+    private final JHipsterProperties.Gateway.ResponseCaching properties;
+
+    private final Meter revalidations;
+
+    public ResponseCachingPostFilter(ResponseCache responseCache,
+        JHipsterProperties.Gateway.ResponseCaching properties, MetricRegistry metricRegistry) {
+
+        this.responseCache = responseCache;
+        this.properties = properties;
+        this.revalidations = metricRegistry.meter("gateway.response-cache.revalidations");
+    }
+
+    @Override
+    public String filterType() {
+        return "post";
+    }
+
+    @Override
+    public int filterOrder() {
+        // before the SendResponseFilter
+        return 900;
+    }
+
+    @Override
+    public boolean shouldFilter() {
+        RequestContext ctx = RequestContext.getCurrentContext();
+        return ctx.containsKey(ResponseCachingPreFilter.CACHE_KEY) &&
+            !ctx.containsKey(ResponseCachingPreFilter.CACHE_HIT) && ctx.getThrowable() == null;
+    }
+
+    @Override
+    public Object run() {
+        RequestContext ctx = RequestContext.getCurrentContext();
+        String key = (String) ctx.get(ResponseCachingPreFilter.CACHE_KEY);
+        JHipsterProperties.Gateway.ResponseCaching.Route route =
+            properties.getRoutes().get((String) ctx.get("proxy"));
+        String cacheControl = route.isIgnoreCacheControl() ? null :
+            CachedResponse.getResponseHeader(ctx, HttpHeaders.CACHE_CONTROL);
+        long now = System.currentTimeMillis();
+
+        CachedResponse staleResponse = (CachedResponse) ctx.get(ResponseCachingPreFilter.STALE_RESPONSE);
+        if (ctx.getResponseStatusCode() == HttpStatus.NOT_MODIFIED.value() && staleResponse != null) {
+            long timeToLive = getTimeToLiveMillis(cacheControl, route);
+            CachedResponse response = staleResponse.revalidate(now + timeToLive, now + timeToLive +
+                TimeUnit.SECONDS.toMillis(properties.getStaleRetentionSeconds()));
+            responseCache.put(key, response, now);
+            revalidations.mark();
+            response.send(ctx);
+            return null;
+        }
+        if (ctx.getResponseStatusCode() != HttpStatus.OK.value() || !isCacheable(ctx, cacheControl, route)) {
+            return null;
+        }
+        String eTag = CachedResponse.getResponseHeader(ctx, HttpHeaders.ETAG);
+        long timeToLive = getTimeToLiveMillis(cacheControl, route);
+        if (timeToLive <= 0 && eTag == null) {
+            return null;
+        }
+        byte[] body;
+        try {
+            body = CachedResponse.readBody(ctx, properties.getMaxEntrySize());
+        } catch (IOException e) {
+            log.warn("Response cache: could not read the response body: {}", e.getMessage());
+            return null;
+        }
+        if (body != null) {
+            long retainUntil = now + timeToLive +
+                (eTag == null ? 0 : TimeUnit.SECONDS.toMillis(properties.getStaleRetentionSeconds()));
+            responseCache.put(key, new CachedResponse(ctx.getResponseStatusCode(),
+                new ArrayList<>(ctx.getZuulResponseHeaders()), body, ctx.getResponseGZipped(), eTag,
+                now + timeToLive, retainUntil), now);
+            log.debug("Response cache: stored {} for {} ms", key, timeToLive);
+        }
+        return null;
+    }
+
+    private boolean isCacheable(RequestContext ctx, String cacheControl,
+        JHipsterProperties.Gateway.ResponseCaching.Route route) {
+
+        if (cacheControl != null && (cacheControl.contains("no-store") ||
+            cacheControl.contains("private") && !"principal".equals(route.getVaryBy()))) {
+            return false;
+        }
+        String vary = CachedResponse.getResponseHeader(ctx, HttpHeaders.VARY);
+        return CachedResponse.getResponseHeader(ctx, HttpHeaders.SET_COOKIE) == null &&
+            (vary == null || !vary.contains("*"));
+    }
+
+    private long getTimeToLiveMillis(String cacheControl, JHipsterProperties.Gateway.ResponseCaching.Route route) {
+        if (cacheControl != null) {
+            if (cacheControl.contains("no-cache")) {
+                return 0;
+            }
+            Long maxAge = getDirective(cacheControl, "s-maxage=");
+            if (maxAge == null) {
+                maxAge = getDirective(cacheControl, "max-age=");
+            }
+            if (maxAge != null) {
+                return TimeUnit.SECONDS.toMillis(maxAge);
+            }
+        }
+        return TimeUnit.SECONDS.toMillis(route.getTimeToLiveSeconds());
+    }
+
+    private Long getDirective(String cacheControl, String directive) {
+        for (String token : cacheControl.split(",")) {
+            token = token.trim();
+            if (token.startsWith(directive)) {
+                try {
+                    return Long.parseLong(token.substring(directive.length()));
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+}
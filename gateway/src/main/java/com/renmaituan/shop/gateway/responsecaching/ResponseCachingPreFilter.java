@@ -0,0 +1,124 @@
+package com.renmaituan.shop.gateway.responsecaching;
+
+import com.renmaituan.shop.config.JHipsterProperties;
+import com.renmaituan.shop.security.SecurityUtils;
+
+import java.util.Collection;
+import java.util.TreeSet;
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.netflix.zuul.ZuulFilter;
+import com.netflix.zuul.context.RequestContext;
+
+/**
+ * Zuul filter answering GET requests from the {@link ResponseCache}, for the routes configured with the
+ * "jhipster.gateway.response-caching.routes" keys.
+ * <p>
+ * Responses are cached per route, path, query string and "Accept" header, and by default per user: the
+ * "vary-by" key of a route can be set to "authorities" to share the responses between the users having the
+ * same authorities, or to "none" to share them between all users. A fresh response is sent without calling
+ * the micro-service; a stale response with an ETag is revalidated by the {@link ResponseCachingPostFilter}.
+ */
+public class ResponseCachingPreFilter extends ZuulFilter {
+
+    static final String CACHE_KEY = "responseCacheKey";
+
+    static final String CACHE_HIT = "responseCacheHit";
+
+    static final String STALE_RESPONSE = "responseCacheStaleResponse";
+
+    private final ResponseCache responseCache;
+
+    private final JHipsterProperties.Gateway.ResponseCaching properties;
+
+    private final Meter hits;
+
+    private final Meter misses;
+
+    public ResponseCachingPreFilter(ResponseCache responseCache,
+        JHipsterProperties.Gateway.ResponseCaching properties, MetricRegistry metricRegistry) {
+
+        this.responseCache = responseCache;
+        this.properties = properties;
+        this.hits = metricRegistry.meter("gateway.response-cache.hits");
+        this.misses = metricRegistry.meter("gateway.response-cache.misses");
+    }
+
+    @Override
+    public String filterType() {
+        return "pre";
+    }
+
+    @Override
+    public int filterOrder() {
+        // after the access control and the rate limiting, so that cached responses are still limited
+        return 20;
+    }
+
+    @Override
+    public boolean shouldFilter() {
+        RequestContext ctx = RequestContext.getCurrentContext();
+        return ctx.sendZuulResponse() && "GET".equals(ctx.getRequest().getMethod()) &&
+            properties.getRoutes().containsKey(ctx.get("proxy"));
+    }
+
+    @Override
+    public Object run() {
+        RequestContext ctx = RequestContext.getCurrentContext();
+        HttpServletRequest request = ctx.getRequest();
+        String routeId = (String) ctx.get("proxy");
+        String key = getKey(routeId, request, properties.getRoutes().get(routeId).getVaryBy());
+        ctx.set(CACHE_KEY, key);
+
+        long now = System.currentTimeMillis();
+        CachedResponse response = responseCache.get(key, now);
+        if (response != null && response.isFresh(now) && !isNoCache(request)) {
+            hits.mark();
+            ctx.set(CACHE_HIT, true);
+            response.send(ctx);
+            return null;
+        }
+        misses.mark();
+        if (response != null && response.getETag() != null) {
+            ctx.addZuulRequestHeader(HttpHeaders.IF_NONE_MATCH, response.getETag());
+            ctx.set(STALE_RESPONSE, response);
+        }
+        return null;
+    }
+
+    private String getKey(String routeId, HttpServletRequest request, String varyBy) {
+        StringBuilder key = new StringBuilder(routeId).append(' ').append(request.getRequestURI());
+        if (request.getQueryString() != null) {
+            key.append('?').append(request.getQueryString());
+        }
+        if (request.getHeader(HttpHeaders.ACCEPT) != null) {
+            key.append(" accept:").append(request.getHeader(HttpHeaders.ACCEPT));
+        }
+        if ("none".equals(varyBy)) {
+            return key.toString();
+        }
+        if ("authorities".equals(varyBy)) {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            Collection<? extends GrantedAuthority> authorities =
+                authentication == null ? null : authentication.getAuthorities();
+            TreeSet<String> authorityNames = new TreeSet<>();
+            if (authorities != null) {
+                authorities.forEach(authority -> authorityNames.add(authority.getAuthority()));
+            }
+            return key.append(" authorities:").append(authorityNames).toString();
+        }
+        return key.append(" user:").append(SecurityUtils.getCurrentUserLogin()).toString();
+    }
+
+    private boolean isNoCache(HttpServletRequest request) {
+        String cacheControl = request.getHeader(HttpHeaders.CACHE_CONTROL);
+        return cacheControl != null && cacheControl.contains("no-cache");
+    }
+}
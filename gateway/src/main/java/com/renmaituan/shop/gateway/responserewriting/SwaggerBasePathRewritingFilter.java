@@ -1,26 +1,41 @@
 package com.renmaituan.shop.gateway.responserewriting;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import org.apache.commons.io.Charsets;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import org.apache.commons.io.IOUtils;
+import com.netflix.util.Pair;
 import com.netflix.zuul.context.RequestContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.cloud.netflix.zuul.filters.post.SendResponseFilter;
+import org.springframework.http.HttpStatus;
 import springfox.documentation.swagger2.web.Swagger2Controller;
 
+import javax.servlet.http.HttpServletResponse;
 import java.io.*;
-import java.util.LinkedHashMap;
 import java.util.zip.GZIPInputStream;
 
 /**
  * Zuul filter to rewrite micro-services Swagger URL Base Path.
+ * <p>
+ * Only the top-level "basePath" field is replaced. The rest of the document is copied token by token from the
+ * micro-service response to the client response, which this filter writes itself: the document is never held
+ * in memory as a whole. The responses other than 200 (OK) are sent untouched by the {@link SendResponseFilter}.
  */
 public class SwaggerBasePathRewritingFilter extends SendResponseFilter {
 
+    private static final String BASE_PATH = "basePath";
+
     private final Logger log = LoggerFactory.getLogger(SwaggerBasePathRewritingFilter.class);
 
-    private ObjectMapper mapper = new ObjectMapper();
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    public SwaggerBasePathRewritingFilter() {
+        jsonFactory.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
 
     @Override
     public String filterType() {
@@ -33,46 +48,83 @@ public class SwaggerBasePathRewritingFilter extends SendResponseFilter {
     }
 
     /**
-     * Filter requests to micro-services Swagger docs.
+     * Filter successful requests to micro-services Swagger docs.
      */
     @Override
     public boolean shouldFilter() {
-        return RequestContext.getCurrentContext().getRequest().getRequestURI().endsWith(Swagger2Controller.DEFAULT_URL);
+        RequestContext context = RequestContext.getCurrentContext();
+        return context.getRequest().getRequestURI().endsWith(Swagger2Controller.DEFAULT_URL) &&
+            context.getResponseStatusCode() == HttpStatus.OK.value();
     }
 
     @Override
     public Object run() {
         RequestContext context = RequestContext.getCurrentContext();
-
-        if (!context.getResponseGZipped()) {
-            context.getResponse().setCharacterEncoding("UTF-8");
+        InputStream responseDataStream = context.getResponseDataStream();
+        if (responseDataStream == null) {
+            return null;
+        }
+        // the SendResponseFilter has nothing left to write
+        context.setResponseDataStream(null);
+        HttpServletResponse response = context.getResponse();
+        response.setCharacterEncoding("UTF-8");
+        for (Pair<String, String> header : context.getZuulResponseHeaders()) {
+            response.addHeader(header.first(), header.second());
+        }
+        try {
+            rewriteBasePath(context, responseDataStream, response.getOutputStream());
+        } catch (IOException e) {
+            log.error("Swagger-docs filter error", e);
+        } finally {
+            IOUtils.closeQuietly(responseDataStream);
         }
-
-        String rewrittenResponse = rewriteBasePath(context);
-        context.setResponseBody(rewrittenResponse);
         return null;
     }
 
-    private String rewriteBasePath(RequestContext context) {
-        InputStream responseDataStream = context.getResponseDataStream();
-        String requestUri = RequestContext.getCurrentContext().getRequest().getRequestURI();
-        try {
-            if (context.getResponseGZipped()) {
-                responseDataStream = new GZIPInputStream(context.getResponseDataStream());
-            }
-            String response = IOUtils.toString(responseDataStream, Charsets.UTF_8);
-            if (response != null) {
-                LinkedHashMap<String, Object> map = this.mapper.readValue(response, LinkedHashMap.class);
+    private void rewriteBasePath(RequestContext context, InputStream responseDataStream, OutputStream output)
+        throws IOException {
 
-                String basePath = requestUri.replace(Swagger2Controller.DEFAULT_URL,"");
-                map.put("basePath",basePath);
-                log.debug("Swagger-docs: rewritten Base URL with correct micro-service route: {}", basePath);
-                return mapper.writeValueAsString(map);
-            }
+        String requestUri = context.getRequest().getRequestURI();
+        String basePath = requestUri.replace(Swagger2Controller.DEFAULT_URL, "");
+        InputStream input = responseDataStream;
+        if (context.getResponseGZipped()) {
+            input = new GZIPInputStream(responseDataStream);
         }
-        catch (IOException e){
-            log.error("Swagger-docs filter error", e);
+        rewriteBasePath(input, output, basePath);
+        log.debug("Swagger-docs: rewritten Base URL with correct micro-service route: {}", basePath);
+    }
+
+    /**
+     * Copy the document, replacing its top-level "basePath" field, or adding it if it is missing.
+     */
+    private void rewriteBasePath(InputStream input, OutputStream output, String basePath) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(input);
+            JsonGenerator generator = jsonFactory.createGenerator(output, JsonEncoding.UTF8)) {
+
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Swagger-docs should be a JSON object");
+            }
+            generator.writeStartObject();
+            boolean basePathWritten = false;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                parser.nextToken();
+                if (BASE_PATH.equals(fieldName)) {
+                    parser.skipChildren();
+                    if (!basePathWritten) {
+                        generator.writeStringField(BASE_PATH, basePath);
+                        basePathWritten = true;
+                    }
+                } else {
+                    generator.writeFieldName(fieldName);
+                    generator.copyCurrentStructure(parser);
+                }
+            }
+            if (!basePathWritten) {
+                generator.writeStringField(BASE_PATH, basePath);
+            }
+            generator.writeEndObject();
         }
-        return null;
+        output.flush();
     }
 }
@@ -0,0 +1,59 @@
+package com.renmaituan.shop.gateway.streaming;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of fixed-size buffers, used to copy the responses of the micro-services to the clients.
+ * <p>
+ * A buffer is allocated when the pool is empty, and dropped when it is released to a full pool, so that the
+ * pool never holds more than its maximum number of idle buffers.
+ */
+public class BufferPool {
+
+    private final int bufferSize;
+
+    private final BlockingQueue<byte[]> buffers;
+
+    private final AtomicInteger inUse = new AtomicInteger();
+
+    public BufferPool(int bufferSize, int maxPooledBuffers) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("The buffer size should be positive: " + bufferSize);
+        }
+        this.bufferSize = bufferSize;
+        this.buffers = new ArrayBlockingQueue<>(Math.max(1, maxPooledBuffers));
+    }
+
+    public byte[] acquire() {
+        inUse.incrementAndGet();
+        byte[] buffer = buffers.poll();
+        return buffer != null ? buffer : new byte[bufferSize];
+    }
+
+    public void release(byte[] buffer) {
+        inUse.decrementAndGet();
+        if (buffer.length == bufferSize) {
+            buffers.offer(buffer);
+        }
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * @return the number of idle buffers in the pool
+     */
+    public int getPooled() {
+        return buffers.size();
+    }
+
+    /**
+     * @return the number of buffers acquired and not released yet
+     */
+    public int getInUse() {
+        return inUse.get();
+    }
+}
@@ -0,0 +1,179 @@
+package com.renmaituan.shop.gateway.streaming;
+
+import com.renmaituan.shop.config.JHipsterProperties;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipException;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.http.conn.EofSensorInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.netflix.util.Pair;
+import com.netflix.zuul.ZuulFilter;
+import com.netflix.zuul.context.RequestContext;
+
+/**
+ * Zuul filter streaming the responses of the routes listed in "jhipster.gateway.streaming.routes" to the
+ * clients, in place of the {@link org.springframework.cloud.netflix.zuul.filters.post.SendResponseFilter},
+ * which grows its copy buffer with the size of the response.
+ * <p>
+ * The body is copied through a fixed-size buffer from a {@link BufferPool}, so the memory used does not
+ * depend on the size of the response. As each buffer is written before the next one is read, a slow client
+ * slows down the reads from the micro-service, and a client closing its connection aborts the connection to
+ * the micro-service instead of reading the rest of the response. Gzipped responses are sent as they are to the
+ * clients accepting gzip, with their original "Content-Length".
+ * <p>
+ * The responses already written by a previous post filter, like the
+ * {@link com.renmaituan.shop.gateway.responserewriting.SwaggerBasePathRewritingFilter}, are skipped, and the
+ * responses whose body has been replaced are left to the SendResponseFilter.
+ * <p>
+ * The "gateway.streaming.buffers" metrics are the "pooled" and "in-use" gauges.
+ */
+public class StreamingResponseFilter extends ZuulFilter {
+
+    private final Logger log = LoggerFactory.getLogger(StreamingResponseFilter.class);
+
+    private final JHipsterProperties.Gateway.Streaming properties;
+
+    private final BufferPool bufferPool;
+
+    public StreamingResponseFilter(JHipsterProperties.Gateway.Streaming properties, MetricRegistry metricRegistry) {
+        this.properties = properties;
+        this.bufferPool = new BufferPool(properties.getBufferSize(), properties.getMaxPooledBuffers());
+        metricRegistry.register("gateway.streaming.buffers.pooled", (Gauge<Integer>) bufferPool::getPooled);
+        metricRegistry.register("gateway.streaming.buffers.in-use", (Gauge<Integer>) bufferPool::getInUse);
+    }
+
+    @Override
+    public String filterType() {
+        return "post";
+    }
+
+    @Override
+    public int filterOrder() {
+        // after the filters reading or rewriting the body, before the SendResponseFilter
+        return 999;
+    }
+
+    @Override
+    public boolean shouldFilter() {
+        RequestContext ctx = RequestContext.getCurrentContext();
+        return ctx.getResponseDataStream() != null && ctx.getResponseBody() == null && ctx.getThrowable() == null &&
+            properties.getRoutes().contains(ctx.get("proxy"));
+    }
+
+    @Override
+    public Object run() {
+        RequestContext ctx = RequestContext.getCurrentContext();
+        InputStream upstream = ctx.getResponseDataStream();
+        // the SendResponseFilter has nothing left to write
+        ctx.setResponseDataStream(null);
+        HttpServletResponse response = ctx.getResponse();
+        boolean decompress = ctx.getResponseGZipped() && !isGzipAccepted(ctx.getRequest());
+        addResponseHeaders(ctx, response, decompress);
+
+        byte[] buffer = bufferPool.acquire();
+        InputStream input = upstream;
+        try {
+            if (decompress) {
+                input = decompress(ctx, upstream);
+            }
+            copy(input, response.getOutputStream(), buffer, upstream);
+        } catch (IOException e) {
+            log.warn("Could not stream the response of {}: {}", ctx.get("proxy"), e.getMessage());
+            abort(upstream);
+        } finally {
+            bufferPool.release(buffer);
+            close(input);
+            Object zuulResponse = ctx.get("zuulResponse");
+            if (zuulResponse instanceof Closeable) {
+                close((Closeable) zuulResponse);
+            }
+        }
+        return null;
+    }
+
+    private void addResponseHeaders(RequestContext ctx, HttpServletResponse response, boolean decompress) {
+        for (Pair<String, String> header : ctx.getZuulResponseHeaders()) {
+            response.addHeader(header.first(), header.second());
+        }
+        if (!decompress) {
+            if (ctx.getResponseGZipped()) {
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            }
+            Long contentLength = ctx.getOriginContentLength();
+            if (contentLength != null) {
+                response.setContentLengthLong(contentLength);
+            }
+        }
+    }
+
+    private InputStream decompress(RequestContext ctx, InputStream upstream) throws IOException {
+        Long contentLength = ctx.getOriginContentLength();
+        if (contentLength != null && contentLength == 0) {
+            return upstream;
+        }
+        try {
+            return new GZIPInputStream(upstream, bufferPool.getBufferSize());
+        } catch (ZipException e) {
+            log.debug("Response of {} declared as gzipped, but is not: {}", ctx.get("proxy"), e.getMessage());
+            return upstream;
+        }
+    }
+
+    /**
+     * Copy the body, flushing it to the client whenever the next read would block.
+     */
+    private void copy(InputStream input, OutputStream output, byte[] buffer, InputStream upstream)
+        throws IOException {
+
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            try {
+                output.write(buffer, 0, read);
+                if (input.available() == 0) {
+                    output.flush();
+                }
+            } catch (IOException e) {
+                log.debug("Client closed the connection: {}", e.getMessage());
+                abort(upstream);
+                return;
+            }
+        }
+        output.flush();
+    }
+
+    private void abort(InputStream upstream) {
+        if (upstream instanceof EofSensorInputStream) {
+            try {
+                ((EofSensorInputStream) upstream).abortConnection();
+            } catch (IOException e) {
+                log.debug("Could not abort the connection: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void close(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            log.debug("Could not close the response: {}", e.getMessage());
+        }
+    }
+
+    private boolean isGzipAccepted(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+    }
+}
@@ -0,0 +1,95 @@
+package com.renmaituan.shop.security;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.store.JwtTokenStore;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+
+/**
+ * JWT token store caching the tokens whose signature has been verified.
+ * <p>
+ * Each request reads the access token and its authentication from the token store, which verifies the RSA
+ * signature of the token twice. The verified tokens are kept, with their parsed authentication, in a bounded
+ * cache keyed by a SHA-256 digest of the token, so the signature of a token is only verified on its first
+ * use. Cached tokens are discarded when they expire, and all of them when the UAA keys change.
+ */
+public class CachingJwtTokenStore extends JwtTokenStore {
+
+    private final Cache<String, VerifiedToken> verifiedTokens;
+
+    /**
+     * @param jwtTokenEnhancer the converter verifying and decoding the tokens
+     * @param maximumSize the maximum number of cached tokens
+     * @param maximumTimeToLiveSeconds how long a token can be cached, whatever its expiration
+     */
+    public CachingJwtTokenStore(JwtAccessTokenConverter jwtTokenEnhancer, long maximumSize,
+        long maximumTimeToLiveSeconds) {
+
+        super(jwtTokenEnhancer);
+        this.verifiedTokens = CacheBuilder.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(maximumTimeToLiveSeconds, TimeUnit.SECONDS)
+            .build();
+    }
+
+    @Override
+    public OAuth2AccessToken readAccessToken(String tokenValue) {
+        return getVerifiedToken(tokenValue).accessToken;
+    }
+
+    @Override
+    public OAuth2Authentication readAuthentication(String token) {
+        return getVerifiedToken(token).authentication;
+    }
+
+    /**
+     * Forget all the verified tokens, called when the keys published by the UAA change.
+     *
+     * @see UaaPublicKeyProvider#addKeysChangedListener(Runnable)
+     */
+    public void clearCache() {
+        verifiedTokens.invalidateAll();
+    }
+
+    private VerifiedToken getVerifiedToken(String tokenValue) {
+        String digest = Hashing.sha256().hashString(tokenValue, StandardCharsets.UTF_8).toString();
+        long now = System.currentTimeMillis();
+        VerifiedToken verifiedToken = verifiedTokens.getIfPresent(digest);
+        if (verifiedToken != null && now < verifiedToken.expires) {
+            return verifiedToken;
+        }
+        // throws an InvalidTokenException if the token cannot be verified, so only valid tokens are cached
+        OAuth2AccessToken accessToken = super.readAccessToken(tokenValue);
+        OAuth2Authentication authentication = super.readAuthentication(tokenValue);
+        Date expiration = accessToken.getExpiration();
+        verifiedToken = new VerifiedToken(accessToken, authentication,
+            expiration == null ? Long.MAX_VALUE : expiration.getTime());
+        if (now < verifiedToken.expires) {
+            verifiedTokens.put(digest, verifiedToken);
+        }
+        return verifiedToken;
+    }
+
+    private static final class VerifiedToken {
+
+        private final OAuth2AccessToken accessToken;
+
+        private final OAuth2Authentication authentication;
+
+        private final long expires;
+
+        VerifiedToken(OAuth2AccessToken accessToken, OAuth2Authentication authentication, long expires) {
+            this.accessToken = accessToken;
+            this.authentication = authentication;
+            this.expires = expires;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.renmaituan.shop.service;
+
+import com.renmaituan.shop.web.rest.vm.RouteVM;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.discovery.event.HeartbeatEvent;
+import org.springframework.cloud.client.discovery.event.InstanceRegisteredEvent;
+import org.springframework.cloud.context.scope.refresh.RefreshScopeRefreshedEvent;
+import org.springframework.cloud.netflix.zuul.RoutesRefreshedEvent;
+import org.springframework.cloud.netflix.zuul.filters.Route;
+import org.springframework.cloud.netflix.zuul.filters.RouteLocator;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+/**
+ * Service class keeping a snapshot of the Zuul routes and of their service instances.
+ * <p>
+ * The snapshot is discarded when the routes are refreshed, and when the Eureka client refreshes its cache
+ * (which is published as a {@link HeartbeatEvent}): it is then built again on the next read, so the route
+ * locator and the discovery client are only queried once per refresh, however often the routes are polled.
+ */
+@Service
+public class RouteSnapshotService {
+
+    private final Logger log = LoggerFactory.getLogger(RouteSnapshotService.class);
+
+    @Inject
+    private RouteLocator routeLocator;
+
+    @Inject
+    private DiscoveryClient discoveryClient;
+
+    private volatile RouteSnapshot snapshot;
+
+    /**
+     * Get the current snapshot of the routes, building it if it was discarded.
+     */
+    public RouteSnapshot getSnapshot() {
+        RouteSnapshot routeSnapshot = snapshot;
+        if (routeSnapshot == null) {
+            routeSnapshot = buildSnapshot();
+            snapshot = routeSnapshot;
+        }
+        return routeSnapshot;
+    }
+
+    @EventListener({ RoutesRefreshedEvent.class, RefreshScopeRefreshedEvent.class, InstanceRegisteredEvent.class,
+        HeartbeatEvent.class })
+    public void refresh() {
+        snapshot = null;
+    }
+
+    private RouteSnapshot buildSnapshot() {
+        List<Route> routes = routeLocator.getRoutes();
+        List<RouteVM> routeVMs = new ArrayList<>();
+        StringBuilder version = new StringBuilder();
+        routes.forEach(route -> {
+            RouteVM routeVM = new RouteVM();
+            routeVM.setPath(route.getFullPath());
+            routeVM.setServiceId(route.getId());
+            routeVM.setServiceInstances(discoveryClient.getInstances(route.getId()));
+            routeVMs.add(routeVM);
+
+            version.append(route.getFullPath()).append(' ').append(route.getId()).append('\n');
+            for (ServiceInstance instance : routeVM.getServiceInstances()) {
+                version.append(instance.getUri()).append(' ').append(instance.getMetadata()).append('\n');
+            }
+        });
+        String eTag = DigestUtils.md5DigestAsHex(version.toString().getBytes(StandardCharsets.UTF_8));
+        log.debug("Built the snapshot of {} routes, with ETag {}", routes.size(), eTag);
+        return new RouteSnapshot(routes, routeVMs, eTag);
+    }
+
+    /**
+     * Immutable snapshot of the routes.
+     */
+    public static final class RouteSnapshot {
+
+        private final List<Route> routes;
+
+        private final List<RouteVM> routeVMs;
+
+        private final String eTag;
+
+        RouteSnapshot(List<Route> routes, List<RouteVM> routeVMs, String eTag) {
+            this.routes = Collections.unmodifiableList(routes);
+            this.routeVMs = Collections.unmodifiableList(routeVMs);
+            this.eTag = eTag;
+        }
+
+        public List<Route> getRoutes() {
+            return routes;
+        }
+
+        public List<RouteVM> getRouteVMs() {
+            return routeVMs;
+        }
+
+        /**
+         * @return a digest of the routes and of their instances, which only changes when they change
+         */
+        public String getETag() {
+            return eTag;
+        }
+    }
+}
@@ -1,18 +1,34 @@
 package com.renmaituan.shop.web.rest;
 
+import com.renmaituan.shop.gateway.concurrencylimiting.ConcurrencyLimits;
+import com.renmaituan.shop.gateway.loadbalancing.InstanceStatsRegistry;
+import com.renmaituan.shop.gateway.ratelimiting.RateLimitPolicy;
+import com.renmaituan.shop.gateway.ratelimiting.RateLimitPolicyIndex;
+import com.renmaituan.shop.gateway.ratelimiting.RateLimiter;
+import com.renmaituan.shop.gateway.ratelimiting.RateLimitingFilter;
+import com.renmaituan.shop.service.RouteSnapshotService;
+import com.renmaituan.shop.web.rest.vm.ConcurrencyLimitVM;
+import com.renmaituan.shop.web.rest.vm.InstanceStatsVM;
+import com.renmaituan.shop.web.rest.vm.QuotaVM;
 import com.renmaituan.shop.web.rest.vm.RouteVM;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cloud.netflix.zuul.filters.Route;
 import org.springframework.cloud.netflix.zuul.filters.RouteLocator;
 import org.springframework.http.*;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import com.codahale.metrics.annotation.Timed;
 
@@ -29,27 +45,117 @@ public class GatewayResource {
     private RouteLocator routeLocator;
 
     @Inject
-    private DiscoveryClient discoveryClient;
+    private RouteSnapshotService routeSnapshotService;
+
+    @Autowired(required = false)
+    private RateLimiter rateLimiter;
+
+    @Autowired(required = false)
+    private RateLimitPolicyIndex rateLimitPolicyIndex;
+
+    @Autowired(required = false)
+    private InstanceStatsRegistry instanceStatsRegistry;
+
+    @Autowired(required = false)
+    private ConcurrencyLimits concurrencyLimits;
 
     /**
      * GET  /routes : get the active routes.
      *
+     * @param webRequest the request, to answer with status 304 (Not Modified) if the routes did not change
      * @return the ResponseEntity with status 200 (OK) and with body the list of routes
      */
     @RequestMapping(value = "/routes",
         method = RequestMethod.GET,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public ResponseEntity<List<RouteVM>> activeRoutes() {
-        List<Route> routes = routeLocator.getRoutes();
-        List<RouteVM> routeVMs = new ArrayList<>();
-        routes.forEach(route -> {
-            RouteVM routeVM = new RouteVM();
-            routeVM.setPath(route.getFullPath());
-            routeVM.setServiceId(route.getId());
-            routeVM.setServiceInstances(discoveryClient.getInstances(route.getId()));
-            routeVMs.add(routeVM);
-        });
-        return new ResponseEntity<>(routeVMs, HttpStatus.OK);
+    public ResponseEntity<List<RouteVM>> activeRoutes(WebRequest webRequest) {
+        RouteSnapshotService.RouteSnapshot snapshot = routeSnapshotService.getSnapshot();
+        if (webRequest.checkNotModified(snapshot.getETag())) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(snapshot.getETag()).body(snapshot.getRouteVMs());
+    }
+
+    /**
+     * GET  /instance-stats : get the live load-balancing statistics of the service instances.
+     * <p>
+     * They change with every request, so they are not part of the routes, which are answered with status 304
+     * (Not Modified) while they do not change.
+     *
+     * @return the ResponseEntity with status 200 (OK) and with body the statistics of the instances by service ID
+     * and by "host:port", or with status 404 (Not Found) if the latency-aware load balancing is not enabled
+     */
+    @RequestMapping(value = "/instance-stats",
+        method = RequestMethod.GET,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<Map<String, Map<String, InstanceStatsVM>>> getInstanceStats() {
+        log.debug("REST request to get the instance statistics");
+        if (instanceStatsRegistry == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        long now = System.nanoTime();
+        Map<String, Map<String, InstanceStatsVM>> services = new LinkedHashMap<>();
+        for (RouteVM routeVM : routeSnapshotService.getSnapshot().getRouteVMs()) {
+            Map<String, InstanceStatsVM> instanceStats = new LinkedHashMap<>();
+            instanceStatsRegistry.getStats(routeVM.getServiceId()).forEach((hostPort, stats) ->
+                instanceStats.put(hostPort, new InstanceStatsVM(stats, now)));
+            services.put(routeVM.getServiceId(), instanceStats);
+        }
+        return new ResponseEntity<>(services, HttpStatus.OK);
+    }
+
+    /**
+     * GET  /quota : get the rate-limiting quota of the current client.
+     * <p>
+     * The quota is read from the state of this gateway node, or from the last known counters: this never
+     * reads the Cassandra rate-limiting table.
+     *
+     * @param path the path of the API calls, to find the policy applying to them
+     * @return the ResponseEntity with status 200 (OK) and with body the quota, or with status 404 (Not Found)
+     * if rate limiting is not enabled
+     */
+    @RequestMapping(value = "/quota",
+        method = RequestMethod.GET,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<QuotaVM> getQuota(@RequestParam(required = false, defaultValue = "") String path,
+        HttpServletRequest request) {
+
+        log.debug("REST request to get the rate-limiting quota for path : {}", path);
+        if (rateLimiter == null || rateLimitPolicyIndex == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        Route route = path.isEmpty() ? null : routeLocator.getMatchingRoute(path);
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        RateLimitPolicy policy = rateLimitPolicyIndex.getPolicy(route == null ? null : route.getId(), path,
+            authentication == null ? null : authentication.getAuthorities());
+        if (policy.isExempt()) {
+            return new ResponseEntity<>(new QuotaVM(policy, null), HttpStatus.OK);
+        }
+        String id = RateLimitingFilter.getClientId(request);
+        return new ResponseEntity<>(new QuotaVM(policy, rateLimiter.getQuota(id, policy)), HttpStatus.OK);
+    }
+
+    /**
+     * GET  /concurrency-limits : get the adaptive concurrency limits of the routes.
+     *
+     * @return the ResponseEntity with status 200 (OK) and with body the limits of the routes which have been
+     * called, or with status 404 (Not Found) if concurrency limiting is not enabled
+     */
+    @RequestMapping(value = "/concurrency-limits",
+        method = RequestMethod.GET,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<ConcurrencyLimitVM>> getConcurrencyLimits() {
+        log.debug("REST request to get the concurrency limits");
+        if (concurrencyLimits == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        List<ConcurrencyLimitVM> limits = new ArrayList<>();
+        concurrencyLimits.getLimits().forEach((route, routeLimit) ->
+            limits.add(new ConcurrencyLimitVM(route, routeLimit)));
+        return new ResponseEntity<>(limits, HttpStatus.OK);
     }
 }
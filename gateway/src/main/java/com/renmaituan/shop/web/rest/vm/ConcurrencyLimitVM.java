@@ -0,0 +1,62 @@
+package com.renmaituan.shop.web.rest.vm;
+
+import com.renmaituan.shop.gateway.concurrencylimiting.ConcurrencyLimits;
+
+/**
+ * View Model that stores the adaptive concurrency limit of a route.
+ */
+public class ConcurrencyLimitVM {
+
+    private String route;
+
+    private int limit;
+
+    private int inFlight;
+
+    private long shed;
+
+    public ConcurrencyLimitVM() {
+    }
+
+    public ConcurrencyLimitVM(String route, ConcurrencyLimits.RouteLimit routeLimit) {
+        this.route = route;
+        this.limit = routeLimit.getLimit().getLimit();
+        this.inFlight = routeLimit.getLimit().getInFlight();
+        this.shed = routeLimit.getShedCount();
+    }
+
+    public String getRoute() {
+        return route;
+    }
+
+    public void setRoute(String route) {
+        this.route = route;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    public void setInFlight(int inFlight) {
+        this.inFlight = inFlight;
+    }
+
+    /**
+     * @return the number of requests refused since the gateway started
+     */
+    public long getShed() {
+        return shed;
+    }
+
+    public void setShed(long shed) {
+        this.shed = shed;
+    }
+}
@@ -0,0 +1,51 @@
+package com.renmaituan.shop.web.rest.vm;
+
+import com.renmaituan.shop.gateway.loadbalancing.InstanceStats;
+
+/**
+ * View Model that stores the load-balancing statistics of a micro-service instance.
+ */
+public class InstanceStatsVM {
+
+    private double latency;
+
+    private int inFlight;
+
+    private boolean ejected;
+
+    public InstanceStatsVM() {
+    }
+
+    public InstanceStatsVM(InstanceStats instanceStats, long now) {
+        this.latency = instanceStats.getLatencyMillis(now);
+        this.inFlight = instanceStats.getInFlight();
+        this.ejected = instanceStats.isEjected(now);
+    }
+
+    /**
+     * @return the latency of the instance, in milliseconds
+     */
+    public double getLatency() {
+        return latency;
+    }
+
+    public void setLatency(double latency) {
+        this.latency = latency;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    public void setInFlight(int inFlight) {
+        this.inFlight = inFlight;
+    }
+
+    public boolean isEjected() {
+        return ejected;
+    }
+
+    public void setEjected(boolean ejected) {
+        this.ejected = ejected;
+    }
+}
@@ -0,0 +1,81 @@
+package com.renmaituan.shop.web.rest.vm;
+
+import com.renmaituan.shop.gateway.ratelimiting.RateLimitPolicy;
+import com.renmaituan.shop.gateway.ratelimiting.RateLimitQuota;
+
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * View Model that stores the rate-limiting quota of the current client.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class QuotaVM {
+
+    private String policy;
+
+    private boolean exempt;
+
+    private Long limit;
+
+    private Long remaining;
+
+    private Long reset;
+
+    public QuotaVM() {
+    }
+
+    public QuotaVM(RateLimitPolicy policy, RateLimitQuota quota) {
+        this.policy = policy.getName();
+        this.exempt = policy.isExempt();
+        if (quota != null) {
+            this.limit = quota.getLimit();
+            this.remaining = quota.getRemaining();
+            this.reset = TimeUnit.MILLISECONDS.toSeconds(quota.getResetMillis());
+        }
+    }
+
+    public String getPolicy() {
+        return policy;
+    }
+
+    public void setPolicy(String policy) {
+        this.policy = policy;
+    }
+
+    public boolean isExempt() {
+        return exempt;
+    }
+
+    public void setExempt(boolean exempt) {
+        this.exempt = exempt;
+    }
+
+    public Long getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Long limit) {
+        this.limit = limit;
+    }
+
+    public Long getRemaining() {
+        return remaining;
+    }
+
+    public void setRemaining(Long remaining) {
+        this.remaining = remaining;
+    }
+
+    /**
+     * @return the time at which the quota will be restored, in seconds since the epoch
+     */
+    public Long getReset() {
+        return reset;
+    }
+
+    public void setReset(Long reset) {
+        this.reset = reset;
+    }
+}
@@ -5,12 +5,13 @@
         .module('gatewayApp')
         .controller('GatewayController', GatewayController);
 
-    GatewayController.$inject = ['$filter', '$interval', 'GatewayRoutes'];
+    GatewayController.$inject = ['$filter', '$interval', 'GatewayRoutes', 'GatewayInstanceStats'];
 
-    function GatewayController ($filter, $interval, GatewayRoutes) {
+    function GatewayController ($filter, $interval, GatewayRoutes, GatewayInstanceStats) {
         var vm = this;
 
         vm.gatewayRoutes = null;
+        vm.instanceStats = {};
         vm.refresh = refresh;
         vm.updatingRoutes = null;
 
@@ -22,6 +23,10 @@
                 vm.gatewayRoutes = result;
                 vm.updatingRoutes = false;
             });
+            // not found when the latency-aware load balancing is not enabled
+            GatewayInstanceStats.get(function(result) {
+                vm.instanceStats = result;
+            });
         }
     }
 
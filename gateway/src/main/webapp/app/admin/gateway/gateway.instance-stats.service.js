@@ -0,0 +1,18 @@
+(function() {
+    'use strict';
+
+    angular
+        .module('gatewayApp')
+        .factory('GatewayInstanceStats', GatewayInstanceStats);
+
+    GatewayInstanceStats.$inject = ['$resource'];
+
+    function GatewayInstanceStats ($resource) {
+        var service = $resource('api/gateway/instance-stats', {}, {
+            'get': { method: 'GET' }
+        });
+
+        return service;
+    }
+
+})();
@@ -1,5 +1,7 @@
 package com.renmaituan.shop.config;
 
+import com.renmaituan.shop.security.UaaPublicKeyProvider;
+
 import org.springframework.cloud.client.loadbalancer.RestTemplateCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -29,7 +31,13 @@ public class SecurityBeanOverrideConfiguration {
 
     @Bean
     @Primary
-    public RestTemplate loadBalancedRestTemplate(RestTemplateCustomizer customizer) {
+    public UaaPublicKeyProvider uaaPublicKeyProvider() {
+        return null;
+    }
+
+    @Bean
+    @Primary
+    public RestTemplate keyUriRestTemplate(RestTemplateCustomizer customizer) {
         return null;
     }
 }
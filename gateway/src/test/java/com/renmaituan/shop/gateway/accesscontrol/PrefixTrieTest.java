@@ -0,0 +1,46 @@
+package com.renmaituan.shop.gateway.accesscontrol;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests PrefixTrie class.
+ */
+public class PrefixTrieTest {
+
+    @Test
+    public void find_returns_the_first_prefix_put() {
+        PrefixTrie<String> trie = PrefixTrie.<String>builder()
+            .put("/demo/", "demo")
+            .put("/", "root")
+            .put("/demo/api/", "demo-api")
+            .build();
+
+        assertEquals("demo", trie.find("/demo/api/demos"));
+        assertEquals("root", trie.find("/uaa/api/account"));
+    }
+
+    @Test
+    public void find_returns_null_without_matching_prefix() {
+        PrefixTrie<String> trie = PrefixTrie.<String>builder()
+            .put("/demo/api/", "demo-api")
+            .put("/demo/management/", "demo-management")
+            .build();
+
+        assertEquals("demo-management", trie.find("/demo/management/health"));
+        assertNull(trie.find("/demo/"));
+        assertNull(trie.find("/demo/ap"));
+        assertNull(trie.find("/uaa/api/"));
+    }
+
+    @Test
+    public void put_keeps_the_first_value() {
+        PrefixTrie<String> trie = PrefixTrie.<String>builder()
+            .put("/demo/", "first")
+            .put("/demo/", "second")
+            .build();
+
+        assertEquals("first", trie.find("/demo/api"));
+    }
+}
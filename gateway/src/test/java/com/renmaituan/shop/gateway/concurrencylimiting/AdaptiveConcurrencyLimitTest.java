@@ -0,0 +1,65 @@
+package com.renmaituan.shop.gateway.concurrencylimiting;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests AdaptiveConcurrencyLimit class.
+ */
+public class AdaptiveConcurrencyLimitTest {
+
+    private static final long LATENCY = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /**
+     * Send as many requests as allowed to a micro-service whose latency grows once it has more than the given
+     * number of concurrent requests.
+     */
+    private static void saturate(AdaptiveConcurrencyLimit limit, int capacity, int rounds) {
+        for (int round = 0; round < rounds; round++) {
+            int acquired = 0;
+            while (limit.tryAcquire()) {
+                acquired++;
+            }
+            long latency = acquired <= capacity ? LATENCY : LATENCY * acquired / capacity;
+            for (int i = 0; i < acquired; i++) {
+                limit.release(latency, false);
+            }
+        }
+    }
+
+    @Test
+    public void requests_above_the_limit_are_refused() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 10, 0.2, 1.5, 10);
+
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+        limit.release(LATENCY, false);
+        assertTrue(limit.tryAcquire());
+    }
+
+    @Test
+    public void limit_follows_the_capacity_of_the_micro_service() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 5, 500, 0.2, 1.5, 50);
+
+        saturate(limit, 60, 1000);
+        assertTrue(limit.getLimit() > 60 && limit.getLimit() < 150);
+
+        saturate(limit, 20, 1000);
+        assertTrue(limit.getLimit() > 20 && limit.getLimit() < 60);
+    }
+
+    @Test
+    public void failures_cut_the_limit() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(100, 5, 500, 0.2, 1.5, 10);
+        for (int i = 0; i < 10; i++) {
+            limit.tryAcquire();
+            limit.release(LATENCY, i == 0);
+        }
+
+        assertEquals(90, limit.getLimit());
+    }
+}
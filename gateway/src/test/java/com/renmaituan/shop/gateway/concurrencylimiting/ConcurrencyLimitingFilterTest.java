@@ -0,0 +1,95 @@
+package com.renmaituan.shop.gateway.concurrencylimiting;
+
+import com.codahale.metrics.MetricRegistry;
+import com.netflix.zuul.context.RequestContext;
+import com.renmaituan.shop.config.JHipsterProperties;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests ConcurrencyLimitingPreFilter, ConcurrencyLimitingPostFilter and ConcurrencyLimitingErrorFilter classes.
+ */
+public class ConcurrencyLimitingFilterTest {
+
+    private ConcurrencyLimits concurrencyLimits;
+
+    private ConcurrencyLimitingPreFilter preFilter;
+
+    private ConcurrencyLimitingPostFilter postFilter = new ConcurrencyLimitingPostFilter();
+
+    private ConcurrencyLimitingErrorFilter errorFilter = new ConcurrencyLimitingErrorFilter();
+
+    @Before
+    public void setup() {
+        JHipsterProperties.Gateway.ConcurrencyLimiting properties =
+            new JHipsterProperties().getGateway().getConcurrencyLimiting();
+        properties.setInitialLimit(1);
+        properties.setMinLimit(1);
+        concurrencyLimits = new ConcurrencyLimits(properties, new MetricRegistry());
+        preFilter = new ConcurrencyLimitingPreFilter(concurrencyLimits);
+        initContext();
+    }
+
+    @After
+    public void tearDown() {
+        RequestContext.getCurrentContext().unset();
+    }
+
+    @Test
+    public void requests_over_the_limit_are_not_routed_even_with_a_body() {
+        preFilter.run();
+        RequestContext ctx = initContext();
+        ctx.setResponseBody("set by another filter");
+
+        assertTrue(preFilter.shouldFilter());
+        preFilter.run();
+
+        assertFalse(ctx.sendZuulResponse());
+        assertEquals(503, ctx.getResponseStatusCode());
+        assertEquals("set by another filter", ctx.getResponseBody());
+        assertEquals("1", ctx.getResponse().getHeader("Retry-After"));
+    }
+
+    @Test
+    public void post_filter_releases_the_request() {
+        preFilter.run();
+
+        assertTrue(postFilter.shouldFilter());
+        postFilter.run();
+
+        assertEquals(0, getInFlight());
+        assertFalse(postFilter.shouldFilter());
+    }
+
+    @Test
+    public void error_filter_releases_the_request_once() {
+        preFilter.run();
+        RequestContext.getCurrentContext().setThrowable(new IllegalStateException("post filter failure"));
+
+        assertTrue(errorFilter.shouldFilter());
+        errorFilter.run();
+
+        assertEquals(0, getInFlight());
+        // the post filters running after the error filter do not release it again
+        assertFalse(postFilter.shouldFilter());
+        assertFalse(errorFilter.shouldFilter());
+    }
+
+    private int getInFlight() {
+        return concurrencyLimits.getLimit("demo").getLimit().getInFlight();
+    }
+
+    private RequestContext initContext() {
+        RequestContext ctx = RequestContext.getCurrentContext();
+        ctx.clear();
+        ctx.setRequest(new MockHttpServletRequest("GET", "/demo/api/foos"));
+        ctx.setResponse(new MockHttpServletResponse());
+        ctx.set("proxy", "demo");
+        return ctx;
+    }
+}
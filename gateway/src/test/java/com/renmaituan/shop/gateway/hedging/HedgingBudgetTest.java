@@ -0,0 +1,37 @@
+package com.renmaituan.shop.gateway.hedging;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests HedgingBudget class.
+ */
+public class HedgingBudgetTest {
+
+    @Test
+    public void hedged_requests_are_limited_to_a_percentage_of_requests() {
+        HedgingBudget budget = new HedgingBudget(10, 10);
+        assertFalse(budget.tryWithdraw());
+
+        for (int i = 0; i < 9; i++) {
+            budget.deposit();
+        }
+        assertFalse(budget.tryWithdraw());
+        budget.deposit();
+        assertTrue(budget.tryWithdraw());
+        assertFalse(budget.tryWithdraw());
+    }
+
+    @Test
+    public void balance_is_capped() {
+        HedgingBudget budget = new HedgingBudget(50, 2);
+        for (int i = 0; i < 100; i++) {
+            budget.deposit();
+        }
+
+        assertTrue(budget.tryWithdraw());
+        assertTrue(budget.tryWithdraw());
+        assertFalse(budget.tryWithdraw());
+    }
+}
@@ -0,0 +1,166 @@
+package com.renmaituan.shop.gateway.hedging;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.netflix.loadbalancer.ILoadBalancer;
+import com.netflix.loadbalancer.Server;
+import com.netflix.zuul.context.RequestContext;
+import com.renmaituan.shop.config.JHipsterProperties;
+import com.renmaituan.shop.gateway.loadbalancing.InstanceStats;
+import com.renmaituan.shop.gateway.loadbalancing.InstanceStatsRegistry;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cloud.netflix.ribbon.SpringClientFactory;
+import org.springframework.cloud.netflix.zuul.filters.ProxyRequestHelper;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests HedgingRoutingFilter class.
+ */
+public class HedgingRoutingFilterTest {
+
+    private HttpServer server;
+
+    private JHipsterProperties.Gateway gatewayProperties;
+
+    private SpringClientFactory clientFactory;
+
+    private InstanceStatsRegistry instanceStatsRegistry;
+
+    private MetricRegistry metricRegistry;
+
+    private Server instance;
+
+    private ILoadBalancer loadBalancer;
+
+    @Before
+    public void setup() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/foos", exchange -> {
+            byte[] body = "[\"foo\"]".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        instance = new Server("localhost", server.getAddress().getPort());
+
+        gatewayProperties = new JHipsterProperties().getGateway();
+        gatewayProperties.getHedging().setRoutes(Collections.singletonList("demo"));
+        instanceStatsRegistry = new InstanceStatsRegistry(gatewayProperties.getLoadBalancing());
+        metricRegistry = new MetricRegistry();
+        loadBalancer = mock(ILoadBalancer.class);
+        when(loadBalancer.chooseServer(any())).thenReturn(instance);
+        when(loadBalancer.getReachableServers()).thenReturn(Collections.singletonList(instance));
+        clientFactory = mock(SpringClientFactory.class);
+        when(clientFactory.getLoadBalancer("demo")).thenReturn(loadBalancer);
+
+        RequestContext ctx = RequestContext.getCurrentContext();
+        ctx.setRequest(new MockHttpServletRequest("GET", "/demo/api/foos"));
+        ctx.setResponse(new MockHttpServletResponse());
+        ctx.set("proxy", "demo");
+        ctx.set("serviceId", "demo");
+        ctx.set("requestURI", "/api/foos");
+    }
+
+    @After
+    public void tearDown() {
+        RequestContext.getCurrentContext().unset();
+        server.stop(0);
+    }
+
+    @Test
+    public void run_records_the_attempt_in_the_instance_stats() throws Exception {
+        HedgingRoutingFilter filter = createFilter(Runnable::run);
+        RequestContext ctx = RequestContext.getCurrentContext();
+
+        assertTrue(filter.shouldFilter());
+        filter.run();
+
+        assertFalse(ctx.sendZuulResponse());
+        assertEquals(200, ctx.getResponseStatusCode());
+        InstanceStats stats = instanceStatsRegistry.getStats("demo", instance.getHostPort());
+        assertEquals(0, stats.getInFlight());
+        assertTrue(stats.getLatencyMillis(System.nanoTime()) > 0);
+        filter.destroy();
+    }
+
+    @Test
+    public void run_leaves_the_request_to_ribbon_when_the_hedging_pool_is_saturated() throws Exception {
+        HedgingRoutingFilter filter = createFilter(task -> {
+            throw new RejectedExecutionException("no thread available");
+        });
+        RequestContext ctx = RequestContext.getCurrentContext();
+
+        filter.run();
+
+        assertTrue(ctx.sendZuulResponse());
+        assertFalse(ctx.containsKey("error.status_code"));
+        assertEquals(1, metricRegistry.meter("gateway.hedging.demo.bypassed").getCount());
+        InstanceStats stats = instanceStatsRegistry.getStats("demo", instance.getHostPort());
+        // the rejected attempt is neither in flight nor recorded
+        assertEquals(0, stats.getInFlight());
+        assertEquals(0, stats.getLatencyMillis(System.nanoTime()), 0.0);
+        filter.destroy();
+    }
+
+    @Test
+    public void cancelled_primary_request_is_recorded_with_the_time_it_waited() throws Exception {
+        HttpServer slowServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        slowServer.createContext("/api/foos", exchange -> {
+            try {
+                Thread.sleep(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.close();
+        });
+        slowServer.start();
+        Server slowInstance = new Server("localhost", slowServer.getAddress().getPort());
+        when(loadBalancer.chooseServer(any())).thenReturn(slowInstance);
+        when(loadBalancer.getReachableServers()).thenReturn(Arrays.asList(slowInstance, instance));
+        gatewayProperties.getHedging().setMinSamples(0);
+        gatewayProperties.getHedging().setMinDelay(20);
+        ExecutorService executor = Executors.newCachedThreadPool();
+        HedgingRoutingFilter filter = createFilter(executor);
+        RequestContext ctx = RequestContext.getCurrentContext();
+
+        try {
+            filter.run();
+
+            assertEquals(200, ctx.getResponseStatusCode());
+            assertEquals(1, metricRegistry.meter("gateway.hedging.demo.won").getCount());
+            // the hedged request answering first is not a sample of the hedging delay
+            Timer primaryLatency = metricRegistry.timer("gateway.hedging.demo.primary-latency");
+            assertEquals(1, primaryLatency.getCount());
+            assertTrue(primaryLatency.getSnapshot().getMax() >= TimeUnit.MILLISECONDS.toNanos(20));
+        } finally {
+            filter.destroy();
+            executor.shutdownNow();
+            slowServer.stop(0);
+        }
+    }
+
+    private HedgingRoutingFilter createFilter(Executor executor) {
+        return new HedgingRoutingFilter(new ProxyRequestHelper(), clientFactory, executor, gatewayProperties,
+            metricRegistry, instanceStatsRegistry);
+    }
+}
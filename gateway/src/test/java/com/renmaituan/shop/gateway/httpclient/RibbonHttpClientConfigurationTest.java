@@ -0,0 +1,89 @@
+package com.renmaituan.shop.gateway.httpclient;
+
+import com.codahale.metrics.MetricRegistry;
+import com.netflix.config.ConfigurationManager;
+import com.renmaituan.shop.config.GatewayConfiguration;
+import com.renmaituan.shop.config.JHipsterProperties;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cloud.netflix.ribbon.RibbonClientSpecification;
+import org.springframework.cloud.netflix.ribbon.SpringClientFactory;
+import org.springframework.cloud.netflix.zuul.filters.route.RibbonCommand;
+import org.springframework.cloud.netflix.zuul.filters.route.RibbonCommandContext;
+import org.springframework.cloud.netflix.zuul.filters.route.RibbonCommandFactory;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.util.LinkedMultiValueMap;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests RibbonHttpClientConfiguration class, with the RibbonCommandFactory used by Zuul.
+ */
+public class RibbonHttpClientConfigurationTest {
+
+    private HttpServer server;
+
+    private AnnotationConfigApplicationContext parent;
+
+    private SpringClientFactory clientFactory;
+
+    private MetricRegistry metricRegistry;
+
+    @Before
+    public void setup() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/foos", exchange -> {
+            byte[] body = "[\"foo\"]".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        ConfigurationManager.getConfigInstance()
+            .setProperty("demo.ribbon.listOfServers", "localhost:" + server.getAddress().getPort());
+
+        metricRegistry = new MetricRegistry();
+        parent = new AnnotationConfigApplicationContext();
+        parent.getBeanFactory().registerSingleton("jHipsterProperties", new JHipsterProperties());
+        parent.getBeanFactory().registerSingleton("metricRegistry", metricRegistry);
+        parent.refresh();
+        clientFactory = new SpringClientFactory();
+        clientFactory.setApplicationContext(parent);
+        clientFactory.setConfigurations(Collections.singletonList(new RibbonClientSpecification(
+            "default." + GatewayConfiguration.HttpClientConfiguration.class.getName(),
+            new Class<?>[] { RibbonHttpClientConfiguration.class })));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        clientFactory.destroy();
+        parent.close();
+        server.stop(0);
+        ConfigurationManager.getConfigInstance().clearProperty("demo.ribbon.listOfServers");
+    }
+
+    @Test
+    public void routed_requests_lease_their_connection_from_the_instrumented_connection_manager() throws Exception {
+        RibbonCommandFactory<?> ribbonCommandFactory =
+            new GatewayConfiguration.HttpClientConfiguration().ribbonCommandFactory(clientFactory);
+        RibbonCommand command = ribbonCommandFactory.create(new RibbonCommandContext("demo", "GET", "/api/foos",
+            false, new LinkedMultiValueMap<>(), new LinkedMultiValueMap<>(), null));
+
+        try (ClientHttpResponse response = command.execute()) {
+            assertEquals(200, response.getStatusCode().value());
+            assertEquals("[\"foo\"]", IOUtils.toString(response.getBody(), StandardCharsets.UTF_8));
+        }
+
+        assertNotNull(clientFactory.getInstance("demo", InstrumentedConnectionManager.class));
+        assertEquals(1, metricRegistry.timer("gateway.http-client.demo.pool.acquisition").getCount());
+        assertTrue(metricRegistry.getGauges().containsKey("gateway.http-client.demo.pool.leased"));
+    }
+}
@@ -0,0 +1,69 @@
+package com.renmaituan.shop.gateway.loadbalancing;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests InstanceStats class.
+ */
+public class InstanceStatsTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final InstanceStats stats = new InstanceStats(10000, 3, 30000, 300000);
+
+    @Test
+    public void latency_follows_peaks_then_decays() {
+        long now = 1000 * MILLIS;
+        stats.requestStarted();
+        stats.requestCompleted(10 * MILLIS, false, now);
+        stats.requestStarted();
+        stats.requestCompleted(200 * MILLIS, false, now + MILLIS);
+
+        assertEquals(200, stats.getLatencyMillis(now + MILLIS), 0.01);
+        assertTrue(stats.getLatencyMillis(now + 10000 * MILLIS) < 100);
+    }
+
+    @Test
+    public void in_flight_requests_increase_the_cost() {
+        long now = 1000 * MILLIS;
+        double idleCost = stats.getCost(now);
+        stats.requestStarted();
+
+        assertEquals(1, stats.getInFlight());
+        assertTrue(stats.getCost(now) > idleCost);
+    }
+
+    @Test
+    public void consecutive_failures_eject_the_instance() {
+        long now = 1000 * MILLIS;
+        for (int i = 0; i < 2; i++) {
+            stats.requestStarted();
+            stats.requestCompleted(MILLIS, true, now);
+        }
+        assertFalse(stats.isEjected(now));
+
+        stats.requestStarted();
+        stats.requestCompleted(MILLIS, true, now);
+        assertTrue(stats.isEjected(now + 29999 * MILLIS));
+        assertFalse(stats.isEjected(now + 30000 * MILLIS));
+    }
+
+    @Test
+    public void cancelled_requests_are_not_recorded() {
+        long now = 1000 * MILLIS;
+        stats.requestStarted();
+        stats.requestCompleted(10 * MILLIS, false, now);
+        for (int i = 0; i < 3; i++) {
+            stats.requestStarted();
+            stats.requestCancelled();
+        }
+
+        assertEquals(0, stats.getInFlight());
+        assertEquals(10, stats.getLatencyMillis(now), 0.01);
+        assertFalse(stats.isEjected(now));
+    }
+}
@@ -0,0 +1,91 @@
+package com.renmaituan.shop.gateway.loadbalancing;
+
+import com.netflix.loadbalancer.ILoadBalancer;
+import com.netflix.loadbalancer.Server;
+import com.renmaituan.shop.config.JHipsterProperties;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests LatencyAwareRule class.
+ */
+public class LatencyAwareRuleTest {
+
+    private final Server first = new Server("10.0.0.1", 8081);
+
+    private final Server second = new Server("10.0.0.2", 8081);
+
+    private final Server third = new Server("10.0.0.3", 8081);
+
+    private InstanceStatsRegistry instanceStatsRegistry;
+
+    private LatencyAwareRule rule;
+
+    @Before
+    public void setup() {
+        List<Server> servers = Arrays.asList(first, second, third);
+        ILoadBalancer loadBalancer = mock(ILoadBalancer.class);
+        when(loadBalancer.getReachableServers()).thenReturn(servers);
+        when(loadBalancer.getAllServers()).thenReturn(servers);
+        instanceStatsRegistry = new InstanceStatsRegistry(new JHipsterProperties().getGateway().getLoadBalancing());
+        rule = new LatencyAwareRule("demo", instanceStatsRegistry);
+        rule.setLoadBalancer(loadBalancer);
+    }
+
+    @Test
+    public void choose_never_picks_the_most_loaded_instance() {
+        for (int i = 0; i < 5; i++) {
+            instanceStatsRegistry.getStats("demo", first.getHostPort()).requestStarted();
+        }
+        instanceStatsRegistry.getStats("demo", second.getHostPort()).requestStarted();
+
+        boolean secondChosen = false;
+        boolean thirdChosen = false;
+        for (int i = 0; i < 200; i++) {
+            Server server = rule.choose(null);
+            assertNotEquals(first, server);
+            secondChosen |= server == second;
+            thirdChosen |= server == third;
+        }
+        // the best instance is not chosen for all the requests: it is only one of the two random choices
+        assertTrue(secondChosen);
+        assertTrue(thirdChosen);
+    }
+
+    @Test
+    public void choose_skips_the_ejected_instances() {
+        eject(first);
+        eject(second);
+
+        for (int i = 0; i < 20; i++) {
+            assertEquals(third, rule.choose(null));
+        }
+    }
+
+    @Test
+    public void choose_falls_back_to_the_ejected_instances_when_all_are_ejected() {
+        eject(first);
+        eject(second);
+        eject(third);
+
+        for (int i = 0; i < 20; i++) {
+            assertNotNull(rule.choose(null));
+        }
+    }
+
+    private void eject(Server server) {
+        InstanceStats stats = instanceStatsRegistry.getStats("demo", server.getHostPort());
+        for (int i = 0; i < 5; i++) {
+            stats.requestStarted();
+            stats.requestCompleted(1000000, true, System.nanoTime());
+        }
+        assertTrue(stats.isEjected(System.nanoTime()));
+    }
+}
@@ -0,0 +1,50 @@
+package com.renmaituan.shop.gateway.metrics;
+
+import com.codahale.metrics.Snapshot;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests HdrHistogramReservoir class.
+ */
+public class HdrHistogramReservoirTest {
+
+    @Test
+    public void snapshot_contains_the_recorded_values() {
+        HdrHistogramReservoir reservoir = new HdrHistogramReservoir(1, TimeUnit.MINUTES);
+        for (long i = 1; i <= 1000; i++) {
+            reservoir.update(i * 1000);
+        }
+
+        Snapshot snapshot = reservoir.getSnapshot();
+
+        assertEquals(1000, snapshot.size());
+        assertEquals(1000, snapshot.getMin(), 10);
+        assertEquals(1000000, snapshot.getMax(), 10000);
+        assertEquals(500000, snapshot.getMedian(), 5000);
+        assertEquals(990000, snapshot.get99thPercentile(), 10000);
+    }
+
+    @Test
+    public void snapshot_keeps_the_values_of_the_previous_reads() {
+        HdrHistogramReservoir reservoir = new HdrHistogramReservoir(1, TimeUnit.MINUTES);
+        reservoir.update(100);
+        reservoir.getSnapshot();
+        reservoir.update(200);
+
+        assertEquals(2, reservoir.getSnapshot().size());
+    }
+
+    @Test
+    public void values_older_than_two_windows_are_dropped() throws InterruptedException {
+        HdrHistogramReservoir reservoir = new HdrHistogramReservoir(10, TimeUnit.MILLISECONDS);
+        reservoir.update(100);
+        reservoir.getSnapshot();
+        Thread.sleep(30);
+
+        assertEquals(0, reservoir.getSnapshot().size());
+    }
+}
@@ -0,0 +1,117 @@
+package com.renmaituan.shop.gateway.ratelimiting;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.SettableFuture;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests CassandraRateLimiterBackend class.
+ */
+public class CassandraRateLimiterBackendTest {
+
+    private static final long NOW = 120000;
+
+    private RateLimitingRepository rateLimitingRepository;
+
+    private MetricRegistry metricRegistry;
+
+    private CassandraRateLimiterBackend backend;
+
+    private RateLimit[] rateLimits = new RateLimit[] { new RateLimit("minute", 3) };
+
+    @Before
+    public void setup() {
+        rateLimitingRepository = mock(RateLimitingRepository.class);
+        metricRegistry = new MetricRegistry();
+        backend = new CassandraRateLimiterBackend(rateLimitingRepository, 50, metricRegistry);
+    }
+
+    @Test
+    public void tryAcquire_uses_the_counters_read_in_time() {
+        when(rateLimitingRepository.getCounters(anyString(), anyString(), anyLong(), anyLong()))
+            .thenReturn(Futures.immediateFuture(new long[] { 0, 2 }));
+
+        RateLimitQuota quota = backend.tryAcquire("user", rateLimits, NOW);
+
+        assertTrue(quota.isAllowed());
+        assertEquals(0, quota.getRemaining());
+        verify(rateLimitingRepository).incrementCounter("user", "minute", NOW);
+        assertEquals(0, getFailOpenCount());
+    }
+
+    @Test
+    public void tryAcquire_fails_open_with_the_last_known_counters_after_the_deadline() {
+        when(rateLimitingRepository.getCounters(anyString(), anyString(), anyLong(), anyLong()))
+            .thenReturn(Futures.immediateFuture(new long[] { 0, 2 }));
+        assertTrue(backend.tryAcquire("user", rateLimits, NOW).isAllowed());
+
+        // Cassandra never answers: the 2 calls read and the one accepted since reach the limit
+        when(rateLimitingRepository.getCounters(anyString(), anyString(), anyLong(), anyLong()))
+            .thenReturn(SettableFuture.create());
+        long start = System.nanoTime();
+        RateLimitQuota quota = backend.tryAcquire("user", rateLimits, NOW + 1000);
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+        assertFalse(quota.isAllowed());
+        assertTrue("the check took " + elapsedMillis + " ms", elapsedMillis >= 40 && elapsedMillis < 1000);
+        assertEquals(1, getFailOpenCount());
+        verify(rateLimitingRepository, times(1)).incrementCounter("user", "minute", NOW);
+    }
+
+    @Test
+    public void tryAcquire_fails_open_without_any_known_counter() {
+        when(rateLimitingRepository.getCounters(anyString(), anyString(), anyLong(), anyLong()))
+            .thenReturn(SettableFuture.create());
+
+        assertTrue(backend.tryAcquire("user", rateLimits, NOW).isAllowed());
+        assertTrue(backend.tryAcquire("user", rateLimits, NOW).isAllowed());
+
+        assertEquals(2, getFailOpenCount());
+        // the calls accepted while failing open are still written
+        verify(rateLimitingRepository, times(2)).incrementCounter("user", "minute", NOW);
+        assertEquals(1, backend.getQuota("user", rateLimits, NOW).getRemaining());
+    }
+
+    @Test
+    public void tryAcquire_fails_open_when_the_read_fails() {
+        SettableFuture<long[]> failed = SettableFuture.create();
+        failed.setException(new IllegalStateException("no host available"));
+        when(rateLimitingRepository.getCounters(anyString(), anyString(), anyLong(), anyLong()))
+            .thenReturn(failed);
+
+        assertTrue(backend.tryAcquire("user", rateLimits, NOW).isAllowed());
+        assertEquals(1, getFailOpenCount());
+    }
+
+    @Test
+    public void incrementAndGet_adds_the_increments_not_written_yet() throws Exception {
+        when(rateLimitingRepository.getCounters(anyString(), anyString(), anyLong(), anyLong()))
+            .thenReturn(Futures.immediateFuture(new long[] { 1, 5 }));
+        when(rateLimitingRepository.getPendingDelta("user", "minute", NOW)).thenReturn(3L);
+
+        assertArrayEquals(new long[] { 8 }, backend.incrementAndGet("user", rateLimits, NOW, 3).get());
+        verify(rateLimitingRepository).incrementCounter("user", "minute", NOW, 3);
+    }
+
+    @Test
+    public void incrementAndGet_does_not_wait_for_cassandra() {
+        when(rateLimitingRepository.getCounters(anyString(), anyString(), anyLong(), anyLong()))
+            .thenReturn(SettableFuture.create());
+
+        assertFalse(backend.incrementAndGet("user", rateLimits, NOW, 3).isDone());
+    }
+
+    private long getFailOpenCount() {
+        return metricRegistry.counter("gateway.ratelimiting.fail-open").getCount();
+    }
+}
@@ -0,0 +1,73 @@
+package com.renmaituan.shop.gateway.ratelimiting;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests InMemoryRateLimiterBackend class.
+ */
+public class InMemoryRateLimiterBackendTest {
+
+    private InMemoryRateLimiterBackend backend = new InMemoryRateLimiterBackend();
+
+    private RateLimit[] rateLimits = new RateLimit[] { new RateLimit("second", 2), new RateLimit("minute", 3) };
+
+    @Test
+    public void tryAcquire_checks_every_limit() {
+        assertTrue(backend.tryAcquire("user", rateLimits, 60000).isAllowed());
+        assertTrue(backend.tryAcquire("user", rateLimits, 60000).isAllowed());
+        assertFalse(backend.tryAcquire("user", rateLimits, 60000).isAllowed());
+
+        // the per second limit is over, not the per minute one
+        assertTrue(backend.tryAcquire("user", rateLimits, 62000).isAllowed());
+        assertFalse(backend.tryAcquire("user", rateLimits, 63000).isAllowed());
+
+        assertTrue(backend.tryAcquire("other-user", rateLimits, 63000).isAllowed());
+    }
+
+    @Test
+    public void tryAcquire_uses_the_previous_window() {
+        RateLimit[] perSecond = new RateLimit[] { new RateLimit("second", 4) };
+        for (int i = 0; i < 4; i++) {
+            assertTrue(backend.tryAcquire("user", perSecond, 1999).isAllowed());
+        }
+        // half of the previous window is still in the sliding period
+        assertTrue(backend.tryAcquire("user", perSecond, 2500).isAllowed());
+        assertTrue(backend.tryAcquire("user", perSecond, 2500).isAllowed());
+        assertFalse(backend.tryAcquire("user", perSecond, 2500).isAllowed());
+    }
+
+    @Test
+    public void incrementAndGet_returns_the_current_counters() throws Exception {
+        backend.tryAcquire("user", rateLimits, 60000);
+
+        assertArrayEquals(new long[] { 11, 11 }, backend.incrementAndGet("user", rateLimits, 60500, 10).get());
+        assertArrayEquals(new long[] { 5, 16 }, backend.incrementAndGet("user", rateLimits, 61000, 5).get());
+    }
+
+    @Test
+    public void tryAcquire_returns_the_most_restrictive_quota() {
+        RateLimitQuota quota = backend.tryAcquire("user", rateLimits, 60000);
+        assertTrue(quota.isAllowed());
+        assertEquals(2, quota.getLimit());
+        assertEquals(1, quota.getRemaining());
+        assertEquals(61000, quota.getResetMillis());
+        assertEquals(0, quota.getRetryAfterMillis());
+
+        backend.tryAcquire("user", rateLimits, 60000);
+        quota = backend.tryAcquire("user", rateLimits, 60000);
+        assertFalse(quota.isAllowed());
+        assertEquals(0, quota.getRemaining());
+        assertEquals(1001, quota.getRetryAfterMillis());
+    }
+
+    @Test
+    public void getQuota_does_not_count_calls() {
+        backend.tryAcquire("user", rateLimits, 60000);
+
+        assertEquals(1, backend.getQuota("user", rateLimits, 60000).getRemaining());
+        assertEquals(1, backend.getQuota("user", rateLimits, 60000).getRemaining());
+        assertEquals(2, backend.getQuota("other-user", rateLimits, 60000).getRemaining());
+    }
+}
@@ -0,0 +1,65 @@
+package com.renmaituan.shop.gateway.ratelimiting;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.SettableFuture;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests LocalRateLimiter class.
+ */
+public class LocalRateLimiterTest {
+
+    private RateLimiterBackend backend;
+
+    private LocalRateLimiter rateLimiter;
+
+    private final RateLimitPolicy policy = new RateLimitPolicy(RateLimitPolicy.DEFAULT_POLICY,
+        Collections.singletonList(new RateLimit("minute", 10)), false);
+
+    @Before
+    public void setup() {
+        backend = mock(RateLimiterBackend.class);
+        rateLimiter = new LocalRateLimiter(backend, 50);
+    }
+
+    @Test
+    public void flush_removes_the_calls_made_on_other_nodes() {
+        when(backend.incrementAndGet(anyString(), any(RateLimit[].class), anyLong(), anyLong()))
+            .thenReturn(Futures.immediateFuture(new long[] { 8 }));
+        rateLimiter.tryAcquire("user", policy);
+        rateLimiter.tryAcquire("user", policy);
+
+        rateLimiter.flush();
+
+        verify(backend).incrementAndGet(eq("user"), any(RateLimit[].class), anyLong(), eq(2L));
+        // 8 calls counted in the cluster, 2 of them made on this node
+        assertEquals(2, rateLimiter.getQuota("user", policy).getRemaining());
+    }
+
+    @Test
+    public void flush_stops_waiting_for_the_backend_after_the_flush_interval() {
+        when(backend.incrementAndGet(anyString(), any(RateLimit[].class), anyLong(), anyLong()))
+            .thenReturn(SettableFuture.create());
+        rateLimiter.tryAcquire("user", policy);
+        rateLimiter.tryAcquire("user", policy);
+
+        long start = System.nanoTime();
+        rateLimiter.flush();
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+        assertTrue("the flush took " + elapsedMillis + " ms", elapsedMillis >= 40 && elapsedMillis < 1000);
+        assertEquals(8, rateLimiter.getQuota("user", policy).getRemaining());
+    }
+}
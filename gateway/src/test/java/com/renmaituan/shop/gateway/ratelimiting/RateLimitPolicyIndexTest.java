@@ -0,0 +1,79 @@
+package com.renmaituan.shop.gateway.ratelimiting;
+
+import com.renmaituan.shop.config.JHipsterProperties;
+import com.renmaituan.shop.security.AuthoritiesConstants;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests RateLimitPolicyIndex class.
+ */
+public class RateLimitPolicyIndexTest {
+
+    private JHipsterProperties jHipsterProperties;
+
+    @Before
+    public void setup() {
+        jHipsterProperties = new JHipsterProperties();
+        Map<String, JHipsterProperties.Gateway.RateLimiting.Policy> policies =
+            jHipsterProperties.getGateway().getRateLimiting().getPolicies();
+
+        JHipsterProperties.Gateway.RateLimiting.Policy admin = new JHipsterProperties.Gateway.RateLimiting.Policy();
+        admin.setAuthority(AuthoritiesConstants.ADMIN);
+        admin.setExempt(true);
+        policies.put("admin", admin);
+
+        JHipsterProperties.Gateway.RateLimiting.Policy token = new JHipsterProperties.Gateway.RateLimiting.Policy();
+        token.setPath("/uaa/oauth/token");
+        token.getLimits().put("minute", 20L);
+        policies.put("uaa-token", token);
+
+        JHipsterProperties.Gateway.RateLimiting.Policy demo = new JHipsterProperties.Gateway.RateLimiting.Policy();
+        demo.setRoute("demo");
+        demo.getLimits().put("hour", 200000L);
+        policies.put("demo", demo);
+    }
+
+    @Test
+    public void getPolicy_by_authority() {
+        RateLimitPolicyIndex index = new RateLimitPolicyIndex(jHipsterProperties);
+
+        RateLimitPolicy policy = index.getPolicy("demo", "/demo/api/demos",
+            Collections.singletonList(new SimpleGrantedAuthority(AuthoritiesConstants.ADMIN)));
+
+        assertEquals("admin", policy.getName());
+        assertTrue(policy.isExempt());
+    }
+
+    @Test
+    public void getPolicy_by_path_then_route() {
+        RateLimitPolicyIndex index = new RateLimitPolicyIndex(jHipsterProperties);
+
+        assertEquals("uaa-token", index.getPolicy("uaa", "/uaa/oauth/token", null).getName());
+        assertEquals("demo", index.getPolicy("demo", "/demo/api/demos", null).getName());
+        assertEquals(RateLimitPolicy.DEFAULT_POLICY, index.getPolicy("uaa", "/uaa/api/account",
+            Collections.singletonList(new SimpleGrantedAuthority(AuthoritiesConstants.USER))).getName());
+    }
+
+    @Test
+    public void getKey_is_prefixed_with_the_policy_name() {
+        RateLimitPolicyIndex index = new RateLimitPolicyIndex(jHipsterProperties);
+
+        assertEquals("user", index.getDefaultPolicy().getKey("user"));
+        assertEquals("demo:user", index.getPolicy("demo", "/demo/api/demos", null).getKey("user"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void policy_without_limits_is_rejected() {
+        jHipsterProperties.getGateway().getRateLimiting().getPolicies()
+            .put("empty", new JHipsterProperties.Gateway.RateLimiting.Policy());
+
+        new RateLimitPolicyIndex(jHipsterProperties);
+    }
+}
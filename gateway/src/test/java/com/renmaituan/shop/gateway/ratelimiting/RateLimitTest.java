@@ -0,0 +1,61 @@
+package com.renmaituan.shop.gateway.ratelimiting;
+
+import com.renmaituan.shop.config.JHipsterProperties;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests RateLimit class.
+ */
+public class RateLimitTest {
+
+    @Test
+    public void getWindow_is_aligned_on_the_period() {
+        RateLimit rateLimit = new RateLimit("minute", 10);
+
+        assertEquals(120000, rateLimit.getWindow(120000));
+        assertEquals(120000, rateLimit.getWindow(179999));
+        assertEquals(180000, rateLimit.getWindow(180000));
+    }
+
+    @Test
+    public void estimate_weights_the_previous_window() {
+        RateLimit rateLimit = new RateLimit("second", 100);
+
+        assertEquals(100 + 10, rateLimit.estimate(100, 10, 5000));
+        assertEquals(25 + 10, rateLimit.estimate(100, 10, 5750));
+        assertEquals(10, rateLimit.estimate(100, 10, 5999));
+    }
+
+    @Test
+    public void getQuota_waits_for_the_previous_window_to_slide() {
+        RateLimit rateLimit = new RateLimit("second", 100);
+
+        RateLimitQuota quota = rateLimit.getQuota(100, 10, 5000, false);
+
+        assertEquals(0, quota.getRemaining());
+        assertEquals(6000, quota.getResetMillis());
+        assertEquals(101, quota.getRetryAfterMillis());
+        assertEquals(90, rateLimit.getQuota(100, 10, 5999, true).getRemaining());
+    }
+
+    @Test
+    public void fromProperties_defaults_to_the_hourly_limit() {
+        JHipsterProperties.Gateway.RateLimiting properties = new JHipsterProperties.Gateway.RateLimiting();
+        properties.setLimit(42);
+
+        List<RateLimit> rateLimits = RateLimit.fromProperties(properties);
+
+        assertEquals(1, rateLimits.size());
+        assertEquals("hour", rateLimits.get(0).getTimeUnit());
+        assertEquals(42, rateLimits.get(0).getLimit());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknown_time_unit_is_rejected() {
+        new RateLimit("fortnight", 10);
+    }
+}
@@ -0,0 +1,157 @@
+package com.renmaituan.shop.gateway.ratelimiting;
+
+import com.codahale.metrics.MetricRegistry;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Session;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.renmaituan.shop.config.JHipsterProperties;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests RateLimitingRepository class.
+ */
+public class RateLimitingRepositoryTest {
+
+    private final List<String> writes = new ArrayList<>();
+
+    private final List<Runnable> tasks = new ArrayList<>();
+
+    private JHipsterProperties jHipsterProperties;
+
+    private MetricRegistry metricRegistry;
+
+    @Before
+    public void setup() {
+        jHipsterProperties = new JHipsterProperties();
+        JHipsterProperties.Gateway.RateLimiting.WriteBehind writeBehind =
+            jHipsterProperties.getGateway().getRateLimiting().getWriteBehind();
+        writeBehind.setFlushThreshold(3);
+        writeBehind.setMaxPendingCounters(5);
+        metricRegistry = new MetricRegistry();
+    }
+
+    @Test
+    public void flush_writes_the_sum_of_the_increments_of_each_counter() {
+        RateLimitingRepository repository = createRepository(tasks::add);
+
+        repository.incrementCounter("user", "second", 1000);
+        repository.incrementCounter("user", "second", 1000);
+        repository.incrementCounter("user", "second", 1000, 3);
+        repository.incrementCounter("other-user", "second", 1000);
+        repository.flush();
+
+        assertEquals(2, writes.size());
+        assertTrue(writes.contains("user:second:1000=5"));
+        assertTrue(writes.contains("other-user:second:1000=1"));
+        assertEquals(1, metricRegistry.histogram("gateway.ratelimiting.flush.lag").getCount());
+
+        repository.flush();
+
+        assertEquals(2, writes.size());
+    }
+
+    @Test
+    public void idle_counters_are_retired_without_losing_increments() {
+        RateLimitingRepository repository = createRepository(tasks::add);
+
+        repository.incrementCounter("user", "second", 1000);
+        repository.flush();
+        assertEquals(1, getPendingCounters());
+
+        // no increment since the last flush
+        repository.flush();
+        assertEquals(0, getPendingCounters());
+
+        repository.incrementCounter("user", "second", 1000, 2);
+        repository.flush();
+
+        assertEquals(2, writes.size());
+        assertEquals("user:second:1000=2", writes.get(1));
+        // idle flushes do not record any lag
+        assertEquals(2, metricRegistry.histogram("gateway.ratelimiting.flush.lag").getCount());
+    }
+
+    @Test
+    public void early_flush_is_requested_once_until_it_runs() {
+        RateLimitingRepository repository = createRepository(tasks::add);
+
+        repository.incrementCounter("user-1", "second", 1000);
+        repository.incrementCounter("user-2", "second", 1000);
+        assertEquals(0, tasks.size());
+
+        repository.incrementCounter("user-3", "second", 1000);
+        repository.incrementCounter("user-4", "second", 1000);
+        assertEquals(1, tasks.size());
+
+        tasks.get(0).run();
+        assertEquals(4, writes.size());
+
+        // the flush ran, so a new one can be requested
+        repository.incrementCounter("user-5", "second", 1000);
+        assertEquals(2, tasks.size());
+    }
+
+    @Test
+    public void rejected_early_flush_does_not_fail_the_call() {
+        RateLimitingRepository repository = createRepository(task -> {
+            throw new TaskRejectedException("queue is full");
+        });
+
+        repository.incrementCounter("user-1", "second", 1000);
+        repository.incrementCounter("user-2", "second", 1000);
+        repository.incrementCounter("user-3", "second", 1000);
+        repository.flush();
+
+        assertEquals(3, writes.size());
+    }
+
+    @Test
+    public void increments_on_new_counters_are_dropped_over_max_pending_counters() {
+        RateLimitingRepository repository = createRepository(tasks::add);
+
+        for (int i = 0; i < 6; i++) {
+            repository.incrementCounter("user-" + i, "second", 1000);
+        }
+        repository.incrementCounter("user-0", "second", 1000);
+
+        assertEquals(5, getPendingCounters());
+        assertEquals(1, metricRegistry.counter("gateway.ratelimiting.dropped").getCount());
+    }
+
+    private int getPendingCounters() {
+        return (Integer) metricRegistry.getGauges().get("gateway.ratelimiting.pending").getValue();
+    }
+
+    private RateLimitingRepository createRepository(Executor taskExecutor) {
+        RateLimitingRepository repository = new RateLimitingRepository() {
+
+            @Override
+            ListenableFuture<ResultSet> executeIncrement(String id, String timeUnit, long time, long delta) {
+                writes.add(id + ":" + timeUnit + ":" + time + "=" + delta);
+                return Futures.immediateFuture(null);
+            }
+        };
+        Session session = mock(Session.class);
+        when(session.prepare(anyString())).thenReturn(mock(PreparedStatement.class));
+        ReflectionTestUtils.setField(repository, "session", session);
+        ReflectionTestUtils.setField(repository, "jHipsterProperties", jHipsterProperties);
+        ReflectionTestUtils.setField(repository, "metricRegistry", metricRegistry);
+        ReflectionTestUtils.setField(repository, "taskExecutor", taskExecutor);
+        repository.init();
+        return repository;
+    }
+}
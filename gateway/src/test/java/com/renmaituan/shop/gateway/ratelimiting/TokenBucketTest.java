@@ -0,0 +1,47 @@
+package com.renmaituan.shop.gateway.ratelimiting;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests TokenBucket class.
+ */
+public class TokenBucketTest {
+
+    @Test
+    public void tryConsume_until_empty() {
+        TokenBucket bucket = new TokenBucket(3, 1, TimeUnit.SECONDS, 0);
+
+        assertTrue(bucket.tryConsume(0));
+        assertTrue(bucket.tryConsume(0));
+        assertTrue(bucket.tryConsume(0));
+        assertFalse(bucket.tryConsume(0));
+        assertEquals(0, bucket.getAvailableTokens(0));
+    }
+
+    @Test
+    public void tryConsume_after_refill() {
+        TokenBucket bucket = new TokenBucket(2, 1, TimeUnit.SECONDS, 0);
+        bucket.tryConsume(0);
+        bucket.tryConsume(0);
+
+        long halfPeriod = TimeUnit.MILLISECONDS.toNanos(500);
+        assertEquals(1, bucket.getAvailableTokens(halfPeriod));
+        assertTrue(bucket.tryConsume(halfPeriod));
+        assertFalse(bucket.tryConsume(halfPeriod));
+    }
+
+    @Test
+    public void forceConsume_never_goes_below_zero() {
+        TokenBucket bucket = new TokenBucket(10, 1, TimeUnit.SECONDS, 0);
+        bucket.forceConsume(4, 0);
+        assertEquals(6, bucket.getAvailableTokens(0));
+
+        bucket.forceConsume(100, 0);
+        assertEquals(0, bucket.getAvailableTokens(0));
+        assertEquals(1, bucket.getAvailableTokens(TimeUnit.MILLISECONDS.toNanos(100)));
+    }
+}
@@ -0,0 +1,205 @@
+package com.renmaituan.shop.gateway.requestcoalescing;
+
+import com.codahale.metrics.MetricRegistry;
+import com.netflix.zuul.context.RequestContext;
+import com.renmaituan.shop.config.JHipsterProperties;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests RequestCoalescingPreFilter class, with the RequestCoalescingPostFilter sharing the responses and the
+ * RequestCoalescingErrorFilter.
+ */
+public class RequestCoalescingPreFilterTest {
+
+    private JHipsterProperties.Gateway.RequestCoalescing properties;
+
+    private MetricRegistry metricRegistry;
+
+    private RequestCoalescingPreFilter preFilter;
+
+    private RequestCoalescingPostFilter postFilter;
+
+    private RequestCoalescingErrorFilter errorFilter;
+
+    @Before
+    public void setup() {
+        properties = new JHipsterProperties.Gateway.RequestCoalescing();
+        properties.setEnabled(true);
+        properties.setRoutes(Collections.singletonList("demo"));
+        metricRegistry = new MetricRegistry();
+        preFilter = new RequestCoalescingPreFilter(properties, metricRegistry);
+        postFilter = new RequestCoalescingPostFilter(properties);
+        errorFilter = new RequestCoalescingErrorFilter(properties);
+    }
+
+    @After
+    public void tearDown() {
+        RequestContext.getCurrentContext().unset();
+    }
+
+    @Test
+    public void leader_is_proxied() {
+        RequestContext ctx = initContext(new MockHttpServletRequest("GET", "/demo/api/foos"));
+
+        assertTrue(preFilter.shouldFilter());
+        preFilter.run();
+
+        assertTrue(ctx.sendZuulResponse());
+        assertTrue(postFilter.shouldFilter());
+    }
+
+    @Test
+    public void follower_gets_the_response_of_the_leader() throws Exception {
+        RequestContext ctx = initContext(new MockHttpServletRequest("GET", "/demo/api/foos"));
+        preFilter.run();
+
+        CompletableFuture<RequestContext> follower = runInOtherThread(new MockHttpServletRequest("GET", "/demo/api/foos"));
+        setResponse(ctx, 200, "[\"foo\"]");
+        postFilter.run();
+
+        RequestContext followerCtx = follower.get(5, TimeUnit.SECONDS);
+        assertFalse(followerCtx.sendZuulResponse());
+        assertEquals(200, followerCtx.getResponseStatusCode());
+        assertEquals("[\"foo\"]", IOUtils.toString(followerCtx.getResponseDataStream(), StandardCharsets.UTF_8));
+        assertEquals(1, metricRegistry.meter("gateway.request-coalescing.coalesced").getCount());
+        // the leader still sends its own response
+        assertEquals("[\"foo\"]", IOUtils.toString(ctx.getResponseDataStream(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void follower_is_proxied_when_the_response_of_the_leader_is_not_200() throws Exception {
+        RequestContext ctx = initContext(new MockHttpServletRequest("GET", "/demo/api/foos"));
+        preFilter.run();
+
+        CompletableFuture<RequestContext> follower = runInOtherThread(new MockHttpServletRequest("GET", "/demo/api/foos"));
+        setResponse(ctx, 206, "[\"f");
+        postFilter.run();
+
+        assertTrue(follower.get(5, TimeUnit.SECONDS).sendZuulResponse());
+        assertEquals(0, metricRegistry.meter("gateway.request-coalescing.coalesced").getCount());
+    }
+
+    @Test
+    public void follower_is_proxied_after_the_timeout() throws Exception {
+        properties.setTimeout(50);
+        initContext(new MockHttpServletRequest("GET", "/demo/api/foos"));
+        preFilter.run();
+
+        // the leader never completes
+        RequestContext followerCtx = runInOtherThread(new MockHttpServletRequest("GET", "/demo/api/foos"))
+            .get(5, TimeUnit.SECONDS);
+
+        assertTrue(followerCtx.sendZuulResponse());
+        assertEquals(1, metricRegistry.meter("gateway.request-coalescing.timeouts").getCount());
+    }
+
+    @Test
+    public void follower_is_proxied_at_once_when_a_filter_of_the_leader_fails() throws Exception {
+        RequestContext ctx = initContext(new MockHttpServletRequest("GET", "/demo/api/foos"));
+        preFilter.run();
+
+        CompletableFuture<RequestContext> follower = runInOtherThread(new MockHttpServletRequest("GET", "/demo/api/foos"));
+        // a post filter before the RequestCoalescingPostFilter failed, Zuul runs the error filters
+        ctx.setThrowable(new IllegalStateException("post filter failure"));
+        assertTrue(errorFilter.shouldFilter());
+        errorFilter.run();
+
+        assertTrue(follower.get(1, TimeUnit.SECONDS).sendZuulResponse());
+        assertEquals(0, metricRegistry.meter("gateway.request-coalescing.timeouts").getCount());
+        // the leader is completed once
+        assertFalse(postFilter.shouldFilter());
+    }
+
+    @Test
+    public void requests_in_other_languages_are_not_coalesced() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/demo/api/foos");
+        request.addHeader(HttpHeaders.ACCEPT_LANGUAGE, "fr");
+        initContext(request);
+        preFilter.run();
+
+        MockHttpServletRequest otherRequest = new MockHttpServletRequest("GET", "/demo/api/foos");
+        otherRequest.addHeader(HttpHeaders.ACCEPT_LANGUAGE, "en");
+        RequestContext otherCtx = runInOtherThread(otherRequest).get(5, TimeUnit.SECONDS);
+
+        // the other request did not wait, it leads its own coalescing
+        assertTrue(otherCtx.sendZuulResponse());
+        assertTrue(otherCtx.containsKey(RequestCoalescingPreFilter.IN_FLIGHT_REQUEST));
+    }
+
+    @Test
+    public void conditional_and_range_requests_are_not_coalesced() {
+        for (String header : new String[] { HttpHeaders.IF_NONE_MATCH, HttpHeaders.IF_MODIFIED_SINCE,
+            HttpHeaders.RANGE }) {
+
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/demo/api/foos");
+            request.addHeader(header, "value");
+            initContext(request);
+
+            assertFalse(header, preFilter.shouldFilter());
+        }
+    }
+
+    @Test
+    public void requests_on_other_routes_are_not_coalesced() {
+        RequestContext ctx = initContext(new MockHttpServletRequest("GET", "/other/api/foos"));
+        ctx.set("proxy", "other");
+
+        assertFalse(preFilter.shouldFilter());
+    }
+
+    private RequestContext initContext(MockHttpServletRequest request) {
+        RequestContext ctx = RequestContext.getCurrentContext();
+        ctx.clear();
+        ctx.setRequest(request);
+        ctx.set("proxy", "demo");
+        return ctx;
+    }
+
+    private void setResponse(RequestContext ctx, int status, String body) {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        ctx.setResponseStatusCode(status);
+        ctx.addZuulResponseHeader(HttpHeaders.CONTENT_TYPE, "application/json");
+        ctx.setOriginContentLength((long) bytes.length);
+        ctx.setResponseDataStream(new ByteArrayInputStream(bytes));
+    }
+
+    /**
+     * Run the pre filter for the given request in another thread, with its own request context.
+     *
+     * @return the request context once the filter has run, waiting until the request waits for a leader
+     */
+    private CompletableFuture<RequestContext> runInOtherThread(MockHttpServletRequest request)
+        throws InterruptedException {
+
+        CompletableFuture<RequestContext> result = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            RequestContext ctx = initContext(request);
+            try {
+                preFilter.run();
+                result.complete(ctx);
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            } finally {
+                ctx.unset();
+            }
+        });
+        thread.start();
+        while (!result.isDone() && thread.getState() != Thread.State.TIMED_WAITING) {
+            Thread.sleep(1);
+        }
+        return result;
+    }
+}
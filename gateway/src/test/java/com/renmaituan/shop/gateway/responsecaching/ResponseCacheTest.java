@@ -0,0 +1,55 @@
+package com.renmaituan.shop.gateway.responsecaching;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests ResponseCache class.
+ */
+public class ResponseCacheTest {
+
+    private static CachedResponse response(int size, String eTag, long expires, long retainUntil) {
+        return new CachedResponse(200, Collections.emptyList(), new byte[size], false, eTag, expires,
+            retainUntil);
+    }
+
+    @Test
+    public void get_returns_fresh_then_stale_then_no_response() {
+        ResponseCache cache = new ResponseCache(1024 * 1024, null);
+        cache.put("key", response(10, "\"v1\"", 1000, 2000), 0);
+
+        assertTrue(cache.get("key", 500).isFresh(500));
+        assertFalse(cache.get("key", 1500).isFresh(1500));
+        assertNull(cache.get("key", 2000));
+        assertNull(cache.get("key", 0));
+    }
+
+    @Test
+    public void revalidate_keeps_the_body_and_etag() {
+        CachedResponse revalidated = response(10, "\"v1\"", 1000, 2000).revalidate(3000, 4000);
+
+        assertEquals("\"v1\"", revalidated.getETag());
+        assertEquals(10, revalidated.getSize());
+        assertTrue(revalidated.isFresh(2500));
+        assertEquals(4000, revalidated.getRetainUntil());
+    }
+
+    @Test
+    public void local_tier_is_bounded_by_size() {
+        ResponseCache cache = new ResponseCache(1000, null);
+        for (int i = 0; i < 10; i++) {
+            cache.put("key" + i, response(400, null, 1000, 1000), 0);
+        }
+
+        int cached = 0;
+        for (int i = 0; i < 10; i++) {
+            if (cache.get("key" + i, 0) != null) {
+                cached++;
+            }
+        }
+        assertTrue(cached <= 2);
+    }
+}
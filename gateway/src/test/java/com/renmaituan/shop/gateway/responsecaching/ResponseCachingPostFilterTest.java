@@ -0,0 +1,176 @@
+package com.renmaituan.shop.gateway.responsecaching;
+
+import com.codahale.metrics.MetricRegistry;
+import com.netflix.zuul.context.RequestContext;
+import com.renmaituan.shop.config.JHipsterProperties;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests ResponseCachingPostFilter class, with the ResponseCachingPreFilter answering from the cache.
+ */
+public class ResponseCachingPostFilterTest {
+
+    private static final String SPRING_SECURITY_CACHE_CONTROL = "no-cache, no-store, max-age=0, must-revalidate";
+
+    private JHipsterProperties.Gateway.ResponseCaching.Route route;
+
+    private MetricRegistry metricRegistry;
+
+    private ResponseCachingPreFilter preFilter;
+
+    private ResponseCachingPostFilter postFilter;
+
+    @Before
+    public void setup() {
+        JHipsterProperties.Gateway.ResponseCaching properties = new JHipsterProperties.Gateway.ResponseCaching();
+        route = new JHipsterProperties.Gateway.ResponseCaching.Route();
+        route.setTimeToLiveSeconds(30);
+        properties.getRoutes().put("demo", route);
+        metricRegistry = new MetricRegistry();
+        ResponseCache responseCache = new ResponseCache(1024 * 1024, null);
+        preFilter = new ResponseCachingPreFilter(responseCache, properties, metricRegistry);
+        postFilter = new ResponseCachingPostFilter(responseCache, properties, metricRegistry);
+    }
+
+    @After
+    public void tearDown() {
+        RequestContext.getCurrentContext().unset();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void response_is_sent_from_the_cache_while_fresh() throws Exception {
+        RequestContext ctx = request();
+        assertTrue(ctx.sendZuulResponse());
+        respond(ctx, 200, "max-age=60", null, "[\"foo\"]");
+
+        ctx = request();
+
+        assertTrue(ctx.containsKey(ResponseCachingPreFilter.CACHE_HIT));
+        assertFalse(ctx.sendZuulResponse());
+        assertEquals(200, ctx.getResponseStatusCode());
+        assertEquals("[\"foo\"]", IOUtils.toString(ctx.getResponseDataStream(), StandardCharsets.UTF_8));
+        assertEquals(1, metricRegistry.meter("gateway.response-cache.hits").getCount());
+    }
+
+    @Test
+    public void response_is_cached_for_the_time_to_live_of_the_route_without_max_age() {
+        respond(request(), 200, null, null, "[\"foo\"]");
+
+        assertFalse(request().sendZuulResponse());
+    }
+
+    @Test
+    public void no_store_response_is_not_cached() {
+        respond(request(), 200, SPRING_SECURITY_CACHE_CONTROL, null, "[\"foo\"]");
+
+        assertTrue(request().sendZuulResponse());
+    }
+
+    @Test
+    public void no_store_response_is_cached_when_the_route_ignores_cache_control() {
+        route.setIgnoreCacheControl(true);
+        respond(request(), 200, SPRING_SECURITY_CACHE_CONTROL, null, "[\"foo\"]");
+
+        assertFalse(request().sendZuulResponse());
+    }
+
+    @Test
+    public void private_response_is_not_cached_when_shared_between_users() {
+        route.setVaryBy("none");
+        respond(request(), 200, "private, max-age=60", null, "[\"foo\"]");
+
+        assertTrue(request().sendZuulResponse());
+    }
+
+    @Test
+    public void private_response_is_cached_per_user() {
+        authenticate("alice", "ROLE_USER");
+        respond(request(), 200, "private, max-age=60", null, "[\"foo\"]");
+
+        assertFalse(request().sendZuulResponse());
+        authenticate("bob", "ROLE_USER");
+        assertTrue(request().sendZuulResponse());
+    }
+
+    @Test
+    public void response_is_shared_between_users_with_the_same_authorities() {
+        route.setVaryBy("authorities");
+        authenticate("alice", "ROLE_USER");
+        respond(request(), 200, "max-age=60", null, "[\"foo\"]");
+
+        authenticate("bob", "ROLE_USER");
+        assertFalse(request().sendZuulResponse());
+        authenticate("carol", "ROLE_ADMIN");
+        assertTrue(request().sendZuulResponse());
+    }
+
+    @Test
+    public void stale_response_is_revalidated_with_its_etag() throws Exception {
+        respond(request(), 200, "max-age=0", "\"v1\"", "[\"foo\"]");
+
+        RequestContext ctx = request();
+        assertTrue(ctx.sendZuulResponse());
+        assertEquals("\"v1\"", ctx.getZuulRequestHeaders().get("if-none-match"));
+        respond(ctx, 304, "max-age=60", "\"v1\"", null);
+
+        // the micro-service answered 304, the client gets the cached body
+        assertEquals(200, ctx.getResponseStatusCode());
+        assertEquals("[\"foo\"]", IOUtils.toString(ctx.getResponseDataStream(), StandardCharsets.UTF_8));
+        assertEquals(1, metricRegistry.meter("gateway.response-cache.revalidations").getCount());
+        // and the response is fresh again
+        assertFalse(request().sendZuulResponse());
+    }
+
+    /**
+     * Run the pre filter for a GET request on the demo route, with a new request context.
+     */
+    private RequestContext request() {
+        RequestContext ctx = RequestContext.getCurrentContext();
+        ctx.clear();
+        ctx.setRequest(new MockHttpServletRequest("GET", "/demo/api/foos"));
+        ctx.set("proxy", "demo");
+        assertTrue(preFilter.shouldFilter());
+        preFilter.run();
+        return ctx;
+    }
+
+    /**
+     * Set the response of the micro-service, and run the post filter.
+     */
+    private void respond(RequestContext ctx, int status, String cacheControl, String eTag, String body) {
+        ctx.setResponseStatusCode(status);
+        if (cacheControl != null) {
+            ctx.addZuulResponseHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        }
+        if (eTag != null) {
+            ctx.addZuulResponseHeader(HttpHeaders.ETAG, eTag);
+        }
+        if (body != null) {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            ctx.setOriginContentLength((long) bytes.length);
+            ctx.setResponseDataStream(new ByteArrayInputStream(bytes));
+        }
+        if (postFilter.shouldFilter()) {
+            postFilter.run();
+        }
+    }
+
+    private void authenticate(String login, String authority) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(login, null,
+            AuthorityUtils.createAuthorityList(authority)));
+    }
+}
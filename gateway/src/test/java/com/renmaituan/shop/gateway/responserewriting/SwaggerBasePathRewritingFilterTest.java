@@ -2,11 +2,16 @@ package com.renmaituan.shop.gateway.responserewriting;
 
 import com.netflix.zuul.context.RequestContext;
 import org.apache.commons.io.IOUtils;
+import org.junit.After;
 import org.junit.Test;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.Assert.*;
 import static springfox.documentation.swagger2.web.Swagger2Controller.DEFAULT_URL;
@@ -18,11 +23,17 @@ public class SwaggerBasePathRewritingFilterTest {
 
     private SwaggerBasePathRewritingFilter filter = new SwaggerBasePathRewritingFilter();
 
+    @After
+    public void tearDown() {
+        RequestContext.getCurrentContext().unset();
+    }
+
     @Test
     public void shouldFilter_on_default_swagger_url() {
 
         MockHttpServletRequest request = new MockHttpServletRequest("GET", DEFAULT_URL);
         RequestContext.getCurrentContext().setRequest(request);
+        RequestContext.getCurrentContext().setResponseStatusCode(200);
 
         assertTrue(filter.shouldFilter());
     }
@@ -36,6 +47,7 @@ public class SwaggerBasePathRewritingFilterTest {
         MockHttpServletRequest request = new MockHttpServletRequest("GET", DEFAULT_URL);
         request.setParameter("debug", "true");
         RequestContext.getCurrentContext().setRequest(request);
+        RequestContext.getCurrentContext().setResponseStatusCode(200);
 
         assertTrue(filter.shouldFilter());
     }
@@ -65,6 +77,71 @@ public class SwaggerBasePathRewritingFilterTest {
         filter.run();
 
         assertEquals("UTF-8", response.getCharacterEncoding());
-        assertEquals("{\"basePath\":\"/service1\"}", context.getResponseBody());
+        assertEquals("{\"basePath\":\"/service1\"}", response.getContentAsString());
+        assertNull(context.getResponseDataStream());
+    }
+
+    @Test
+    public void run_only_rewrites_the_top_level_basePath() throws Exception {
+        MockHttpServletResponse response = setUpContext("{\"swagger\":\"2.0\",\"paths\":{\"basePath\":[1,2.5]},\"basePath\":\"/\"}");
+
+        filter.run();
+
+        assertEquals("{\"swagger\":\"2.0\",\"paths\":{\"basePath\":[1,2.5]},\"basePath\":\"/service1\"}",
+            response.getContentAsString());
+    }
+
+    @Test
+    public void run_rewrites_the_document_on_every_request() throws Exception {
+        setUpContext("{\"basePath\":\"/\",\"version\":1}");
+        filter.run();
+
+        MockHttpServletResponse response = setUpContext("{\"basePath\":\"/\",\"version\":2}");
+        filter.run();
+
+        assertEquals("{\"basePath\":\"/service1\",\"version\":2}", response.getContentAsString());
+    }
+
+    @Test
+    public void shouldNotFilter_unsuccessful_responses() {
+        setUpContext("{\"error\":\"Not Found\"}");
+        RequestContext context = RequestContext.getCurrentContext();
+
+        for (int status : new int[] { 304, 404, 500 }) {
+            context.setResponseStatusCode(status);
+
+            assertFalse(String.valueOf(status), filter.shouldFilter());
+        }
+    }
+
+    @Test
+    public void run_decompresses_gzipped_documents() throws Exception {
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+            out.write("{\"basePath\":\"/\"}".getBytes(StandardCharsets.UTF_8));
+        }
+        MockHttpServletResponse response = setUpContext("");
+        RequestContext context = RequestContext.getCurrentContext();
+        context.setResponseGZipped(true);
+        context.setResponseDataStream(new ByteArrayInputStream(gzipped.toByteArray()));
+
+        filter.run();
+
+        assertEquals("{\"basePath\":\"/service1\"}", response.getContentAsString());
+        assertNull(response.getHeader("Content-Encoding"));
+    }
+
+    private MockHttpServletResponse setUpContext(String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/service1" + DEFAULT_URL);
+        RequestContext context = RequestContext.getCurrentContext();
+        context.unset();
+        context = RequestContext.getCurrentContext();
+        context.setRequest(request);
+        context.setResponseStatusCode(200);
+        context.setResponseGZipped(false);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        context.setResponse(response);
+        context.setResponseDataStream(IOUtils.toInputStream(body));
+        return response;
     }
 }
@@ -0,0 +1,38 @@
+package com.renmaituan.shop.gateway.streaming;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests BufferPool class.
+ */
+public class BufferPoolTest {
+
+    @Test
+    public void released_buffers_are_reused() {
+        BufferPool bufferPool = new BufferPool(1024, 2);
+
+        byte[] buffer = bufferPool.acquire();
+        assertEquals(1024, buffer.length);
+        assertEquals(1, bufferPool.getInUse());
+        bufferPool.release(buffer);
+
+        assertEquals(0, bufferPool.getInUse());
+        assertEquals(1, bufferPool.getPooled());
+        assertSame(buffer, bufferPool.acquire());
+    }
+
+    @Test
+    public void pool_keeps_at_most_its_maximum_of_buffers() {
+        BufferPool bufferPool = new BufferPool(1024, 2);
+        byte[][] buffers = {bufferPool.acquire(), bufferPool.acquire(), bufferPool.acquire()};
+
+        for (byte[] buffer : buffers) {
+            bufferPool.release(buffer);
+        }
+
+        assertEquals(0, bufferPool.getInUse());
+        assertEquals(2, bufferPool.getPooled());
+    }
+}
@@ -0,0 +1,89 @@
+package com.renmaituan.shop.security;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests CachingJwtTokenStore class.
+ */
+public class CachingJwtTokenStoreTest {
+
+    private CountingJwtAccessTokenConverter converter;
+
+    private CachingJwtTokenStore tokenStore;
+
+    @Before
+    public void setup() {
+        converter = new CountingJwtAccessTokenConverter();
+        converter.setSigningKey("test-signing-key");
+        tokenStore = new CachingJwtTokenStore(converter, 100, 1800);
+    }
+
+    @Test
+    public void readAuthentication_verifies_the_token_once() {
+        String token = createToken(new Date(System.currentTimeMillis() + 60000));
+
+        OAuth2Authentication authentication = tokenStore.readAuthentication(token);
+        tokenStore.readAccessToken(token);
+        int decoded = converter.decoded;
+
+        assertSame(authentication, tokenStore.readAuthentication(token));
+        assertEquals("user", authentication.getName());
+        assertNotNull(tokenStore.readAccessToken(token));
+        assertEquals(decoded, converter.decoded);
+    }
+
+    @Test
+    public void readAuthentication_does_not_cache_expired_tokens() {
+        String token = createToken(new Date(System.currentTimeMillis() - 1000));
+
+        tokenStore.readAccessToken(token);
+        int decoded = converter.decoded;
+        tokenStore.readAccessToken(token);
+
+        assertTrue(converter.decoded > decoded);
+    }
+
+    @Test(expected = InvalidTokenException.class)
+    public void readAuthentication_rejects_tokens_with_an_invalid_signature() {
+        String token = createToken(new Date(System.currentTimeMillis() + 60000));
+
+        tokenStore.readAuthentication(token.substring(0, token.length() - 2));
+    }
+
+    private String createToken(Date expiration) {
+        OAuth2Request request = new OAuth2Request(Collections.emptyMap(), "web_app",
+            AuthorityUtils.createAuthorityList(AuthoritiesConstants.USER), true, Collections.singleton("openid"),
+            null, null, null, null);
+        OAuth2Authentication authentication = new OAuth2Authentication(request,
+            new UsernamePasswordAuthenticationToken("user", "N/A",
+                AuthorityUtils.createAuthorityList(AuthoritiesConstants.USER)));
+        DefaultOAuth2AccessToken accessToken = new DefaultOAuth2AccessToken("token");
+        accessToken.setExpiration(expiration);
+        return converter.enhance(accessToken, authentication).getValue();
+    }
+
+    private static class CountingJwtAccessTokenConverter extends JwtAccessTokenConverter {
+
+        private int decoded;
+
+        @Override
+        protected Map<String, Object> decode(String token) {
+            decoded++;
+            return super.decode(token);
+        }
+    }
+}
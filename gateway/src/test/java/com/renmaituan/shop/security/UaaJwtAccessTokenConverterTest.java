@@ -0,0 +1,109 @@
+package com.renmaituan.shop.security;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.jwt.crypto.sign.MacSigner;
+import org.springframework.security.jwt.crypto.sign.SignatureVerifier;
+import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests UaaJwtAccessTokenConverter class.
+ */
+public class UaaJwtAccessTokenConverterTest {
+
+    private final MacSigner key1 = new MacSigner("secret-1");
+
+    private final MacSigner key2 = new MacSigner("secret-2");
+
+    private UaaPublicKeyProvider uaaPublicKeyProvider;
+
+    private UaaJwtAccessTokenConverter converter;
+
+    @Before
+    public void setup() {
+        uaaPublicKeyProvider = mock(UaaPublicKeyProvider.class);
+        converter = new UaaJwtAccessTokenConverter(uaaPublicKeyProvider);
+    }
+
+    @Test
+    public void decode_verifies_the_token_with_the_key_of_its_kid() {
+        when(uaaPublicKeyProvider.getVerifiers()).thenReturn(verifiers("k1", key1, "k2", key2));
+
+        assertEquals("user", converter.decode(createToken("k2", key2)).get("user_name"));
+        verify(uaaPublicKeyProvider, never()).refreshOnDemand();
+    }
+
+    @Test(expected = InvalidTokenException.class)
+    public void decode_does_not_try_the_other_keys_when_the_kid_is_known() {
+        when(uaaPublicKeyProvider.getVerifiers()).thenReturn(verifiers("k1", key1, "k2", key2));
+
+        converter.decode(createToken("k1", key2));
+    }
+
+    @Test
+    public void decode_tries_every_known_key_without_kid() {
+        when(uaaPublicKeyProvider.getVerifiers()).thenReturn(verifiers("k1", key1, "k2", key2));
+
+        assertEquals("user", converter.decode(createToken(null, key2)).get("user_name"));
+    }
+
+    @Test
+    public void decode_tries_every_known_key_with_an_unknown_kid() {
+        when(uaaPublicKeyProvider.getVerifiers()).thenReturn(verifiers("k1", key1, "k2", key2));
+
+        assertEquals("user", converter.decode(createToken("k3", key1)).get("user_name"));
+    }
+
+    @Test
+    public void decode_refreshes_the_keys_when_none_verifies_the_token() {
+        when(uaaPublicKeyProvider.getVerifiers())
+            .thenReturn(verifiers("k1", key1, null, null), verifiers("k1", key1, "k2", key2));
+        when(uaaPublicKeyProvider.refreshOnDemand()).thenReturn(true);
+
+        assertEquals("user", converter.decode(createToken("k2", key2)).get("user_name"));
+        verify(uaaPublicKeyProvider).refreshOnDemand();
+    }
+
+    @Test(expected = InvalidTokenException.class)
+    public void decode_rejects_the_token_when_the_keys_did_not_change() {
+        when(uaaPublicKeyProvider.getVerifiers()).thenReturn(verifiers("k1", key1, null, null));
+        when(uaaPublicKeyProvider.refreshOnDemand()).thenReturn(false);
+
+        converter.decode(createToken("k2", key2));
+    }
+
+    private static Map<String, SignatureVerifier> verifiers(String keyId1, SignatureVerifier verifier1,
+        String keyId2, SignatureVerifier verifier2) {
+
+        Map<String, SignatureVerifier> verifiers = new LinkedHashMap<>();
+        verifiers.put(keyId1, verifier1);
+        if (keyId2 != null) {
+            verifiers.put(keyId2, verifier2);
+        }
+        return Collections.unmodifiableMap(verifiers);
+    }
+
+    private static String createToken(String keyId, MacSigner signer) {
+        String header = keyId == null ? "{\"alg\":\"HS256\",\"typ\":\"JWT\"}" :
+            "{\"alg\":\"HS256\",\"typ\":\"JWT\",\"kid\":\"" + keyId + "\"}";
+        String content = base64Url(header.getBytes(StandardCharsets.UTF_8)) + "." +
+            base64Url("{\"user_name\":\"user\",\"scope\":[\"openid\"]}".getBytes(StandardCharsets.UTF_8));
+        return content + "." + base64Url(signer.sign(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String base64Url(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
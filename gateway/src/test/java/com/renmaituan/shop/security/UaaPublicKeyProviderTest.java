@@ -0,0 +1,152 @@
+package com.renmaituan.shop.security;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.jwt.crypto.sign.SignatureVerifier;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import java.math.BigInteger;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+/**
+ * Tests UaaPublicKeyProvider class.
+ */
+public class UaaPublicKeyProviderTest {
+
+    private static final String JWKS_URL = "http://uaa/.well-known/jwks.json";
+
+    private static final String TOKEN_KEY_URL = "http://uaa/oauth/token_key";
+
+    private MockRestServiceServer server;
+
+    private UaaPublicKeyProvider provider;
+
+    private final AtomicInteger keysChanged = new AtomicInteger();
+
+    @Before
+    public void setup() {
+        RestTemplate restTemplate = new RestTemplate();
+        server = MockRestServiceServer.createServer(restTemplate);
+        // refresh on every scheduled run
+        provider = new UaaPublicKeyProvider(restTemplate, mock(DiscoveryClient.class), 0);
+        provider.addKeysChangedListener(keysChanged::incrementAndGet);
+    }
+
+    @Test
+    public void refresh_loads_every_key_of_the_jwks_and_revalidates_it_with_its_etag() throws Exception {
+        server.expect(requestTo(JWKS_URL))
+            .andRespond(withSuccess(jwks("k1", "k2"), MediaType.APPLICATION_JSON).headers(eTag("\"v1\"")));
+        server.expect(requestTo(JWKS_URL)).andExpect(header(HttpHeaders.IF_NONE_MATCH, "\"v1\""))
+            .andRespond(withStatus(HttpStatus.NOT_MODIFIED));
+
+        provider.scheduledRefresh();
+        Map<String, SignatureVerifier> verifiers = provider.getVerifiers();
+        provider.scheduledRefresh();
+
+        server.verify();
+        assertEquals(Arrays.asList("k1", "k2"), Arrays.asList(verifiers.keySet().toArray()));
+        assertSame(verifiers, provider.getVerifiers());
+        assertEquals(1, keysChanged.get());
+    }
+
+    @Test
+    public void refresh_forgets_the_keys_removed_from_the_jwks() throws Exception {
+        server.expect(requestTo(JWKS_URL))
+            .andRespond(withSuccess(jwks("k1", "k2"), MediaType.APPLICATION_JSON).headers(eTag("\"v1\"")));
+        server.expect(requestTo(JWKS_URL))
+            .andRespond(withSuccess(jwks("k2"), MediaType.APPLICATION_JSON).headers(eTag("\"v2\"")));
+
+        provider.scheduledRefresh();
+        provider.scheduledRefresh();
+
+        server.verify();
+        assertEquals(Arrays.asList("k2"), Arrays.asList(provider.getVerifiers().keySet().toArray()));
+        assertEquals(2, keysChanged.get());
+    }
+
+    @Test
+    public void refresh_keeps_the_last_token_keys_without_jwks() {
+        for (int i = 1; i <= 4; i++) {
+            server.expect(requestTo(JWKS_URL)).andRespond(withStatus(HttpStatus.NOT_FOUND));
+            server.expect(requestTo(TOKEN_KEY_URL)).andRespond(withSuccess(
+                "{\"alg\":\"HMACSHA256\",\"value\":\"secret-" + i + "\",\"kid\":\"k" + i + "\"}",
+                MediaType.APPLICATION_JSON));
+        }
+
+        for (int i = 1; i <= 4; i++) {
+            provider.scheduledRefresh();
+        }
+
+        server.verify();
+        // at most MAX_KEYS keys, the oldest are evicted
+        assertEquals(Arrays.asList("k2", "k3", "k4"), Arrays.asList(provider.getVerifiers().keySet().toArray()));
+        assertEquals(4, keysChanged.get());
+    }
+
+    @Test
+    public void refreshOnDemand_fetches_the_keys_at_most_every_30_seconds() throws Exception {
+        server.expect(requestTo(JWKS_URL))
+            .andRespond(withSuccess(jwks("k1"), MediaType.APPLICATION_JSON).headers(eTag("\"v1\"")));
+
+        assertTrue(provider.refreshOnDemand());
+        // an unexpected request would fail the test
+        assertFalse(provider.refreshOnDemand());
+
+        server.verify();
+        assertEquals(1, provider.getVerifiers().size());
+    }
+
+    @Test
+    public void refresh_keeps_the_known_keys_when_the_uaa_is_down() throws Exception {
+        server.expect(requestTo(JWKS_URL))
+            .andRespond(withSuccess(jwks("k1"), MediaType.APPLICATION_JSON).headers(eTag("\"v1\"")));
+        server.expect(requestTo(JWKS_URL)).andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+
+        provider.scheduledRefresh();
+        provider.scheduledRefresh();
+
+        server.verify();
+        assertEquals(Arrays.asList("k1"), Arrays.asList(provider.getVerifiers().keySet().toArray()));
+    }
+
+    private static HttpHeaders eTag(String eTag) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(eTag);
+        return headers;
+    }
+
+    private static String jwks(String... keyIds) throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(1024);
+        StringBuilder jwks = new StringBuilder("{\"keys\":[");
+        for (int i = 0; i < keyIds.length; i++) {
+            RSAPublicKey publicKey = (RSAPublicKey) generator.generateKeyPair().getPublic();
+            jwks.append(i == 0 ? "" : ",")
+                .append("{\"kty\":\"RSA\",\"use\":\"sig\",\"alg\":\"RS256\",\"kid\":\"").append(keyIds[i])
+                .append("\",\"n\":\"").append(base64Url(publicKey.getModulus()))
+                .append("\",\"e\":\"").append(base64Url(publicKey.getPublicExponent())).append("\"}");
+        }
+        return jwks.append("]}").toString();
+    }
+
+    private static String base64Url(BigInteger value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.toByteArray());
+    }
+}
@@ -0,0 +1,77 @@
+package com.renmaituan.shop.service;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.netflix.zuul.filters.Route;
+import org.springframework.cloud.netflix.zuul.filters.RouteLocator;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests RouteSnapshotService class.
+ */
+public class RouteSnapshotServiceTest {
+
+    private RouteLocator routeLocator;
+
+    private DiscoveryClient discoveryClient;
+
+    private RouteSnapshotService routeSnapshotService;
+
+    @Before
+    public void setup() {
+        routeLocator = mock(RouteLocator.class);
+        discoveryClient = mock(DiscoveryClient.class);
+        when(routeLocator.getRoutes()).thenReturn(Collections.singletonList(
+            new Route("demo", "/**", "demo", "/demo", null, null)));
+        when(discoveryClient.getInstances("demo")).thenReturn(Collections.singletonList(
+            new DefaultServiceInstance("demo", "10.0.0.1", 8081, false)));
+
+        routeSnapshotService = new RouteSnapshotService();
+        ReflectionTestUtils.setField(routeSnapshotService, "routeLocator", routeLocator);
+        ReflectionTestUtils.setField(routeSnapshotService, "discoveryClient", discoveryClient);
+    }
+
+    @Test
+    public void getSnapshot_is_built_once_until_refresh() {
+        RouteSnapshotService.RouteSnapshot snapshot = routeSnapshotService.getSnapshot();
+
+        assertSame(snapshot, routeSnapshotService.getSnapshot());
+        assertEquals(1, snapshot.getRouteVMs().size());
+        assertEquals("/demo/**", snapshot.getRouteVMs().get(0).getPath());
+        verify(routeLocator, times(1)).getRoutes();
+        verify(discoveryClient, times(1)).getInstances("demo");
+
+        routeSnapshotService.refresh();
+
+        assertNotSame(snapshot, routeSnapshotService.getSnapshot());
+        verify(routeLocator, times(2)).getRoutes();
+    }
+
+    @Test
+    public void getETag_only_changes_when_the_routes_or_instances_change() {
+        String eTag = routeSnapshotService.getSnapshot().getETag();
+
+        routeSnapshotService.refresh();
+        assertEquals(eTag, routeSnapshotService.getSnapshot().getETag());
+
+        when(discoveryClient.getInstances("demo")).thenReturn(Arrays.asList(
+            new DefaultServiceInstance("demo", "10.0.0.1", 8081, false),
+            new DefaultServiceInstance("demo", "10.0.0.2", 8081, false)));
+        routeSnapshotService.refresh();
+        String scaledOutETag = routeSnapshotService.getSnapshot().getETag();
+        assertNotEquals(eTag, scaledOutETag);
+
+        when(routeLocator.getRoutes()).thenReturn(Collections.singletonList(
+            new Route("demo", "/**", "demo", "/demo-v2", null, null)));
+        routeSnapshotService.refresh();
+        assertNotEquals(scaledOutETag, routeSnapshotService.getSnapshot().getETag());
+    }
+}
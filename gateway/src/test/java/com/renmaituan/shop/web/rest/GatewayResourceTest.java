@@ -0,0 +1,109 @@
+package com.renmaituan.shop.web.rest;
+
+import com.renmaituan.shop.config.JHipsterProperties;
+import com.renmaituan.shop.gateway.loadbalancing.InstanceStats;
+import com.renmaituan.shop.gateway.loadbalancing.InstanceStatsRegistry;
+import com.renmaituan.shop.service.RouteSnapshotService;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.netflix.zuul.filters.Route;
+import org.springframework.cloud.netflix.zuul.filters.RouteLocator;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Collections;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Tests GatewayResource class.
+ */
+public class GatewayResourceTest {
+
+    private RouteSnapshotService routeSnapshotService;
+
+    private GatewayResource gatewayResource;
+
+    private MockMvc restGatewayMockMvc;
+
+    @Before
+    public void setup() {
+        RouteLocator routeLocator = mock(RouteLocator.class);
+        DiscoveryClient discoveryClient = mock(DiscoveryClient.class);
+        when(routeLocator.getRoutes()).thenReturn(Collections.singletonList(
+            new Route("demo", "/**", "demo", "/demo", null, null)));
+        when(discoveryClient.getInstances("demo")).thenReturn(Collections.singletonList(
+            new DefaultServiceInstance("demo", "10.0.0.1", 8081, false)));
+        routeSnapshotService = new RouteSnapshotService();
+        ReflectionTestUtils.setField(routeSnapshotService, "routeLocator", routeLocator);
+        ReflectionTestUtils.setField(routeSnapshotService, "discoveryClient", discoveryClient);
+
+        gatewayResource = new GatewayResource();
+        ReflectionTestUtils.setField(gatewayResource, "routeLocator", routeLocator);
+        ReflectionTestUtils.setField(gatewayResource, "routeSnapshotService", routeSnapshotService);
+        restGatewayMockMvc = MockMvcBuilders.standaloneSetup(gatewayResource).build();
+    }
+
+    @Test
+    public void activeRoutes_are_sent_with_their_etag() throws Exception {
+        String eTag = "\"" + routeSnapshotService.getSnapshot().getETag() + "\"";
+
+        restGatewayMockMvc.perform(get("/api/gateway/routes"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, eTag))
+            .andExpect(jsonPath("$[0].path").value("/demo/**"))
+            .andExpect(jsonPath("$[0].serviceId").value("demo"));
+    }
+
+    @Test
+    public void activeRoutes_are_not_sent_again_while_unchanged() throws Exception {
+        String eTag = "\"" + routeSnapshotService.getSnapshot().getETag() + "\"";
+
+        restGatewayMockMvc.perform(get("/api/gateway/routes").header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isNotModified())
+            .andExpect(content().string(""));
+
+        restGatewayMockMvc.perform(get("/api/gateway/routes").header(HttpHeaders.IF_NONE_MATCH, "\"outdated\""))
+            .andExpect(status().isOk());
+    }
+
+    @Test
+    public void activeRoutes_keep_their_etag_with_the_latency_aware_load_balancing() throws Exception {
+        enableLoadBalancing();
+        String eTag = "\"" + routeSnapshotService.getSnapshot().getETag() + "\"";
+
+        restGatewayMockMvc.perform(get("/api/gateway/routes").header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isNotModified());
+    }
+
+    @Test
+    public void getInstanceStats_sends_the_live_stats_of_the_instances() throws Exception {
+        InstanceStats stats = enableLoadBalancing().getStats("demo", "10.0.0.1:8081");
+        stats.requestStarted();
+
+        restGatewayMockMvc.perform(get("/api/gateway/instance-stats"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.demo['10.0.0.1:8081'].inFlight").value(1))
+            .andExpect(jsonPath("$.demo['10.0.0.1:8081'].ejected").value(false));
+    }
+
+    @Test
+    public void getInstanceStats_is_not_found_without_the_latency_aware_load_balancing() throws Exception {
+        restGatewayMockMvc.perform(get("/api/gateway/instance-stats"))
+            .andExpect(status().isNotFound());
+    }
+
+    private InstanceStatsRegistry enableLoadBalancing() {
+        InstanceStatsRegistry instanceStatsRegistry =
+            new InstanceStatsRegistry(new JHipsterProperties().getGateway().getLoadBalancing());
+        ReflectionTestUtils.setField(gatewayResource, "instanceStatsRegistry", instanceStatsRegistry);
+        return instanceStatsRegistry;
+    }
+}
@@ -1,12 +1,16 @@
 package com.renmaituan.shop.config;
 
 import com.hazelcast.config.Config;
+import com.hazelcast.config.InMemoryFormat;
+import com.hazelcast.config.NearCacheConfig;
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.core.Hazelcast;
 import com.hazelcast.instance.HazelcastInstanceFactory;
 import com.hazelcast.config.MapConfig;
 import com.hazelcast.config.EvictionPolicy;
 import com.hazelcast.config.MaxSizeConfig;
+import com.renmaituan.shop.security.UserDetailsCache;
+import com.renmaituan.shop.service.OAuth2ClientService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
@@ -67,6 +71,10 @@ public class CacheConfiguration {
         
         config.getMapConfigs().put("default", initializeDefaultMapConfig());
         config.getMapConfigs().put("com.renmaituan.shop.domain.*", initializeDomainMapConfig(jHipsterProperties));
+        config.getMapConfigs().put(UserDetailsCache.CACHE_NAME,
+            initializeNearCachedMapConfig(jHipsterProperties, InMemoryFormat.OBJECT));
+        config.getMapConfigs().put(OAuth2ClientService.CACHE_NAME,
+            initializeNearCachedMapConfig(jHipsterProperties, InMemoryFormat.BINARY));
 
         hazelcastInstance = HazelcastInstanceFactory.newHazelcastInstance(config);
 
@@ -118,6 +126,29 @@ public class CacheConfiguration {
         return mapConfig;
     }
 
+    private MapConfig initializeNearCachedMapConfig(JHipsterProperties jHipsterProperties,
+        InMemoryFormat inMemoryFormat) {
+
+        MapConfig mapConfig = new MapConfig();
+
+        mapConfig.setBackupCount(jHipsterProperties.getCache().getHazelcast().getBackupCount());
+        mapConfig.setTimeToLiveSeconds(jHipsterProperties.getCache().getTimeToLiveSeconds());
+
+        /*
+            Each node keeps a local copy of the entries it reads, so that
+            authenticating a user or a client does not need a network call.
+            Evictions are propagated to the local copies of all nodes.
+            Mutable values should be kept in BINARY format, so that each
+            read gets its own copy.
+         */
+        NearCacheConfig nearCacheConfig = new NearCacheConfig();
+        nearCacheConfig.setInMemoryFormat(inMemoryFormat);
+        nearCacheConfig.setInvalidateOnChange(true);
+        nearCacheConfig.setTimeToLiveSeconds(jHipsterProperties.getCache().getTimeToLiveSeconds());
+        mapConfig.setNearCacheConfig(nearCacheConfig);
+        return mapConfig;
+    }
+
     /**
     * @return the unique instance.
     */
@@ -3,6 +3,10 @@ package com.renmaituan.shop.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.web.cors.CorsConfiguration;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Properties specific to JHipster.
  *
@@ -177,6 +181,12 @@ public class JHipsterProperties {
             return authentication;
         }
 
+        private final PasswordHashing passwordHashing = new PasswordHashing();
+
+        public PasswordHashing getPasswordHashing() {
+            return passwordHashing;
+        }
+
         public LoadBalancedResourceDetails getClientAuthorization() {
             return clientAuthorization;
         }
@@ -196,6 +206,14 @@ public class JHipsterProperties {
 
                 private long tokenValidityInSecondsForRememberMe = 2592000;
 
+                private String keyStore = "classpath:keystore.jks";
+
+                private String keyStorePassword = "password";
+
+                private List<String> keyAliases = new ArrayList<>(Collections.singletonList("selfsigned"));
+
+                private long keyCacheMaxAge = 300;
+
                 public String getSecret() {
                     return secret;
                 }
@@ -219,6 +237,111 @@ public class JHipsterProperties {
                 public void setTokenValidityInSecondsForRememberMe(long tokenValidityInSecondsForRememberMe) {
                     this.tokenValidityInSecondsForRememberMe = tokenValidityInSecondsForRememberMe;
                 }
+
+                public String getKeyStore() {
+                    return keyStore;
+                }
+
+                public void setKeyStore(String keyStore) {
+                    this.keyStore = keyStore;
+                }
+
+                public String getKeyStorePassword() {
+                    return keyStorePassword;
+                }
+
+                public void setKeyStorePassword(String keyStorePassword) {
+                    this.keyStorePassword = keyStorePassword;
+                }
+
+                public List<String> getKeyAliases() {
+                    return keyAliases;
+                }
+
+                public void setKeyAliases(List<String> keyAliases) {
+                    this.keyAliases = keyAliases;
+                }
+
+                public long getKeyCacheMaxAge() {
+                    return keyCacheMaxAge;
+                }
+
+                public void setKeyCacheMaxAge(long keyCacheMaxAge) {
+                    this.keyCacheMaxAge = keyCacheMaxAge;
+                }
+            }
+        }
+
+        public static class PasswordHashing {
+
+            private String algorithm = "bcrypt";
+
+            private int pbkdf2Iterations = 185000;
+
+            private int threads = 0;
+
+            private int queueCapacity = 100;
+
+            private long targetTime = 100;
+
+            private int minStrength = 10;
+
+            private int maxStrength = 14;
+
+            public String getAlgorithm() {
+                return algorithm;
+            }
+
+            public void setAlgorithm(String algorithm) {
+                this.algorithm = algorithm;
+            }
+
+            public int getPbkdf2Iterations() {
+                return pbkdf2Iterations;
+            }
+
+            public void setPbkdf2Iterations(int pbkdf2Iterations) {
+                this.pbkdf2Iterations = pbkdf2Iterations;
+            }
+
+            public int getThreads() {
+                return threads;
+            }
+
+            public void setThreads(int threads) {
+                this.threads = threads;
+            }
+
+            public int getQueueCapacity() {
+                return queueCapacity;
+            }
+
+            public void setQueueCapacity(int queueCapacity) {
+                this.queueCapacity = queueCapacity;
+            }
+
+            public long getTargetTime() {
+                return targetTime;
+            }
+
+            public void setTargetTime(long targetTime) {
+                this.targetTime = targetTime;
+            }
+
+            public int getMinStrength() {
+                return minStrength;
+            }
+
+            public void setMinStrength(int minStrength) {
+                this.minStrength = minStrength;
+            }
+
+            public int getMaxStrength() {
+                return maxStrength;
+            }
+
+            public void setMaxStrength(int maxStrength) {
+                this.maxStrength = maxStrength;
             }
         }
     }
@@ -1,14 +1,22 @@
 package com.renmaituan.shop.config;
 
 import com.renmaituan.shop.security.AuthoritiesConstants;
+import com.renmaituan.shop.security.PasswordEncoderOverloadedException;
+import com.renmaituan.shop.security.TokenKeys;
+import com.renmaituan.shop.service.OAuth2ClientService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.common.exceptions.OAuth2Exception;
 import org.springframework.security.oauth2.config.annotation.configurers.ClientDetailsServiceConfigurer;
 import org.springframework.security.oauth2.config.annotation.web.configuration.AuthorizationServerConfigurerAdapter;
 import org.springframework.security.oauth2.config.annotation.web.configuration.EnableAuthorizationServer;
@@ -17,14 +25,15 @@ import org.springframework.security.oauth2.config.annotation.web.configuration.R
 import org.springframework.security.oauth2.config.annotation.web.configurers.AuthorizationServerEndpointsConfigurer;
 import org.springframework.security.oauth2.config.annotation.web.configurers.AuthorizationServerSecurityConfigurer;
 import org.springframework.security.oauth2.config.annotation.web.configurers.ResourceServerSecurityConfigurer;
+import org.springframework.security.oauth2.provider.client.BaseClientDetails;
+import org.springframework.security.oauth2.provider.error.DefaultWebResponseExceptionTranslator;
 import org.springframework.security.oauth2.provider.token.TokenStore;
 import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
 import org.springframework.security.oauth2.provider.token.store.JwtTokenStore;
-import org.springframework.security.oauth2.provider.token.store.KeyStoreKeyFactory;
 
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletResponse;
-import java.security.KeyPair;
+import java.util.Collections;
 
 @Configuration
 @EnableAuthorizationServer
@@ -58,6 +67,7 @@ public class UaaConfiguration extends AuthorizationServerConfigurerAdapter {
                 .antMatchers("/api/account/reset_password/init").permitAll()
                 .antMatchers("/api/account/reset_password/finish").permitAll()
                 .antMatchers("/api/profile-info").permitAll()
+                .antMatchers("/.well-known/jwks.json").permitAll()
                 .antMatchers("/api/**").authenticated()
                 .antMatchers("/management/**").hasAuthority(AuthoritiesConstants.ADMIN)
                 .antMatchers("/v2/api-docs/**").permitAll()
@@ -74,28 +84,71 @@ public class UaaConfiguration extends AuthorizationServerConfigurerAdapter {
     @Inject
     private JHipsterProperties jHipsterProperties;
 
+    @Inject
+    private OAuth2ClientService oAuth2ClientService;
+
+    @Inject
+    private ResourceLoader resourceLoader;
+
+    @Inject
+    private PasswordEncoder passwordEncoder;
+
+    /**
+     * The internal client of the micro-services is configured by the application properties, the other clients
+     * are read from the database through the {@link OAuth2ClientService}. Like theirs, the secret of the internal
+     * client is hashed, as the client secrets are verified with the {@link PasswordEncoder}.
+     */
     @Override
     public void configure(ClientDetailsServiceConfigurer clients) throws Exception {
-        /*
-        For a better client design, this should be done by a ClientDetailsService (similar to UserDetailsService).
-         */
-        clients.inMemory()
-            .withClient("web_app")
-            .scopes("openid")
-            .autoApprove(true)
-            .authorizedGrantTypes("implicit","refresh_token", "password", "authorization_code")
-            .and()
-            .withClient(jHipsterProperties.getSecurity().getClientAuthorization().getClientId())
-            .secret(jHipsterProperties.getSecurity().getClientAuthorization().getClientSecret())
-            .scopes("web-app")
-            .autoApprove(true)
-            .authorizedGrantTypes("client_credentials");
+        BaseClientDetails internalClient = new BaseClientDetails(
+            jHipsterProperties.getSecurity().getClientAuthorization().getClientId(), null, "web-app",
+            "client_credentials", null);
+        internalClient.setClientSecret(
+            passwordEncoder.encode(jHipsterProperties.getSecurity().getClientAuthorization().getClientSecret()));
+        internalClient.setAutoApproveScopes(Collections.singleton("true"));
+        clients.withClientDetails(clientId ->
+            internalClient.getClientId().equals(clientId) ? internalClient : oAuth2ClientService.getClient(clientId));
     }
 
     @Override
     public void configure(AuthorizationServerEndpointsConfigurer endpoints) throws Exception {
         endpoints.authenticationManager(authenticationManager).accessTokenConverter(
-                jwtAccessTokenConverter());
+                jwtAccessTokenConverter()).exceptionTranslator(new UaaWebResponseExceptionTranslator());
+    }
+
+    /**
+     * Answer with status 503 (Service Unavailable) when the passwords cannot be verified for now, instead of
+     * the status 500 (Internal Server Error) of the unexpected exceptions.
+     */
+    private static class UaaWebResponseExceptionTranslator extends DefaultWebResponseExceptionTranslator {
+
+        @Override
+        public ResponseEntity<OAuth2Exception> translate(Exception e) throws Exception {
+            if (e instanceof PasswordEncoderOverloadedException) {
+                HttpHeaders headers = new HttpHeaders();
+                headers.set(HttpHeaders.RETRY_AFTER, "1");
+                return new ResponseEntity<>(new TemporarilyUnavailableException(e.getMessage()), headers,
+                    HttpStatus.SERVICE_UNAVAILABLE);
+            }
+            return super.translate(e);
+        }
+    }
+
+    private static class TemporarilyUnavailableException extends OAuth2Exception {
+
+        TemporarilyUnavailableException(String msg) {
+            super(msg);
+        }
+
+        @Override
+        public String getOAuth2ErrorCode() {
+            return "temporarily_unavailable";
+        }
+
+        @Override
+        public int getHttpErrorCode() {
+            return HttpStatus.SERVICE_UNAVAILABLE.value();
+        }
     }
 
     @Autowired
@@ -106,7 +159,7 @@ public class UaaConfiguration extends AuthorizationServerConfigurerAdapter {
      * Apply the token converter (and enhander) for token store.
      */
     @Bean
-    public JwtTokenStore tokenStore() {
+    public JwtTokenStore tokenStore() throws Exception {
         return new JwtTokenStore(jwtAccessTokenConverter());
     }
 
@@ -117,18 +170,26 @@ public class UaaConfiguration extends AuthorizationServerConfigurerAdapter {
      * @return an access token converter configured with the authorization server's public/private keys
      */
     @Bean
-    public JwtAccessTokenConverter jwtAccessTokenConverter() {
+    public JwtAccessTokenConverter jwtAccessTokenConverter() throws Exception {
         JwtAccessTokenConverter converter = new JwtAccessTokenConverter();
-        KeyPair keyPair = new KeyStoreKeyFactory(
-             new ClassPathResource("keystore.jks"), "password".toCharArray())
-             .getKeyPair("selfsigned");
-        converter.setKeyPair(keyPair);
+        converter.setKeyPair(tokenKeys().getSigningKeyPair());
         return converter;
     }
 
+    /**
+     * The keys are read once from the key store, and published by the
+     * {@link com.renmaituan.shop.web.rest.TokenKeyResource}.
+     */
+    @Bean
+    public TokenKeys tokenKeys() throws Exception {
+        JHipsterProperties.Security.Authentication.Jwt jwt = jHipsterProperties.getSecurity().getAuthentication().getJwt();
+        return new TokenKeys(resourceLoader.getResource(jwt.getKeyStore()), jwt.getKeyStorePassword(),
+            jwt.getKeyAliases());
+    }
+
     @Override
     public void configure(AuthorizationServerSecurityConfigurer oauthServer) throws Exception {
         oauthServer.tokenKeyAccess("permitAll()").checkTokenAccess(
-                "isAuthenticated()");
+                "isAuthenticated()").passwordEncoder(passwordEncoder);
     }
 }
@@ -1,7 +1,17 @@
 package com.renmaituan.shop.config;
 
+import com.renmaituan.shop.repository.UserRepository;
+import com.renmaituan.shop.security.BCryptCalibration;
+import com.renmaituan.shop.security.BoundedPasswordEncoder;
+import com.renmaituan.shop.security.DelegatingPasswordEncoder;
+import com.renmaituan.shop.security.PasswordUpgradingAuthenticationProvider;
+import com.renmaituan.shop.security.UserDetailsCache;
+
+import com.codahale.metrics.MetricRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
@@ -9,10 +19,11 @@ import org.springframework.security.config.annotation.method.configuration.Enabl
 import org.springframework.security.config.annotation.web.builders.WebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.data.repository.query.SecurityEvaluationContextExtension;
 
+import java.util.concurrent.Executor;
+
 import javax.inject.Inject;
 
 @Configuration
@@ -22,16 +33,52 @@ public class UaaWebSecurityConfiguration extends WebSecurityConfigurerAdapter {
     @Inject
     private UserDetailsService userDetailsService;
 
+    @Inject
+    private JHipsterProperties jHipsterProperties;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    @Inject
+    private UserRepository userRepository;
+
+    @Inject
+    private UserDetailsCache userDetailsCache;
+
+    @Inject
+    @Qualifier("taskExecutor")
+    private Executor taskExecutor;
+
+    @Bean
+    public DelegatingPasswordEncoder delegatingPasswordEncoder() {
+        JHipsterProperties.Security.PasswordHashing passwordHashing =
+            jHipsterProperties.getSecurity().getPasswordHashing();
+        int strength = passwordHashing.getMinStrength();
+        if (DelegatingPasswordEncoder.BCRYPT.equals(passwordHashing.getAlgorithm())) {
+            strength = BCryptCalibration.calibrateStrength(passwordHashing.getTargetTime(),
+                passwordHashing.getMinStrength(), passwordHashing.getMaxStrength());
+        }
+        return new DelegatingPasswordEncoder(passwordHashing.getAlgorithm(), strength,
+            passwordHashing.getMaxStrength(), passwordHashing.getPbkdf2Iterations());
+    }
+
     @Bean
+    @Primary
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        JHipsterProperties.Security.PasswordHashing passwordHashing =
+            jHipsterProperties.getSecurity().getPasswordHashing();
+        int threads = passwordHashing.getThreads() > 0 ?
+            passwordHashing.getThreads() : Runtime.getRuntime().availableProcessors();
+        return new BoundedPasswordEncoder(delegatingPasswordEncoder(), threads,
+            passwordHashing.getQueueCapacity(), metricRegistry);
     }
 
     @Inject
     public void configureGlobal(AuthenticationManagerBuilder auth) throws Exception {
-        auth
-            .userDetailsService(userDetailsService)
-            .passwordEncoder(passwordEncoder());
+        PasswordUpgradingAuthenticationProvider authenticationProvider = new PasswordUpgradingAuthenticationProvider(
+            delegatingPasswordEncoder(), passwordEncoder(), userRepository, userDetailsCache, taskExecutor);
+        authenticationProvider.setUserDetailsService(userDetailsService);
+        auth.authenticationProvider(authenticationProvider);
     }
 
     @Override
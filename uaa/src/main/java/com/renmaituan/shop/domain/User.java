@@ -39,8 +39,8 @@ public class User extends AbstractAuditingEntity implements Serializable {
 
     @JsonIgnore
     @NotNull
-    @Size(min = 60, max = 60)
-    @Column(name = "password_hash",length = 60)
+    @Size(min = 60, max = 100)
+    @Column(name = "password_hash",length = 100)
     private String password;
 
     @Size(max = 50)
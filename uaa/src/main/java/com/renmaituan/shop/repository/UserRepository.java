@@ -5,8 +5,12 @@ import com.renmaituan.shop.domain.User;
 import java.time.ZonedDateTime;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -26,8 +30,22 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     Optional<User> findOneByLogin(String login);
 
+    @EntityGraph(attributePaths = "authorities")
+    Optional<User> findOneWithAuthoritiesByLogin(String login);
+
     Optional<User> findOneById(Long userId);
 
+    /**
+     * Replace the password hash of a user, unless it has been changed since it was read.
+     *
+     * @return the number of updated users
+     */
+    @Modifying
+    @Transactional
+    @Query("update User user set user.password = :newPassword where user.login = :login and user.password = :password")
+    int updatePassword(@Param("login") String login, @Param("password") String password,
+        @Param("newPassword") String newPassword);
+
     @Query(value = "select distinct user from User user left join fetch user.authorities",
         countQuery = "select count(user) from User user")
     Page<User> findAllWithAuthorities(Pageable pageable);
@@ -0,0 +1,43 @@
+package com.renmaituan.shop.security;
+
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+/**
+ * Utility class choosing the BCrypt strength from the time it takes to hash a password on this server.
+ */
+public final class BCryptCalibration {
+
+    private static final Logger log = LoggerFactory.getLogger(BCryptCalibration.class);
+
+    private BCryptCalibration() {
+    }
+
+    /**
+     * Get the highest strength hashing a password within the target time, between the min and max strengths.
+     * As each strength doubles the hashing time, the calibration takes about twice the target time.
+     */
+    public static int calibrateStrength(long targetMillis, int minStrength, int maxStrength) {
+        int strength = minStrength;
+        long millis = measure(strength);
+        while (strength < maxStrength && millis * 2 <= targetMillis) {
+            strength++;
+            millis = measure(strength);
+        }
+        log.info("Using BCrypt strength {}, hashing a password in {} ms", strength, millis);
+        return strength;
+    }
+
+    private static long measure(int strength) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 2; i++) {
+            long start = System.nanoTime();
+            BCrypt.hashpw("calibration", BCrypt.gensalt(strength));
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return TimeUnit.NANOSECONDS.toMillis(best);
+    }
+}
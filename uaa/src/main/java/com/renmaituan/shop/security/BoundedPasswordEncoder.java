@@ -0,0 +1,103 @@
+package com.renmaituan.shop.security;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+/**
+ * Password encoder hashing and verifying the passwords on a dedicated, bounded pool of threads, so that a
+ * burst of logins or registrations cannot hold all the request threads.
+ * <p>
+ * When all the threads are busy and the queue is full, the request is rejected at once with a
+ * {@link PasswordEncoderOverloadedException}.
+ * <p>
+ * The "uaa.password-encoder" metrics are the "queue" timer of the time spent waiting for a thread, the "encode"
+ * and "matches" timers of the hashing time, the "rejected" meter, and the "active" and "queued" gauges.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private static final String PREFIX = "uaa.password-encoder";
+
+    private final PasswordEncoder delegate;
+
+    private final ThreadPoolExecutor executor;
+
+    private final Timer queue;
+
+    private final Timer encodes;
+
+    private final Timer matches;
+
+    private final Meter rejected;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity,
+        MetricRegistry metricRegistry) {
+
+        this.delegate = delegate;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("uaa-password-encoder-"));
+        this.queue = metricRegistry.timer(PREFIX + ".queue");
+        this.encodes = metricRegistry.timer(PREFIX + ".encode");
+        this.matches = metricRegistry.timer(PREFIX + ".matches");
+        this.rejected = metricRegistry.meter(PREFIX + ".rejected");
+        metricRegistry.register(PREFIX + ".active", (Gauge<Integer>) executor::getActiveCount);
+        metricRegistry.register(PREFIX + ".queued", (Gauge<Integer>) () -> executor.getQueue().size());
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return execute(() -> delegate.encode(rawPassword), encodes);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return execute(() -> delegate.matches(rawPassword, encodedPassword), matches);
+    }
+
+    private <T> T execute(Supplier<T> task, Timer timer) {
+        long submitted = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long started = System.nanoTime();
+                queue.update(started - submitted, TimeUnit.NANOSECONDS);
+                try {
+                    return task.get();
+                } finally {
+                    timer.update(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.mark();
+            throw new PasswordEncoderOverloadedException("Too many passwords to hash, try again later");
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing a password", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Could not hash a password", e.getCause());
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,139 @@
+package com.renmaituan.shop.security;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+/**
+ * Password encoder prefixing the hashes with the id of their algorithm, and matching the hashes of any
+ * supported algorithm and cost.
+ * <p>
+ * The hashes look like "{bcrypt}$2a$10$..." or "{pbkdf2}185000$...", the PBKDF2 ones including their number of
+ * iterations. Hashes without prefix are the BCrypt hashes stored before the prefixes were introduced.
+ * <p>
+ * A hash which does not use the configured algorithm and cost {@link #needsUpgrade(String) needs an upgrade},
+ * see {@link PasswordUpgradingAuthenticationProvider}. As the BCrypt strength is calibrated on each server, a
+ * BCrypt hash is only upgraded when its strength is lower than the configured one, or higher than the maximum
+ * one, so that servers calibrated to different strengths do not keep rehashing the same passwords.
+ */
+public class DelegatingPasswordEncoder implements PasswordEncoder {
+
+    public static final String BCRYPT = "bcrypt";
+
+    public static final String PBKDF2 = "pbkdf2";
+
+    private static final int PBKDF2_HASH_WIDTH = 256;
+
+    private final String algorithm;
+
+    private final int bcryptStrength;
+
+    private final int maxBCryptStrength;
+
+    private final int pbkdf2Iterations;
+
+    private final PasswordEncoder encoder;
+
+    private final PasswordEncoder bcryptEncoder = new BCryptPasswordEncoder();
+
+    public DelegatingPasswordEncoder(String algorithm, int bcryptStrength, int maxBCryptStrength,
+        int pbkdf2Iterations) {
+
+        this.algorithm = algorithm;
+        this.bcryptStrength = bcryptStrength;
+        this.maxBCryptStrength = maxBCryptStrength;
+        this.pbkdf2Iterations = pbkdf2Iterations;
+        switch (algorithm) {
+            case BCRYPT:
+                this.encoder = new BCryptPasswordEncoder(bcryptStrength);
+                break;
+            case PBKDF2:
+                this.encoder = pbkdf2Encoder(pbkdf2Iterations);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown password hashing algorithm: " + algorithm);
+        }
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        String hash = encoder.encode(rawPassword);
+        return "{" + algorithm + "}" + (PBKDF2.equals(algorithm) ? pbkdf2Iterations + "$" + hash : hash);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+        String hash = getHash(encodedPassword);
+        switch (getAlgorithm(encodedPassword)) {
+            case BCRYPT:
+                return bcryptEncoder.matches(rawPassword, hash);
+            case PBKDF2:
+                int iterations = getPbkdf2Iterations(hash);
+                return iterations > 0 &&
+                    pbkdf2Encoder(iterations).matches(rawPassword, hash.substring(hash.indexOf('$') + 1));
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return true if the hash does not use the configured algorithm and cost
+     */
+    public boolean needsUpgrade(String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+        if (!encodedPassword.startsWith("{") || !algorithm.equals(getAlgorithm(encodedPassword))) {
+            return true;
+        }
+        String hash = getHash(encodedPassword);
+        if (BCRYPT.equals(algorithm)) {
+            int strength = getBCryptStrength(hash);
+            return strength < bcryptStrength || strength > maxBCryptStrength;
+        }
+        return getPbkdf2Iterations(hash) != pbkdf2Iterations;
+    }
+
+    private String getAlgorithm(String encodedPassword) {
+        if (!encodedPassword.startsWith("{")) {
+            return BCRYPT;
+        }
+        int end = encodedPassword.indexOf('}');
+        return end < 0 ? "" : encodedPassword.substring(1, end);
+    }
+
+    private String getHash(String encodedPassword) {
+        return encodedPassword.startsWith("{") ?
+            encodedPassword.substring(encodedPassword.indexOf('}') + 1) : encodedPassword;
+    }
+
+    /**
+     * @return the strength of a "$2a$10$..." hash, or -1 if it is malformed
+     */
+    private int getBCryptStrength(String hash) {
+        try {
+            return hash.length() > 7 && hash.charAt(6) == '$' ? Integer.parseInt(hash.substring(4, 6)) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return the iterations of a "185000$..." hash, or -1 if it is malformed
+     */
+    private int getPbkdf2Iterations(String hash) {
+        int end = hash.indexOf('$');
+        try {
+            return end > 0 ? Integer.parseInt(hash.substring(0, end)) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static PasswordEncoder pbkdf2Encoder(int iterations) {
+        return new Pbkdf2PasswordEncoder("", iterations, PBKDF2_HASH_WIDTH);
+    }
+}
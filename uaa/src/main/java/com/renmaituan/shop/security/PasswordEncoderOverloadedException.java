@@ -0,0 +1,18 @@
+package com.renmaituan.shop.security;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * This exception is thrown when the {@link BoundedPasswordEncoder} has too many passwords to hash or verify.
+ */
+@ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE, reason = "Too many concurrent authentications")
+public class PasswordEncoderOverloadedException extends InternalAuthenticationServiceException {
+
+    private static final long serialVersionUID = 1L;
+
+    public PasswordEncoderOverloadedException(String message) {
+        super(message);
+    }
+}
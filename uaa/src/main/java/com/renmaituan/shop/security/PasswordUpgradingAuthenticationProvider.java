@@ -0,0 +1,76 @@
+package com.renmaituan.shop.security;
+
+import com.renmaituan.shop.repository.UserRepository;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Authentication provider rehashing the password of the users whose hash does not use the current algorithm
+ * and cost of the {@link DelegatingPasswordEncoder}, once they are authenticated.
+ * <p>
+ * The new hash is computed and saved asynchronously, and only if the password has not been changed
+ * meanwhile, so that the cost of the hashes can be changed without asking the users to reset their password.
+ */
+public class PasswordUpgradingAuthenticationProvider extends DaoAuthenticationProvider {
+
+    private final Logger log = LoggerFactory.getLogger(PasswordUpgradingAuthenticationProvider.class);
+
+    private final DelegatingPasswordEncoder delegatingPasswordEncoder;
+
+    private final PasswordEncoder passwordEncoder;
+
+    private final UserRepository userRepository;
+
+    private final UserDetailsCache userDetailsCache;
+
+    private final Executor executor;
+
+    public PasswordUpgradingAuthenticationProvider(DelegatingPasswordEncoder delegatingPasswordEncoder,
+        PasswordEncoder passwordEncoder, UserRepository userRepository, UserDetailsCache userDetailsCache,
+        Executor executor) {
+
+        this.delegatingPasswordEncoder = delegatingPasswordEncoder;
+        this.passwordEncoder = passwordEncoder;
+        this.userRepository = userRepository;
+        this.userDetailsCache = userDetailsCache;
+        this.executor = executor;
+        setPasswordEncoder(passwordEncoder);
+    }
+
+    @Override
+    protected void additionalAuthenticationChecks(UserDetails userDetails,
+        UsernamePasswordAuthenticationToken authentication) throws AuthenticationException {
+
+        super.additionalAuthenticationChecks(userDetails, authentication);
+        String password = userDetails.getPassword();
+        if (delegatingPasswordEncoder.needsUpgrade(password)) {
+            String login = userDetails.getUsername();
+            String rawPassword = authentication.getCredentials().toString();
+            try {
+                executor.execute(() -> upgradePassword(login, rawPassword, password));
+            } catch (RejectedExecutionException e) {
+                log.debug("Could not upgrade the password hash of {}: {}", login, e.getMessage());
+            }
+        }
+    }
+
+    private void upgradePassword(String login, String rawPassword, String password) {
+        try {
+            if (userRepository.updatePassword(login, password, passwordEncoder.encode(rawPassword)) > 0) {
+                userDetailsCache.evict(login);
+                log.debug("Upgraded the password hash of {}", login);
+            }
+        } catch (PasswordEncoderOverloadedException e) {
+            log.debug("Could not upgrade the password hash of {}: {}", login, e.getMessage());
+        }
+    }
+}
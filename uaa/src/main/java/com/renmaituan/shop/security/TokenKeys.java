@@ -0,0 +1,151 @@
+package com.renmaituan.shop.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.util.DigestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The keys signing and verifying the tokens, read once from the key store.
+ * <p>
+ * The first alias is the key signing the tokens, the other ones are the previous keys, still published so that
+ * the tokens they signed can be verified until they expire. The responses of "/oauth/token_key" and
+ * "/.well-known/jwks.json" are computed once, with their ETag. The key id is the MD5 digest of the public key in
+ * PEM format, which is also the id computed by the resource servers when the UAA does not send any.
+ */
+public class TokenKeys {
+
+    private static final String PEM_PREFIX = "-----BEGIN PUBLIC KEY-----\n";
+
+    private static final String PEM_SUFFIX = "\n-----END PUBLIC KEY-----";
+
+    private final Logger log = LoggerFactory.getLogger(TokenKeys.class);
+
+    private final KeyPair signingKeyPair;
+
+    private final String signingKeyId;
+
+    private final byte[] tokenKey;
+
+    private final String tokenKeyETag;
+
+    private final byte[] jwks;
+
+    private final String jwksETag;
+
+    public TokenKeys(Resource keyStoreResource, String password, List<String> aliases)
+        throws IOException, GeneralSecurityException {
+
+        if (aliases.isEmpty()) {
+            throw new IllegalArgumentException("At least one key alias is required");
+        }
+        KeyStore keyStore = KeyStore.getInstance("jks");
+        try (InputStream in = keyStoreResource.getInputStream()) {
+            keyStore.load(in, password.toCharArray());
+        }
+
+        List<Map<String, Object>> keys = new ArrayList<>();
+        Map<String, Object> signingKey = null;
+        RSAPublicKey signingPublicKey = null;
+        for (String alias : aliases) {
+            Certificate certificate = keyStore.getCertificate(alias);
+            if (certificate == null) {
+                throw new IllegalArgumentException("No key with alias " + alias + " in " + keyStoreResource);
+            }
+            RSAPublicKey publicKey = (RSAPublicKey) certificate.getPublicKey();
+            String pem = PEM_PREFIX + Base64.getEncoder().encodeToString(publicKey.getEncoded()) + PEM_SUFFIX;
+            String keyId = DigestUtils.md5DigestAsHex(pem.getBytes(StandardCharsets.UTF_8));
+            if (signingKey == null) {
+                signingKey = new LinkedHashMap<>();
+                signingKey.put("alg", "SHA256withRSA");
+                signingKey.put("value", pem);
+                signingKey.put("kid", keyId);
+                signingPublicKey = publicKey;
+            }
+            Map<String, Object> jwk = new LinkedHashMap<>();
+            jwk.put("kty", "RSA");
+            jwk.put("use", "sig");
+            jwk.put("alg", "RS256");
+            jwk.put("kid", keyId);
+            jwk.put("n", base64Url(publicKey.getModulus()));
+            jwk.put("e", base64Url(publicKey.getPublicExponent()));
+            keys.add(jwk);
+            log.debug("Loaded the token key {} with id {}", alias, keyId);
+        }
+        String signingAlias = aliases.get(0);
+        this.signingKeyPair = new KeyPair(signingPublicKey,
+            (PrivateKey) keyStore.getKey(signingAlias, password.toCharArray()));
+        this.signingKeyId = (String) signingKey.get("kid");
+
+        ObjectMapper mapper = new ObjectMapper();
+        this.tokenKey = mapper.writeValueAsBytes(signingKey);
+        this.tokenKeyETag = eTag(tokenKey);
+        this.jwks = mapper.writeValueAsBytes(Collections.singletonMap("keys", keys));
+        this.jwksETag = eTag(jwks);
+    }
+
+    public KeyPair getSigningKeyPair() {
+        return signingKeyPair;
+    }
+
+    public String getSigningKeyId() {
+        return signingKeyId;
+    }
+
+    /**
+     * @return the response of "/oauth/token_key": the signing key in PEM format, not to be modified
+     */
+    public byte[] getTokenKey() {
+        return tokenKey;
+    }
+
+    public String getTokenKeyETag() {
+        return tokenKeyETag;
+    }
+
+    /**
+     * @return the response of "/.well-known/jwks.json": the JSON Web Key Set with all the published keys, not
+     * to be modified
+     */
+    public byte[] getJwks() {
+        return jwks;
+    }
+
+    public String getJwksETag() {
+        return jwksETag;
+    }
+
+    private static String eTag(byte[] content) {
+        return "\"" + DigestUtils.md5DigestAsHex(content) + "\"";
+    }
+
+    /**
+     * Encode an unsigned big-endian integer as required by the JSON Web Keys.
+     */
+    private static String base64Url(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,137 @@
+package com.renmaituan.shop.security;
+
+import com.renmaituan.shop.domain.Authority;
+import com.renmaituan.shop.domain.User;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cache of the credentials of the users, by lowercase login, used by the {@link UserDetailsService} to
+ * authenticate them without querying the database.
+ * <p>
+ * Users must be evicted whenever their login, password, activation or authorities change, and when they are
+ * deleted. Evictions made within a transaction are only applied once it is committed.
+ * <p>
+ * A user missing from the cache is loaded in three steps: its entry is reserved, the user is read from the
+ * database, and the entry is replaced by the user only if it is still reserved. A change committed while the
+ * user is being read evicts the reservation, so the credentials read before the change are not cached.
+ */
+@Component
+public class UserDetailsCache {
+
+    public static final String CACHE_NAME = "userDetails";
+
+    @Inject
+    private CacheManager cacheManager;
+
+    private Cache cache;
+
+    private ConcurrentMap<Object, Object> entries;
+
+    @PostConstruct
+    @SuppressWarnings("unchecked")
+    public void init() {
+        Cache targetCache = cacheManager.getCache(CACHE_NAME);
+        cache = new TransactionAwareCacheDecorator(targetCache);
+        // the Hazelcast map, for its atomic replace
+        entries = (ConcurrentMap<Object, Object>) targetCache.getNativeCache();
+    }
+
+    public CachedUser get(String lowercaseLogin) {
+        Object user = entries.get(lowercaseLogin);
+        return user instanceof CachedUser ? (CachedUser) user : null;
+    }
+
+    /**
+     * Reserve the entry of a user missing from the cache, before reading the user from the database.
+     *
+     * @return the reservation to give back to {@link #put(CachedUser, Object)} or {@link #release(String, Object)}
+     */
+    public Object reserve(String lowercaseLogin) {
+        String reservation = UUID.randomUUID().toString();
+        Object current = entries.putIfAbsent(lowercaseLogin, reservation);
+        return current == null ? reservation : current;
+    }
+
+    /**
+     * Cache a user read from the database, unless it has been evicted since its entry was reserved.
+     */
+    public void put(CachedUser user, Object reservation) {
+        entries.replace(user.getLogin(), reservation, user);
+    }
+
+    /**
+     * Release the reservation of a user which could not be read.
+     */
+    public void release(String lowercaseLogin, Object reservation) {
+        entries.remove(lowercaseLogin, reservation);
+    }
+
+    public void evict(String login) {
+        if (login != null) {
+            cache.evict(login.toLowerCase(Locale.ENGLISH));
+        }
+    }
+
+    /**
+     * Immutable snapshot of the credentials of a user.
+     */
+    public static final class CachedUser implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String login;
+
+        private final String password;
+
+        private final boolean activated;
+
+        private final List<String> authorities;
+
+        public CachedUser(User user) {
+            this.login = user.getLogin().toLowerCase(Locale.ENGLISH);
+            this.password = user.getPassword();
+            this.activated = user.getActivated();
+            this.authorities = Collections.unmodifiableList(user.getAuthorities().stream()
+                .map(Authority::getName)
+                .collect(Collectors.toList()));
+        }
+
+        public String getLogin() {
+            return login;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public boolean isActivated() {
+            return activated;
+        }
+
+        public List<String> getAuthorities() {
+            return authorities;
+        }
+
+        public UserDetails toUserDetails() {
+            return new org.springframework.security.core.userdetails.User(login, password,
+                authorities.stream().map(SimpleGrantedAuthority::new).collect(Collectors.toList()));
+        }
+    }
+}
@@ -1,22 +1,17 @@
 package com.renmaituan.shop.security;
 
-import com.renmaituan.shop.domain.User;
 import com.renmaituan.shop.repository.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 
 import javax.inject.Inject;
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.Locale;
 
 /**
- * Authenticate a user from the database.
+ * Authenticate a user from the database, through the {@link UserDetailsCache}.
  */
 @Component("userDetailsService")
 public class UserDetailsService implements org.springframework.security.core.userdetails.UserDetailsService {
@@ -26,23 +21,28 @@ public class UserDetailsService implements org.springframework.security.core.use
     @Inject
     private UserRepository userRepository;
 
+    @Inject
+    private UserDetailsCache userDetailsCache;
+
     @Override
-    @Transactional
     public UserDetails loadUserByUsername(final String login) {
         log.debug("Authenticating {}", login);
         String lowercaseLogin = login.toLowerCase(Locale.ENGLISH);
-        Optional<User> userFromDatabase = userRepository.findOneByLogin(lowercaseLogin);
-        return userFromDatabase.map(user -> {
-            if (!user.getActivated()) {
-                throw new UserNotActivatedException("User " + lowercaseLogin + " was not activated");
+        UserDetailsCache.CachedUser user = userDetailsCache.get(lowercaseLogin);
+        if (user == null) {
+            Object reservation = userDetailsCache.reserve(lowercaseLogin);
+            user = userRepository.findOneWithAuthoritiesByLogin(lowercaseLogin)
+                .map(UserDetailsCache.CachedUser::new)
+                .orElse(null);
+            if (user == null) {
+                userDetailsCache.release(lowercaseLogin, reservation);
+                throw new UsernameNotFoundException("User " + lowercaseLogin + " was not found in the database");
             }
-            List<GrantedAuthority> grantedAuthorities = user.getAuthorities().stream()
-                    .map(authority -> new SimpleGrantedAuthority(authority.getName()))
-                .collect(Collectors.toList());
-            return new org.springframework.security.core.userdetails.User(lowercaseLogin,
-                user.getPassword(),
-                grantedAuthorities);
-        }).orElseThrow(() -> new UsernameNotFoundException("User " + lowercaseLogin + " was not found in the " +
-        "database"));
+            userDetailsCache.put(user, reservation);
+        }
+        if (!user.isActivated()) {
+            throw new UserNotActivatedException("User " + lowercaseLogin + " was not activated");
+        }
+        return user.toUserDetails();
     }
 }
@@ -0,0 +1,91 @@
+package com.renmaituan.shop.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.provider.ClientAlreadyExistsException;
+import org.springframework.security.oauth2.provider.ClientDetails;
+import org.springframework.security.oauth2.provider.NoSuchClientException;
+import org.springframework.security.oauth2.provider.client.JdbcClientDetailsService;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Service class for managing the OAuth2 clients, stored in the "oauth_client_details" table.
+ * <p>
+ * The clients are read through a Hazelcast cache, with a near cache on each node, so that the token requests
+ * do not query the database. Any change evicts the client from the caches of all the nodes.
+ * <p>
+ * The client secrets are stored hashed with the {@link PasswordEncoder} of the user passwords.
+ */
+@Service
+public class OAuth2ClientService {
+
+    public static final String CACHE_NAME = "oauth2Clients";
+
+    private final Logger log = LoggerFactory.getLogger(OAuth2ClientService.class);
+
+    @Inject
+    private DataSource dataSource;
+
+    @Inject
+    private PasswordEncoder passwordEncoder;
+
+    private JdbcClientDetailsService jdbcClientDetailsService;
+
+    @PostConstruct
+    public void init() {
+        jdbcClientDetailsService = new JdbcClientDetailsService(dataSource);
+        jdbcClientDetailsService.setPasswordEncoder(passwordEncoder);
+    }
+
+    /**
+     * @throws NoSuchClientException if there is no client with this ID
+     */
+    @Cacheable(CACHE_NAME)
+    public ClientDetails getClient(String clientId) {
+        return jdbcClientDetailsService.loadClientByClientId(clientId);
+    }
+
+    public List<ClientDetails> getAllClients() {
+        return jdbcClientDetailsService.listClientDetails();
+    }
+
+    /**
+     * @throws ClientAlreadyExistsException if there is already a client with this ID
+     */
+    @CacheEvict(cacheNames = CACHE_NAME, key = "#clientDetails.clientId")
+    public void createClient(ClientDetails clientDetails) {
+        jdbcClientDetailsService.addClientDetails(clientDetails);
+        log.debug("Created Information for OAuth2 client: {}", clientDetails.getClientId());
+    }
+
+    /**
+     * Update a client, and its secret if it is not null.
+     *
+     * @throws NoSuchClientException if there is no client with this ID
+     */
+    @CacheEvict(cacheNames = CACHE_NAME, key = "#clientDetails.clientId")
+    public void updateClient(ClientDetails clientDetails) {
+        jdbcClientDetailsService.updateClientDetails(clientDetails);
+        if (clientDetails.getClientSecret() != null) {
+            jdbcClientDetailsService.updateClientSecret(clientDetails.getClientId(), clientDetails.getClientSecret());
+        }
+        log.debug("Changed Information for OAuth2 client: {}", clientDetails.getClientId());
+    }
+
+    /**
+     * @throws NoSuchClientException if there is no client with this ID
+     */
+    @CacheEvict(CACHE_NAME)
+    public void deleteClient(String clientId) {
+        jdbcClientDetailsService.removeClientDetails(clientId);
+        log.debug("Deleted OAuth2 client: {}", clientId);
+    }
+}
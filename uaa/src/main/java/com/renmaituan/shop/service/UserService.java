@@ -6,6 +6,7 @@ import com.renmaituan.shop.repository.AuthorityRepository;
 import com.renmaituan.shop.repository.UserRepository;
 import com.renmaituan.shop.security.AuthoritiesConstants;
 import com.renmaituan.shop.security.SecurityUtils;
+import com.renmaituan.shop.security.UserDetailsCache;
 import com.renmaituan.shop.service.util.RandomUtil;
 import com.renmaituan.shop.web.rest.vm.ManagedUserVM;
 import org.slf4j.Logger;
@@ -37,6 +38,9 @@ public class UserService {
     @Inject
     private AuthorityRepository authorityRepository;
 
+    @Inject
+    private UserDetailsCache userDetailsCache;
+
     public Optional<User> activateRegistration(String key) {
         log.debug("Activating user for activation key {}", key);
         return userRepository.findOneByActivationKey(key)
@@ -45,6 +49,7 @@ public class UserService {
                 user.setActivated(true);
                 user.setActivationKey(null);
                 userRepository.save(user);
+                userDetailsCache.evict(user.getLogin());
                 log.debug("Activated user: {}", user);
                 return user;
             });
@@ -63,6 +68,7 @@ public class UserService {
                 user.setResetKey(null);
                 user.setResetDate(null);
                 userRepository.save(user);
+                userDetailsCache.evict(user.getLogin());
                 return user;
            });
     }
@@ -148,6 +154,8 @@ public class UserService {
         userRepository
             .findOneById(id)
             .ifPresent(u -> {
+                userDetailsCache.evict(u.getLogin());
+                userDetailsCache.evict(login);
                 u.setLogin(login);
                 u.setFirstName(firstName);
                 u.setLastName(lastName);
@@ -166,6 +174,7 @@ public class UserService {
     public void deleteUser(String login) {
         userRepository.findOneByLogin(login).ifPresent(u -> {
             userRepository.delete(u);
+            userDetailsCache.evict(u.getLogin());
             log.debug("Deleted User: {}", u);
         });
     }
@@ -175,6 +184,7 @@ public class UserService {
             String encryptedPassword = passwordEncoder.encode(password);
             u.setPassword(encryptedPassword);
             userRepository.save(u);
+            userDetailsCache.evict(u.getLogin());
             log.debug("Changed password for User: {}", u);
         });
     }
@@ -219,6 +229,7 @@ public class UserService {
         for (User user : users) {
             log.debug("Deleting not activated user {}", user.getLogin());
             userRepository.delete(user);
+            userDetailsCache.evict(user.getLogin());
         }
     }
 }
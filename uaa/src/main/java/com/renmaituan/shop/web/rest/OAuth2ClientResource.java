@@ -0,0 +1,172 @@
+package com.renmaituan.shop.web.rest;
+
+import com.codahale.metrics.annotation.Timed;
+import com.renmaituan.shop.config.JHipsterProperties;
+import com.renmaituan.shop.security.AuthoritiesConstants;
+import com.renmaituan.shop.service.OAuth2ClientService;
+import com.renmaituan.shop.web.rest.util.HeaderUtil;
+import com.renmaituan.shop.web.rest.vm.OAuth2ClientVM;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.annotation.Secured;
+import org.springframework.security.oauth2.provider.ClientAlreadyExistsException;
+import org.springframework.security.oauth2.provider.NoSuchClientException;
+import org.springframework.web.bind.annotation.*;
+
+import javax.inject.Inject;
+import javax.validation.Valid;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * REST controller for managing the OAuth2 clients.
+ * <p>
+ * The changes are used at once by all the UAA nodes. The internal client of the micro-services is configured
+ * by the "jhipster.security.client-authorization" properties, and cannot be managed here.
+ * </p>
+ */
+@RestController
+@RequestMapping("/api")
+public class OAuth2ClientResource {
+
+    private final Logger log = LoggerFactory.getLogger(OAuth2ClientResource.class);
+
+    private static final String ENTITY_NAME = "oauth2ClientManagement";
+
+    @Inject
+    private OAuth2ClientService oAuth2ClientService;
+
+    @Inject
+    private JHipsterProperties jHipsterProperties;
+
+    /**
+     * POST  /oauth2-clients  : Creates a new OAuth2 client.
+     *
+     * @param oAuth2ClientVM the client to create
+     * @return the ResponseEntity with status 201 (Created) and with body the new client, or with status 400 (Bad Request) if the client ID is already in use
+     * @throws URISyntaxException if the Location URI syntax is incorrect
+     */
+    @RequestMapping(value = "/oauth2-clients",
+        method = RequestMethod.POST,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    @Secured(AuthoritiesConstants.ADMIN)
+    public ResponseEntity<OAuth2ClientVM> createClient(@Valid @RequestBody OAuth2ClientVM oAuth2ClientVM)
+        throws URISyntaxException {
+
+        log.debug("REST request to save OAuth2 client : {}", oAuth2ClientVM);
+        if (isInternalClient(oAuth2ClientVM.getClientId())) {
+            return internalClientFailure();
+        }
+        try {
+            oAuth2ClientService.createClient(oAuth2ClientVM.toClientDetails());
+        } catch (ClientAlreadyExistsException e) {
+            return ResponseEntity.badRequest()
+                .headers(HeaderUtil.createFailureAlert(ENTITY_NAME, "clientexists", "Client ID already in use"))
+                .body(null);
+        }
+        return ResponseEntity.created(new URI("/api/oauth2-clients/" + oAuth2ClientVM.getClientId()))
+            .headers(HeaderUtil.createAlert(ENTITY_NAME + ".created", oAuth2ClientVM.getClientId()))
+            .body(new OAuth2ClientVM(oAuth2ClientService.getClient(oAuth2ClientVM.getClientId())));
+    }
+
+    /**
+     * PUT  /oauth2-clients : Updates an existing OAuth2 client, and its secret if one is given.
+     *
+     * @param oAuth2ClientVM the client to update
+     * @return the ResponseEntity with status 200 (OK) and with body the updated client, or with status 404 (Not Found)
+     */
+    @RequestMapping(value = "/oauth2-clients",
+        method = RequestMethod.PUT,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    @Secured(AuthoritiesConstants.ADMIN)
+    public ResponseEntity<OAuth2ClientVM> updateClient(@Valid @RequestBody OAuth2ClientVM oAuth2ClientVM) {
+        log.debug("REST request to update OAuth2 client : {}", oAuth2ClientVM);
+        if (isInternalClient(oAuth2ClientVM.getClientId())) {
+            return internalClientFailure();
+        }
+        try {
+            oAuth2ClientService.updateClient(oAuth2ClientVM.toClientDetails());
+        } catch (NoSuchClientException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return ResponseEntity.ok()
+            .headers(HeaderUtil.createAlert(ENTITY_NAME + ".updated", oAuth2ClientVM.getClientId()))
+            .body(new OAuth2ClientVM(oAuth2ClientService.getClient(oAuth2ClientVM.getClientId())));
+    }
+
+    /**
+     * GET  /oauth2-clients : get all the OAuth2 clients.
+     *
+     * @return the ResponseEntity with status 200 (OK) and with body all the clients
+     */
+    @RequestMapping(value = "/oauth2-clients",
+        method = RequestMethod.GET,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    @Secured(AuthoritiesConstants.ADMIN)
+    public List<OAuth2ClientVM> getAllClients() {
+        log.debug("REST request to get all OAuth2 clients");
+        return oAuth2ClientService.getAllClients().stream()
+            .map(OAuth2ClientVM::new)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * GET  /oauth2-clients/:clientId : get the "clientId" OAuth2 client.
+     *
+     * @param clientId the ID of the client to find
+     * @return the ResponseEntity with status 200 (OK) and with body the client, or with status 404 (Not Found)
+     */
+    @RequestMapping(value = "/oauth2-clients/{clientId:.+}",
+        method = RequestMethod.GET,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    @Secured(AuthoritiesConstants.ADMIN)
+    public ResponseEntity<OAuth2ClientVM> getClient(@PathVariable String clientId) {
+        log.debug("REST request to get OAuth2 client : {}", clientId);
+        try {
+            return new ResponseEntity<>(new OAuth2ClientVM(oAuth2ClientService.getClient(clientId)), HttpStatus.OK);
+        } catch (NoSuchClientException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+    }
+
+    /**
+     * DELETE /oauth2-clients/:clientId : delete the "clientId" OAuth2 client.
+     *
+     * @param clientId the ID of the client to delete
+     * @return the ResponseEntity with status 200 (OK), or with status 404 (Not Found)
+     */
+    @RequestMapping(value = "/oauth2-clients/{clientId:.+}",
+        method = RequestMethod.DELETE,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    @Secured(AuthoritiesConstants.ADMIN)
+    public ResponseEntity<Void> deleteClient(@PathVariable String clientId) {
+        log.debug("REST request to delete OAuth2 client : {}", clientId);
+        try {
+            oAuth2ClientService.deleteClient(clientId);
+        } catch (NoSuchClientException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return ResponseEntity.ok().headers(HeaderUtil.createAlert(ENTITY_NAME + ".deleted", clientId)).build();
+    }
+
+    private boolean isInternalClient(String clientId) {
+        return jHipsterProperties.getSecurity().getClientAuthorization().getClientId().equals(clientId);
+    }
+
+    private ResponseEntity<OAuth2ClientVM> internalClientFailure() {
+        return ResponseEntity.badRequest()
+            .headers(HeaderUtil.createFailureAlert(ENTITY_NAME, "internalclient",
+                "The internal client is configured by the application properties"))
+            .body(null);
+    }
+}
@@ -0,0 +1,69 @@
+package com.renmaituan.shop.web.rest;
+
+import com.codahale.metrics.annotation.Timed;
+import com.renmaituan.shop.config.JHipsterProperties;
+import com.renmaituan.shop.security.TokenKeys;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.inject.Inject;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * REST controller publishing the keys verifying the tokens.
+ * <p>
+ * It takes precedence over the "/oauth/token_key" endpoint of Spring Security OAuth, and serves the same
+ * response with its key id. Both responses are computed once by {@link TokenKeys}, and are sent with an ETag
+ * and a public max-age, so that the resource servers and the caches in between can revalidate them and get a
+ * 304 (Not Modified) response.
+ */
+@RestController
+public class TokenKeyResource {
+
+    @Inject
+    private TokenKeys tokenKeys;
+
+    @Inject
+    private JHipsterProperties jHipsterProperties;
+
+    /**
+     * GET  /oauth/token_key : get the key signing the tokens.
+     *
+     * @return the ResponseEntity with status 200 (OK) and with body the key in PEM format, or with status 304
+     * (Not Modified) if it matches the If-None-Match header
+     */
+    @RequestMapping(value = "/oauth/token_key",
+        method = RequestMethod.GET,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<byte[]> getTokenKey() {
+        return cacheable(tokenKeys.getTokenKey(), tokenKeys.getTokenKeyETag());
+    }
+
+    /**
+     * GET  /.well-known/jwks.json : get all the keys verifying the tokens, as a JSON Web Key Set.
+     *
+     * @return the ResponseEntity with status 200 (OK) and with body the keys, or with status 304 (Not Modified)
+     * if they match the If-None-Match header
+     */
+    @RequestMapping(value = "/.well-known/jwks.json",
+        method = RequestMethod.GET,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<byte[]> getJwks() {
+        return cacheable(tokenKeys.getJwks(), tokenKeys.getJwksETag());
+    }
+
+    private ResponseEntity<byte[]> cacheable(byte[] body, String eTag) {
+        long maxAge = jHipsterProperties.getSecurity().getAuthentication().getJwt().getKeyCacheMaxAge();
+        return ResponseEntity.ok()
+            .eTag(eTag)
+            .cacheControl(CacheControl.maxAge(maxAge, TimeUnit.SECONDS).cachePublic())
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(body);
+    }
+}
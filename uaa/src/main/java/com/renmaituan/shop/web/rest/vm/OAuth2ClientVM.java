@@ -0,0 +1,171 @@
+package com.renmaituan.shop.web.rest.vm;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
+import javax.validation.constraints.Size;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.provider.ClientDetails;
+import org.springframework.security.oauth2.provider.client.BaseClientDetails;
+
+/**
+ * View Model of an OAuth2 client, used by the OAuth2 client management API. The secret is never sent back.
+ */
+public class OAuth2ClientVM {
+
+    @NotNull
+    @Pattern(regexp = "^[_'.@A-Za-z0-9-]*$")
+    @Size(min = 1, max = 256)
+    private String clientId;
+
+    @Size(max = 256)
+    private String clientSecret;
+
+    private Set<String> resourceIds = new HashSet<>();
+
+    private Set<String> scope = new HashSet<>();
+
+    private Set<String> authorizedGrantTypes = new HashSet<>();
+
+    private Set<String> redirectUris = new HashSet<>();
+
+    private Set<String> authorities = new HashSet<>();
+
+    private Integer accessTokenValiditySeconds;
+
+    private Integer refreshTokenValiditySeconds;
+
+    private boolean autoApprove;
+
+    public OAuth2ClientVM() {
+    }
+
+    public OAuth2ClientVM(ClientDetails clientDetails) {
+        this.clientId = clientDetails.getClientId();
+        this.resourceIds = clientDetails.getResourceIds();
+        this.scope = clientDetails.getScope();
+        this.authorizedGrantTypes = clientDetails.getAuthorizedGrantTypes();
+        this.redirectUris = clientDetails.getRegisteredRedirectUri();
+        this.authorities = clientDetails.getAuthorities().stream()
+            .map(GrantedAuthority::getAuthority)
+            .collect(Collectors.toSet());
+        this.accessTokenValiditySeconds = clientDetails.getAccessTokenValiditySeconds();
+        this.refreshTokenValiditySeconds = clientDetails.getRefreshTokenValiditySeconds();
+        this.autoApprove = clientDetails.isAutoApprove("true");
+    }
+
+    public ClientDetails toClientDetails() {
+        BaseClientDetails clientDetails = new BaseClientDetails();
+        clientDetails.setClientId(clientId);
+        clientDetails.setClientSecret(clientSecret);
+        clientDetails.setResourceIds(resourceIds);
+        clientDetails.setScope(scope);
+        clientDetails.setAuthorizedGrantTypes(authorizedGrantTypes);
+        clientDetails.setRegisteredRedirectUri(redirectUris);
+        if (authorities != null) {
+            clientDetails.setAuthorities(authorities.stream()
+                .map(SimpleGrantedAuthority::new)
+                .collect(Collectors.toList()));
+        }
+        clientDetails.setAccessTokenValiditySeconds(accessTokenValiditySeconds);
+        clientDetails.setRefreshTokenValiditySeconds(refreshTokenValiditySeconds);
+        clientDetails.setAutoApproveScopes(autoApprove ? Collections.singleton("true") : Collections.emptySet());
+        return clientDetails;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(String clientId) {
+        this.clientId = clientId;
+    }
+
+    public String getClientSecret() {
+        return clientSecret;
+    }
+
+    public void setClientSecret(String clientSecret) {
+        this.clientSecret = clientSecret;
+    }
+
+    public Set<String> getResourceIds() {
+        return resourceIds;
+    }
+
+    public void setResourceIds(Set<String> resourceIds) {
+        this.resourceIds = resourceIds;
+    }
+
+    public Set<String> getScope() {
+        return scope;
+    }
+
+    public void setScope(Set<String> scope) {
+        this.scope = scope;
+    }
+
+    public Set<String> getAuthorizedGrantTypes() {
+        return authorizedGrantTypes;
+    }
+
+    public void setAuthorizedGrantTypes(Set<String> authorizedGrantTypes) {
+        this.authorizedGrantTypes = authorizedGrantTypes;
+    }
+
+    public Set<String> getRedirectUris() {
+        return redirectUris;
+    }
+
+    public void setRedirectUris(Set<String> redirectUris) {
+        this.redirectUris = redirectUris;
+    }
+
+    public Set<String> getAuthorities() {
+        return authorities;
+    }
+
+    public void setAuthorities(Set<String> authorities) {
+        this.authorities = authorities;
+    }
+
+    public Integer getAccessTokenValiditySeconds() {
+        return accessTokenValiditySeconds;
+    }
+
+    public void setAccessTokenValiditySeconds(Integer accessTokenValiditySeconds) {
+        this.accessTokenValiditySeconds = accessTokenValiditySeconds;
+    }
+
+    public Integer getRefreshTokenValiditySeconds() {
+        return refreshTokenValiditySeconds;
+    }
+
+    public void setRefreshTokenValiditySeconds(Integer refreshTokenValiditySeconds) {
+        this.refreshTokenValiditySeconds = refreshTokenValiditySeconds;
+    }
+
+    public boolean isAutoApprove() {
+        return autoApprove;
+    }
+
+    public void setAutoApprove(boolean autoApprove) {
+        this.autoApprove = autoApprove;
+    }
+
+    @Override
+    public String toString() {
+        return "OAuth2ClientVM{" +
+            "clientId='" + clientId + '\'' +
+            ", scope=" + scope +
+            ", authorizedGrantTypes=" + authorizedGrantTypes +
+            ", authorities=" + authorities +
+            "}";
+    }
+}
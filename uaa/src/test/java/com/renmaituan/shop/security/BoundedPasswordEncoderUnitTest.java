@@ -0,0 +1,84 @@
+package com.renmaituan.shop.security;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the BoundedPasswordEncoder class.
+ *
+ * @see BoundedPasswordEncoder
+ */
+public class BoundedPasswordEncoderUnitTest {
+
+    private final CountDownLatch started = new CountDownLatch(1);
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private MetricRegistry metricRegistry;
+
+    private BoundedPasswordEncoder passwordEncoder;
+
+    @Before
+    public void setup() {
+        metricRegistry = new MetricRegistry();
+        passwordEncoder = new BoundedPasswordEncoder(new BlockingPasswordEncoder(), 1, 1, metricRegistry);
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        passwordEncoder.shutdown();
+    }
+
+    @Test
+    public void testEncodeAndMatches() {
+        release.countDown();
+        assertThat(passwordEncoder.encode("password")).isEqualTo("{encoded}password");
+        assertThat(passwordEncoder.matches("password", "{encoded}password")).isTrue();
+        assertThat(metricRegistry.timer("uaa.password-encoder.encode").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.timer("uaa.password-encoder.matches").getCount()).isEqualTo(1);
+    }
+
+    @Test(expected = PasswordEncoderOverloadedException.class)
+    public void testRejectedWhenSaturated() throws Exception {
+        CompletableFuture.runAsync(() -> passwordEncoder.encode("running"));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture.runAsync(() -> passwordEncoder.encode("queued"));
+        while (metricRegistry.getGauges().get("uaa.password-encoder.queued").getValue().equals(0)) {
+            Thread.sleep(1);
+        }
+        try {
+            passwordEncoder.encode("rejected");
+        } finally {
+            assertThat(metricRegistry.meter("uaa.password-encoder.rejected").getCount()).isEqualTo(1);
+        }
+    }
+
+    private class BlockingPasswordEncoder implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "{encoded}" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encode(rawPassword).equals(encodedPassword);
+        }
+    }
+}
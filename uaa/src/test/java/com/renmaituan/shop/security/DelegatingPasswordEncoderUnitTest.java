@@ -0,0 +1,58 @@
+package com.renmaituan.shop.security;
+
+import org.junit.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the DelegatingPasswordEncoder class.
+ *
+ * @see DelegatingPasswordEncoder
+ */
+public class DelegatingPasswordEncoderUnitTest {
+
+    private final DelegatingPasswordEncoder bcrypt =
+        new DelegatingPasswordEncoder(DelegatingPasswordEncoder.BCRYPT, 5, 6, 1000);
+
+    private final DelegatingPasswordEncoder pbkdf2 =
+        new DelegatingPasswordEncoder(DelegatingPasswordEncoder.PBKDF2, 5, 6, 1000);
+
+    @Test
+    public void testEncodeWithPrefix() {
+        String bcryptHash = bcrypt.encode("password");
+        assertThat(bcryptHash).startsWith("{bcrypt}$2a$05$");
+        assertThat(bcrypt.matches("password", bcryptHash)).isTrue();
+        assertThat(bcrypt.matches("wrong", bcryptHash)).isFalse();
+
+        String pbkdf2Hash = pbkdf2.encode("password");
+        assertThat(pbkdf2Hash).startsWith("{pbkdf2}1000$");
+        assertThat(pbkdf2Hash.length()).isLessThanOrEqualTo(100);
+        assertThat(pbkdf2.matches("password", pbkdf2Hash)).isTrue();
+        assertThat(pbkdf2.matches("wrong", pbkdf2Hash)).isFalse();
+    }
+
+    @Test
+    public void testMatchesAnyAlgorithm() {
+        String legacyHash = new BCryptPasswordEncoder(4).encode("password");
+        assertThat(bcrypt.matches("password", legacyHash)).isTrue();
+        assertThat(pbkdf2.matches("password", legacyHash)).isTrue();
+        assertThat(bcrypt.matches("password", pbkdf2.encode("password"))).isTrue();
+        assertThat(bcrypt.matches("password", "{unknown}password")).isFalse();
+        assertThat(bcrypt.matches("password", null)).isFalse();
+    }
+
+    @Test
+    public void testNeedsUpgrade() {
+        assertThat(bcrypt.needsUpgrade(bcrypt.encode("password"))).isFalse();
+        assertThat(bcrypt.needsUpgrade("{bcrypt}" + new BCryptPasswordEncoder(6).encode("password"))).isFalse();
+        assertThat(bcrypt.needsUpgrade("{bcrypt}" + new BCryptPasswordEncoder(4).encode("password"))).isTrue();
+        assertThat(bcrypt.needsUpgrade("{bcrypt}" + new BCryptPasswordEncoder(7).encode("password"))).isTrue();
+        assertThat(bcrypt.needsUpgrade(new BCryptPasswordEncoder(5).encode("password"))).isTrue();
+        assertThat(bcrypt.needsUpgrade(pbkdf2.encode("password"))).isTrue();
+
+        assertThat(pbkdf2.needsUpgrade(pbkdf2.encode("password"))).isFalse();
+        assertThat(pbkdf2.needsUpgrade(new DelegatingPasswordEncoder(DelegatingPasswordEncoder.PBKDF2, 5, 6, 2000)
+            .encode("password"))).isTrue();
+    }
+}
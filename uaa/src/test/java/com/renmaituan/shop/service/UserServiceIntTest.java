@@ -3,16 +3,26 @@ package com.renmaituan.shop.service;
 import com.renmaituan.shop.UaaApp;
 import com.renmaituan.shop.domain.User;
 import com.renmaituan.shop.repository.UserRepository;
+import com.renmaituan.shop.security.AuthoritiesConstants;
+import com.renmaituan.shop.security.UserDetailsCache;
+import com.renmaituan.shop.security.UserDetailsService;
+import com.renmaituan.shop.security.UserNotActivatedException;
 import java.time.ZonedDateTime;
 import com.renmaituan.shop.service.util.RandomUtil;
 import java.time.LocalDate;
+import org.junit.After;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.test.context.junit4.SpringRunner;
 
 import javax.inject.Inject;
+import java.util.Collections;
 import java.util.Optional;
 import java.util.List;
 
@@ -34,6 +44,19 @@ public class UserServiceIntTest {
     @Inject
     private UserService userService;
 
+    @Inject
+    private UserDetailsService userDetailsService;
+
+    @Inject
+    private UserDetailsCache userDetailsCache;
+
+    @After
+    public void cleanUp() {
+        SecurityContextHolder.clearContext();
+        userRepository.findOneByLogin("cacheduser").ifPresent(userRepository::delete);
+        userDetailsCache.evict("cacheduser");
+    }
+
     @Test
     public void assertThatUserMustExistToResetPassword() {
         Optional<User> maybeUser = userService.requestPasswordReset("john.doe@localhost");
@@ -114,4 +137,89 @@ public class UserServiceIntTest {
         List<User> users = userRepository.findAllByActivatedIsFalseAndCreatedDateBefore(now.minusDays(3));
         assertThat(users).isEmpty();
     }
+
+    /*
+     * The following tests run without a test transaction: the cached users are only evicted once the changes
+     * are committed.
+     */
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void assertThatActivationEvictsTheCachedUser() {
+        User user = userService.createUser("cacheduser", "cacheduser", "Cached", "User", "cached.user@localhost",
+            "en-US");
+        assertThatThrownBy(() -> userDetailsService.loadUserByUsername("cacheduser"))
+            .isInstanceOf(UserNotActivatedException.class);
+        assertThat(userDetailsCache.get("cacheduser").isActivated()).isFalse();
+
+        userService.activateRegistration(user.getActivationKey());
+
+        assertThat(userDetailsCache.get("cacheduser")).isNull();
+        assertThat(userDetailsService.loadUserByUsername("cacheduser")).isNotNull();
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void assertThatChangePasswordEvictsTheCachedUser() {
+        createCachedUser();
+        SecurityContextHolder.getContext().setAuthentication(
+            new UsernamePasswordAuthenticationToken("cacheduser", "cacheduser"));
+
+        userService.changePassword("newpassword");
+
+        assertThat(userDetailsCache.get("cacheduser")).isNull();
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void assertThatUpdateUserEvictsTheCachedUser() {
+        User user = createCachedUser();
+
+        userService.updateUser(user.getId(), "cacheduser", "Cached", "User", "cached.user@localhost", true,
+            "en-US", Collections.singleton(AuthoritiesConstants.ADMIN));
+
+        assertThat(userDetailsCache.get("cacheduser")).isNull();
+        assertThat(userDetailsService.loadUserByUsername("cacheduser").getAuthorities())
+            .extracting("authority").containsExactly(AuthoritiesConstants.ADMIN);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void assertThatDeleteUserEvictsTheCachedUser() {
+        createCachedUser();
+
+        userService.deleteUser("cacheduser");
+
+        assertThat(userDetailsCache.get("cacheduser")).isNull();
+        assertThatThrownBy(() -> userDetailsService.loadUserByUsername("cacheduser"))
+            .isInstanceOf(UsernameNotFoundException.class);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void assertThatAUserReadBeforeAChangeIsNotCached() {
+        User user = userService.createUser("cacheduser", "cacheduser", "Cached", "User", "cached.user@localhost",
+            "en-US");
+        // a load reads the user, then the user is activated before the load caches it
+        Object reservation = userDetailsCache.reserve("cacheduser");
+        UserDetailsCache.CachedUser staleUser =
+            new UserDetailsCache.CachedUser(userRepository.findOneWithAuthoritiesByLogin("cacheduser").get());
+        userService.activateRegistration(user.getActivationKey());
+        userDetailsCache.put(staleUser, reservation);
+
+        assertThat(userDetailsCache.get("cacheduser")).isNull();
+        assertThat(userDetailsService.loadUserByUsername("cacheduser")).isNotNull();
+    }
+
+    /**
+     * Create an activated user, and load it in the cache.
+     */
+    private User createCachedUser() {
+        User user = userService.createUser("cacheduser", "cacheduser", "Cached", "User", "cached.user@localhost",
+            "en-US");
+        userService.activateRegistration(user.getActivationKey());
+        userDetailsService.loadUserByUsername("cacheduser");
+        assertThat(userDetailsCache.get("cacheduser")).isNotNull();
+        return user;
+    }
 }
@@ -0,0 +1,127 @@
+package com.renmaituan.shop.web.rest;
+
+import com.renmaituan.shop.UaaApp;
+import com.renmaituan.shop.config.JHipsterProperties;
+import com.renmaituan.shop.service.OAuth2ClientService;
+import com.renmaituan.shop.web.rest.vm.OAuth2ClientVM;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import javax.inject.Inject;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Test class for the OAuth2ClientResource REST controller.
+ *
+ * @see OAuth2ClientResource
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = UaaApp.class)
+public class OAuth2ClientResourceIntTest {
+
+    @Inject
+    private OAuth2ClientService oAuth2ClientService;
+
+    @Inject
+    private JHipsterProperties jHipsterProperties;
+
+    @Inject
+    private PasswordEncoder passwordEncoder;
+
+    private MockMvc restOAuth2ClientMockMvc;
+
+    @Before
+    public void setup() {
+        OAuth2ClientResource oAuth2ClientResource = new OAuth2ClientResource();
+        ReflectionTestUtils.setField(oAuth2ClientResource, "oAuth2ClientService", oAuth2ClientService);
+        ReflectionTestUtils.setField(oAuth2ClientResource, "jHipsterProperties", jHipsterProperties);
+        this.restOAuth2ClientMockMvc = MockMvcBuilders.standaloneSetup(oAuth2ClientResource).build();
+    }
+
+    @Test
+    public void testGetExistingClient() throws Exception {
+        restOAuth2ClientMockMvc.perform(get("/api/oauth2-clients/web_app")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+                .andExpect(jsonPath("$.scope").value(hasItem("openid")))
+                .andExpect(jsonPath("$.autoApprove").value(true));
+    }
+
+    @Test
+    public void testGetUnknownClient() throws Exception {
+        restOAuth2ClientMockMvc.perform(get("/api/oauth2-clients/unknown")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testCreateUpdateDeleteClient() throws Exception {
+        OAuth2ClientVM client = new OAuth2ClientVM();
+        client.setClientId("partner");
+        client.setClientSecret("secret");
+        client.setScope(Collections.singleton("read"));
+        client.setAuthorizedGrantTypes(Collections.singleton("client_credentials"));
+
+        restOAuth2ClientMockMvc.perform(post("/api/oauth2-clients")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(client)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.clientId").value("partner"))
+                .andExpect(jsonPath("$.clientSecret").doesNotExist());
+
+        // the secret is stored hashed
+        String storedSecret = oAuth2ClientService.getClient("partner").getClientSecret();
+        assertThat(storedSecret).isNotEqualTo("secret");
+        assertThat(passwordEncoder.matches("secret", storedSecret)).isTrue();
+
+        restOAuth2ClientMockMvc.perform(post("/api/oauth2-clients")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(client)))
+                .andExpect(status().isBadRequest());
+
+        client.setScope(Collections.singleton("write"));
+        restOAuth2ClientMockMvc.perform(put("/api/oauth2-clients")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(client)))
+                .andExpect(status().isOk());
+
+        restOAuth2ClientMockMvc.perform(get("/api/oauth2-clients/partner")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.scope").value(hasItem("write")));
+
+        restOAuth2ClientMockMvc.perform(delete("/api/oauth2-clients/partner")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        restOAuth2ClientMockMvc.perform(get("/api/oauth2-clients/partner")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testInternalClientCannotBeManaged() throws Exception {
+        OAuth2ClientVM client = new OAuth2ClientVM();
+        client.setClientId(jHipsterProperties.getSecurity().getClientAuthorization().getClientId());
+
+        restOAuth2ClientMockMvc.perform(post("/api/oauth2-clients")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(TestUtil.convertObjectToJsonBytes(client)))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,80 @@
+package com.renmaituan.shop.web.rest;
+
+import com.renmaituan.shop.UaaApp;
+import com.renmaituan.shop.config.JHipsterProperties;
+import com.renmaituan.shop.security.TokenKeys;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import javax.inject.Inject;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Test class for the TokenKeyResource REST controller.
+ *
+ * @see TokenKeyResource
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = UaaApp.class)
+public class TokenKeyResourceIntTest {
+
+    @Inject
+    private TokenKeys tokenKeys;
+
+    @Inject
+    private JHipsterProperties jHipsterProperties;
+
+    private MockMvc restTokenKeyMockMvc;
+
+    @Before
+    public void setup() {
+        TokenKeyResource tokenKeyResource = new TokenKeyResource();
+        ReflectionTestUtils.setField(tokenKeyResource, "tokenKeys", tokenKeys);
+        ReflectionTestUtils.setField(tokenKeyResource, "jHipsterProperties", jHipsterProperties);
+        this.restTokenKeyMockMvc = MockMvcBuilders.standaloneSetup(tokenKeyResource).build();
+    }
+
+    @Test
+    public void testGetTokenKey() throws Exception {
+        restTokenKeyMockMvc.perform(get("/oauth/token_key"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, tokenKeys.getTokenKeyETag()))
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=300, public"))
+            .andExpect(jsonPath("$.alg").value("SHA256withRSA"))
+            .andExpect(jsonPath("$.value").value(startsWith("-----BEGIN PUBLIC KEY-----")))
+            .andExpect(jsonPath("$.kid").value(tokenKeys.getSigningKeyId()));
+    }
+
+    @Test
+    public void testGetJwks() throws Exception {
+        restTokenKeyMockMvc.perform(get("/.well-known/jwks.json"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, tokenKeys.getJwksETag()))
+            .andExpect(jsonPath("$.keys[0].kty").value("RSA"))
+            .andExpect(jsonPath("$.keys[0].kid").value(tokenKeys.getSigningKeyId()))
+            .andExpect(jsonPath("$.keys[0].e").value("AQAB"));
+    }
+
+    @Test
+    public void testRevalidateTokenKey() throws Exception {
+        restTokenKeyMockMvc.perform(get("/oauth/token_key")
+            .header(HttpHeaders.IF_NONE_MATCH, tokenKeys.getTokenKeyETag()))
+            .andExpect(status().isNotModified())
+            .andExpect(content().string(""));
+
+        restTokenKeyMockMvc.perform(get("/oauth/token_key")
+            .header(HttpHeaders.IF_NONE_MATCH, "\"outdated\""))
+            .andExpect(status().isOk());
+    }
+}
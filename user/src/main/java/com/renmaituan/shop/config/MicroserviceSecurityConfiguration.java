@@ -1,15 +1,15 @@
 package com.renmaituan.shop.config;
 
 import com.renmaituan.shop.security.AuthoritiesConstants;
+import com.renmaituan.shop.security.UaaJwtAccessTokenConverter;
+import com.renmaituan.shop.security.UaaPublicKeyProvider;
 
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.cloud.client.loadbalancer.RestTemplateCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
@@ -20,8 +20,6 @@ import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenCo
 import org.springframework.security.oauth2.provider.token.store.JwtTokenStore;
 import org.springframework.web.client.RestTemplate;
 
-import java.util.Map;
-
 import javax.inject.Inject;
 
 @Configuration
@@ -61,29 +59,31 @@ public class MicroserviceSecurityConfiguration extends ResourceServerConfigurerA
 
     @Bean
     public JwtAccessTokenConverter jwtAccessTokenConverter() {
-        JwtAccessTokenConverter converter = new JwtAccessTokenConverter();
-        converter.setVerifierKey(getKeyFromAuthorizationServer());
-        return converter;
+        return new UaaJwtAccessTokenConverter(uaaPublicKeyProvider());
+    }
+
+    @Bean
+    public UaaPublicKeyProvider uaaPublicKeyProvider() {
+        return new UaaPublicKeyProvider(keyUriRestTemplate, discoveryClient,
+            jHipsterProperties.getSecurity().getAuthentication().getJwt().getPublicKeyRefreshIntervalInSeconds());
     }
 
+    /**
+     * Fetches the UAA public keys, with timeouts: an unresponsive UAA must neither block the key refresh, nor the
+     * requests verifying a token signed with an unknown key.
+     */
     @Bean
-    public RestTemplate loadBalancedRestTemplate(RestTemplateCustomizer customizer) {
-        RestTemplate restTemplate = new RestTemplate();
+    public RestTemplate keyUriRestTemplate(RestTemplateCustomizer customizer) {
+        int timeout = jHipsterProperties.getSecurity().getAuthentication().getJwt().getPublicKeyFetchTimeoutInMillis();
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(timeout);
+        requestFactory.setReadTimeout(timeout);
+        RestTemplate restTemplate = new RestTemplate(requestFactory);
         customizer.customize(restTemplate);
         return restTemplate;
     }
 
     @Inject
-    @Qualifier("loadBalancedRestTemplate")
+    @Qualifier("keyUriRestTemplate")
     private RestTemplate keyUriRestTemplate;
-
-    private String getKeyFromAuthorizationServer() {
-        // Load available UAA servers
-        discoveryClient.getServices();
-        HttpEntity<Void> request = new HttpEntity<Void>(new HttpHeaders());
-        return (String) this.keyUriRestTemplate
-            .exchange("http://uaa/oauth/token_key", HttpMethod.GET, request, Map.class).getBody()
-            .get("value");
-
-    }
 }